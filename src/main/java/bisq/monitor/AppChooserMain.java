@@ -20,6 +20,7 @@ package bisq.monitor;
 
 import bisq.monitor.dump.DataDumpMain;
 import bisq.monitor.monitor.MonitorMain;
+import bisq.monitor.replay.ReplayMain;
 import bisq.monitor.server.ServerMain;
 import bisq.monitor.utils.PropertiesUtil;
 import lombok.extern.slf4j.Slf4j;
@@ -34,7 +35,7 @@ import java.util.stream.Stream;
 public class AppChooserMain {
 
     /**
-     * @param args --app=[BisqNetworkObserverMain | ServerMain]; optional; default MonitorMain
+     * @param args --app=[BisqNetworkObserverMain | ServerMain | DataDumpMain | ReplayMain]; optional; default MonitorMain
      *             --config={absolute path to monitor property file} ; optional; default is monitor.properties at data directory
      *             Arbitrary Bisq options as defined in Config. optional; ignored for MonitorMain
      */
@@ -62,6 +63,9 @@ public class AppChooserMain {
                     properties = PropertiesUtil.getProperties();
                 }
                 DataDumpMain.main(arguments, properties);
+            } else if ("ReplayMain".equals(app)) {
+                // Takes --files, --format and --config
+                ReplayMain.main(arguments);
             }
         } else {
             MonitorMain.main(arguments);
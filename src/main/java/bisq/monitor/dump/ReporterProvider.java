@@ -17,13 +17,15 @@
 
 package bisq.monitor.dump;
 
+import bisq.common.util.Utilities;
 import bisq.monitor.reporter.ConsoleReporter;
-import bisq.monitor.reporter.GraphiteReporter;
 import bisq.monitor.reporter.Reporter;
+import bisq.monitor.reporter.ReporterFactory;
 import lombok.Setter;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
+import java.io.File;
 import java.util.Optional;
 import java.util.Properties;
 
@@ -41,8 +43,8 @@ public class ReporterProvider {
         if (reporter == null) {
             if (monitorProperties.isPresent()) {
                 Properties properties = monitorProperties.get();
-                reporter = "true".equals(properties.getProperty("GraphiteReporter.enabled", "false")) ?
-                        new GraphiteReporter(properties) : new ConsoleReporter();
+                String appName = properties.getProperty("DataDump.appDir", "bisq-monitor-datadump");
+                reporter = ReporterFactory.createReporter(properties, new File(Utilities.getUserDataDir(), appName));
             } else {
                 reporter = new ConsoleReporter();
             }
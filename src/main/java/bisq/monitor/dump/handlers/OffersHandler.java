@@ -34,7 +34,9 @@ import org.bitcoinj.params.MainNetParams;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Properties;
@@ -135,12 +137,14 @@ public class OffersHandler {
             numOffersByAge.get(getAgeCategory(now, offer.getDate().getTime())).incrementAndGet();
         });
 
-        numOffersByAge.forEach((key, value) -> reporter.report(new Metrics(OFFERS_PATH + ".offerAge." + key.name().toLowerCase(), value.get())));
+        List<Metrics> metrics = new ArrayList<>(numOffersByAge.size() + numOffersByVersion.size() + 1);
+        numOffersByAge.forEach((key, value) -> metrics.add(new Metrics(OFFERS_PATH + ".offerAge." + key.name().toLowerCase(), value.get())));
 
         String value = new MainNetParams().getMonetaryFormat().noCode().format(Coin.valueOf(totalAmount.get())).toString();
-        reporter.report(new Metrics(OFFERS_PATH + ".totalAmount", value));
+        metrics.add(new Metrics(OFFERS_PATH + ".totalAmount", value));
         numOffersByVersion.forEach((version, count) ->
-                reporter.report(new Metrics(OFFERS_PATH + ".numOffersByVersion." + version.replace(".", "_"), count.get())));
+                metrics.add(new Metrics(OFFERS_PATH + ".numOffersByVersion." + version.replace(".", "_"), count.get())));
+        reporter.report(metrics);
     }
 
     private Age getAgeCategory(long now, long offerCreationDate) {
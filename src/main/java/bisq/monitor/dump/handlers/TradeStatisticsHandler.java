@@ -34,11 +34,14 @@ import org.bitcoinj.params.MainNetParams;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Optional;
 import java.util.Properties;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 
 @Singleton
 @Slf4j
@@ -66,25 +69,26 @@ public class TradeStatisticsHandler {
 
     public void onAllServicesInitialized() {
         long minDate = System.currentTimeMillis() - TimeUnit.MINUTES.toMillis(maxAgeInMinutes);
-        tradeStatistics3StorageService.getMapOfAllData().values().stream()
+        List<Metrics> metrics = tradeStatistics3StorageService.getMapOfAllData().values().stream()
                 .filter(e -> e instanceof TradeStatistics3)
                 .map(e -> (TradeStatistics3) e)
                 .filter(TradeStatistics3::isValid)
                 .filter(tradeStatistics -> tradeStatistics.getDateAsLong() > minDate)
-                .map(this::toMetrics)
-                .forEach(this::sendReports);
+                .flatMap(tradeStatistics -> toMetrics(tradeStatistics).stream())
+                .collect(Collectors.toList());
+        sendReports(metrics);
         tradeStatisticsManager.getObservableTradeStatisticsSet().addListener((SetChangeListener<TradeStatistics3>) change -> {
             TradeStatistics3 newItem = change.getElementAdded();
             if (isNotProcessed(newItem)) {
-                Set<Metrics> reportItems = toMetrics(newItem);
+                List<Metrics> reportItems = toMetrics(newItem);
                 sendReports(reportItems);
             }
         });
     }
 
-    private Set<Metrics> toMetrics(TradeStatistics3 tradeStatistics) {
+    private List<Metrics> toMetrics(TradeStatistics3 tradeStatistics) {
         alreadyProcessed.add(new P2PDataStorage.ByteArray(tradeStatistics.getHash()));
-        Set<Metrics> metrics = new HashSet<>();
+        List<Metrics> metrics = new ArrayList<>(3);
 
         long timeStampInSec = tradeStatistics.getDateAsLong() / 1000;
         String market = CurrencyUtil.getCurrencyPair(tradeStatistics.getCurrency()).replace("/", "_");
@@ -105,8 +109,10 @@ public class TradeStatisticsHandler {
         return metrics;
     }
 
-    private void sendReports(Set<Metrics> reportItems) {
-        reportItems.forEach(reporter::report);
+    private void sendReports(List<Metrics> reportItems) {
+        if (!reportItems.isEmpty()) {
+            reporter.report(reportItems);
+        }
     }
 
     private boolean isNotProcessed(TradeStatistics3 tradeStatistics) {
@@ -28,9 +28,8 @@ import bisq.common.util.SingleThreadExecutorUtils;
 import bisq.common.util.Utilities;
 import bisq.core.locale.Res;
 import bisq.core.setup.CoreNetworkCapabilities;
-import bisq.monitor.reporter.ConsoleReporter;
-import bisq.monitor.reporter.GraphiteReporter;
 import bisq.monitor.reporter.Reporter;
+import bisq.monitor.reporter.ReporterFactory;
 import bisq.monitor.utils.PropertiesUtil;
 import ch.qos.logback.classic.Level;
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
@@ -62,8 +61,7 @@ public class MonitorMain {
 
         setup(properties);
 
-        Reporter reporter = "true".equals(properties.getProperty("GraphiteReporter.enabled", "false")) ?
-                new GraphiteReporter(properties) : new ConsoleReporter();
+        Reporter reporter = ReporterFactory.createReporter(properties, appDir);
 
         executor = SingleThreadExecutorUtils.getSingleThreadExecutor("Monitor");
         CompletableFuture.runAsync(() -> {
@@ -17,15 +17,25 @@
 
 package bisq.monitor.monitor;
 
+import bisq.monitor.reporter.LatencyHistogram;
+import bisq.monitor.reporter.MetricName;
+import bisq.monitor.reporter.Metrics;
 import bisq.monitor.reporter.Reporter;
 import bisq.network.p2p.NodeAddress;
 import lombok.extern.slf4j.Slf4j;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 import java.util.Properties;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
 @Slf4j
 public abstract class MonitorTask {
+    private static final long HIGHEST_TRACKABLE_LATENCY = TimeUnit.MINUTES.toMillis(10);
+
     protected final Properties properties;
     protected final Reporter reporter;
     protected final TorNode torNode;
@@ -33,6 +43,9 @@ public abstract class MonitorTask {
     private final long interval;
     private final boolean enabled;
 
+    private final Map<MetricName, LatencyHistogram> histograms = new ConcurrentHashMap<>();
+    private final LatencyHistogram.Snapshot snapshot = new LatencyHistogram.Snapshot();
+
     private long lastRunTs;
     protected boolean shutDownInProgress;
 
@@ -82,5 +95,29 @@ public abstract class MonitorTask {
                         .replace("https://", "");
     }
 
+    /**
+     * Records a latency in ms into the histogram of the given path. Failed probes (negative values) are ignored.
+     */
+    protected void recordLatency(String path, long latency) {
+        histograms.computeIfAbsent(MetricName.ROOT.resolve(path), name -> new LatencyHistogram(HIGHEST_TRACKABLE_LATENCY))
+                .record(latency);
+    }
+
+    /**
+     * Reports [path].count, .p50, .p90, .p99 and .max of all latency histograms and resets them.
+     * Expected to be called at the end of a run.
+     */
+    protected void reportLatencyHistograms() {
+        long timeStampInSec = System.currentTimeMillis() / 1000;
+        histograms.forEach((name, histogram) -> {
+            histogram.snapshotAndReset(snapshot);
+            if (snapshot.getCount() > 0) {
+                List<Metrics> metrics = new ArrayList<>();
+                snapshot.addTo(metrics, name, timeStampInSec);
+                reporter.report(metrics);
+            }
+        });
+    }
+
     abstract public CompletableFuture<Void> shutDown();
 }
\ No newline at end of file
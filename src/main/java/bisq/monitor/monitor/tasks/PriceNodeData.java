@@ -84,6 +84,7 @@ public class PriceNodeData extends MonitorTask {
                     try {
                         CompletableFuture.runAsync(() -> {
                             String address = address1;
+                            long ts = System.currentTimeMillis();
                             try {
                                 if (address.contains(".onion")) {
                                     address = getAddressWithoutProtocol(address);
@@ -91,11 +92,13 @@ public class PriceNodeData extends MonitorTask {
                                     String host = address.replace(".onion", "");
                                     reportFees(host, httpClient.getWithTor("/getFees/"));
                                     reportPrices(host, httpClient.getWithTor("/getAllMarketPrices/"));
+                                    recordLatency("priceNodes.requestTimeHistogram.tor", System.currentTimeMillis() - ts);
                                 } else {
                                     MonitorHttpClient httpClient = MonitorHttpClient.config(address, torNode.getSocketTimeout());
                                     address = getAddressWithoutProtocol(address);
                                     reportFees(address, httpClient.get("/getFees"));
                                     reportPrices(address, httpClient.get("/getAllMarketPrices"));
+                                    recordLatency("priceNodes.requestTimeHistogram.clearnet", System.currentTimeMillis() - ts);
                                 }
                             } catch (IOException e) {
                                 if (!shutDownInProgress) {
@@ -108,6 +111,7 @@ public class PriceNodeData extends MonitorTask {
                     }
                 }
             });
+            reportLatencyHistograms();
         } catch (Throwable e) {
             if (!shutDownInProgress) {
                 log.error("Error at PriceNodeData.run", e);
@@ -123,9 +127,9 @@ public class PriceNodeData extends MonitorTask {
 
 
     private void reportFees(String address, String json) {
-        String btcTxFee = new JsonParser().parse(json).getAsJsonObject()
+        double btcTxFee = new JsonParser().parse(json).getAsJsonObject()
                 .get("dataMap").getAsJsonObject()
-                .get("btcTxFee").getAsString();
+                .get("btcTxFee").getAsDouble();
         reporter.report(new Metrics(getBasePath(address) + "fee", btcTxFee));
     }
 
@@ -135,7 +139,7 @@ public class PriceNodeData extends MonitorTask {
                     JsonObject priceItem = item.getAsJsonObject();
                     String currencyCode = priceItem.get("currencyCode").getAsString();
                     if (!excluded.contains(currencyCode)) {
-                        String price = String.format("%.12f", priceItem.get("price").getAsDouble());
+                        double price = priceItem.get("price").getAsDouble();
                         reporter.report(new Metrics(getBasePath(address) + "price." + currencyCode, price));
                     }
                 });
@@ -84,6 +84,7 @@ public class SeedNodeRoundTripTime extends MonitorTask {
                                         long startTime = startTimeByNonce.get(key);
                                         long rrt = System.currentTimeMillis() - startTime;
                                         reporter.report(new Metrics(path, rrt));
+                                        recordLatency("seedNodes.rttHistogram." + mode, rrt);
                                     }
                                 }
                             } else {
@@ -106,9 +107,15 @@ public class SeedNodeRoundTripTime extends MonitorTask {
             // If we used parallel mode we wait until all futures have completed before we return to caller to 
             // execute next task.
             if (!runSerial) {
-                CompletableFutureUtil.allOf(allFutures).join();
+                try {
+                    // allOf completes after all futures, but exceptionally if any failed. Failures got reported
+                    // already at whenComplete and must not skip the histograms.
+                    CompletableFutureUtil.allOf(allFutures).join();
+                } catch (Throwable ignore) {
+                }
                 allFutures.clear();
             }
+            reportLatencyHistograms();
         } catch (Throwable e) {
             if (!shutDownInProgress) {
                 log.error("Error at SeedNodeRoundTripTime.run. Error: {}", e.toString());
@@ -68,6 +68,7 @@ public class TorConnectionTime extends MonitorTask {
                                 String path = "torNetwork.onionServices." + getAddressForMetric(nodeAddress) + ".connectionTime." + mode;
                                 if (throwable == null) {
                                     reporter.report(new Metrics(path, duration));
+                                    recordLatency("torNetwork.onionServices.connectionTimeHistogram" + mode, duration);
                                 } else {
                                     reporter.report(new Metrics(path, -1));
                                 }
@@ -79,6 +80,7 @@ public class TorConnectionTime extends MonitorTask {
                     torNode.shutDown();
                 }
             });
+            reportLatencyHistograms();
         } catch (Throwable ignore) {
         }
     }
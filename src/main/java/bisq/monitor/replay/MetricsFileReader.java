@@ -0,0 +1,212 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.monitor.replay;
+
+import bisq.monitor.reporter.MetricName;
+import bisq.monitor.reporter.Metrics;
+import bisq.monitor.reporter.PickleDecoder;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads recorded metrics and hands them over in batches with their original timestamps.
+ * <p>
+ * LINE files contain plaintext protocol lines (path value timestamp), like the segments of the GraphiteReporter spool.
+ * Those are zero filled at the end, so reading stops at the first zero byte. PICKLE files contain the payloads as sent
+ * to the carbon pickle receiver, each with its 4 byte length header.
+ * Not thread safe.
+ */
+@Slf4j
+public class MetricsFileReader {
+    private static final int MAX_PICKLE_LENGTH = 64 * 1024 * 1024;
+    private static final int BUFFER_SIZE = 1024 * 1024;
+
+    public enum Format {
+        AUTO,
+        LINE,
+        PICKLE
+    }
+
+    public interface BatchConsumer {
+        void accept(List<Metrics> batch) throws InterruptedException;
+    }
+
+    private final int batchSize;
+    private final PickleDecoder pickleDecoder = new PickleDecoder();
+    @Getter
+    private long numInvalid;
+
+    public MetricsFileReader(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * @return the number of metrics read from the file
+     */
+    public long read(File file, Format format, BatchConsumer consumer) throws IOException, InterruptedException {
+        if (format == Format.AUTO) {
+            format = detectFormat(file);
+        }
+        log.info("Reading {} as {}", file, format);
+        try (InputStream inputStream = new BufferedInputStream(new FileInputStream(file), BUFFER_SIZE)) {
+            return format == Format.PICKLE ?
+                    readPickle(file, inputStream, consumer) :
+                    readLines(file, inputStream, consumer);
+        }
+    }
+
+    private long readLines(File file, InputStream inputStream, BatchConsumer consumer)
+            throws IOException, InterruptedException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8), BUFFER_SIZE);
+        List<Metrics> batch = new ArrayList<>(batchSize);
+        long count = 0;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            // Spool segments are zero filled after the last line
+            int end = line.indexOf('\0');
+            if (end >= 0) {
+                line = line.substring(0, end);
+            }
+            if (!line.isEmpty()) {
+                Metrics metrics = parseLine(line);
+                if (metrics != null) {
+                    batch.add(metrics);
+                    count++;
+                    if (batch.size() == batchSize) {
+                        consumer.accept(batch);
+                        batch = new ArrayList<>(batchSize);
+                    }
+                } else {
+                    numInvalid++;
+                    log.debug("Skipping invalid line in {}: {}", file, line);
+                }
+            }
+            if (end >= 0) {
+                break;
+            }
+        }
+        if (!batch.isEmpty()) {
+            consumer.accept(batch);
+        }
+        return count;
+    }
+
+    private long readPickle(File file, InputStream inputStream, BatchConsumer consumer)
+            throws IOException, InterruptedException {
+        DataInputStream dataInputStream = new DataInputStream(inputStream);
+        List<Metrics> batch = new ArrayList<>(batchSize);
+        long count = 0;
+        byte[] payload = new byte[0];
+        while (true) {
+            int length;
+            try {
+                length = dataInputStream.readInt();
+            } catch (EOFException e) {
+                break;
+            }
+            if (length == 0) {
+                // Zero padding at the end of a preallocated file
+                break;
+            }
+            if (length < 0 || length > MAX_PICKLE_LENGTH) {
+                throw new IOException("Invalid pickle length " + length + " in " + file);
+            }
+            if (payload.length < length) {
+                payload = new byte[length];
+            }
+            dataInputStream.readFully(payload, 0, length);
+            List<Metrics> decoded;
+            try {
+                decoded = pickleDecoder.decode(ByteBuffer.wrap(payload, 0, length));
+            } catch (IllegalArgumentException | IndexOutOfBoundsException | BufferUnderflowException e) {
+                numInvalid++;
+                log.warn("Skipping invalid pickle payload of {} bytes in {}: {}", length, file, e.getMessage());
+                continue;
+            }
+            for (Metrics metrics : decoded) {
+                batch.add(metrics);
+                if (batch.size() == batchSize) {
+                    consumer.accept(batch);
+                    batch = new ArrayList<>(batchSize);
+                }
+            }
+            count += decoded.size();
+        }
+        if (!batch.isEmpty()) {
+            consumer.accept(batch);
+        }
+        return count;
+    }
+
+    /**
+     * @return the metrics of a plaintext protocol line or null if the line is invalid
+     */
+    static Metrics parseLine(String line) {
+        String[] tokens = line.trim().split("\\s+");
+        if (tokens.length != 3) {
+            return null;
+        }
+        try {
+            MetricName name = MetricName.of(tokens[0]);
+            long timeStampInSec = (long) Double.parseDouble(tokens[2]);
+            String value = tokens[1];
+            try {
+                return new Metrics(name, Long.parseLong(value), timeStampInSec);
+            } catch (NumberFormatException ignore) {
+            }
+            return new Metrics(name, Double.parseDouble(value), timeStampInSec);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static Format detectFormat(File file) throws IOException {
+        String fileName = file.getName();
+        if (fileName.endsWith(".pickle") || fileName.endsWith(".pkl")) {
+            return Format.PICKLE;
+        }
+        if (fileName.endsWith(".seg") || fileName.endsWith(".txt")) {
+            return Format.LINE;
+        }
+        // A pickle payload starts after the 4 byte length with PROTO (protocol 2+) or MARK (protocol 0)
+        byte[] head = new byte[5];
+        try (DataInputStream inputStream = new DataInputStream(new FileInputStream(file))) {
+            inputStream.readFully(head);
+        } catch (EOFException e) {
+            return Format.LINE;
+        }
+        int length = ByteBuffer.wrap(head).getInt();
+        boolean isPickle = length > 0 && length <= MAX_PICKLE_LENGTH && (head[4] == (byte) 0x80 || head[4] == '(');
+        return isPickle ? Format.PICKLE : Format.LINE;
+    }
+}
@@ -0,0 +1,167 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.monitor.replay;
+
+
+import bisq.common.app.Log;
+import bisq.common.util.Utilities;
+import bisq.monitor.utils.PropertiesUtil;
+import ch.qos.logback.classic.Level;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.File;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.stream.Collectors;
+
+/**
+ * Backfills Graphite from recorded metric files, e.g. the segments of the GraphiteReporter spool after a longer
+ * outage or a dump of pickle payloads. The metrics keep their original timestamps and are sent as pickle batches over
+ * parallel connections, with the throughput limited by Replay.metricsPerSec so the carbon-caches are not overloaded.
+ */
+@Slf4j
+public class ReplayMain {
+    private static final long PROGRESS_INTERVAL_MS = 10_000;
+
+    /**
+     * @param args --files={comma separated files or directories}; required
+     *             --format=[AUTO | LINE | PICKLE]; optional; default AUTO
+     *             --config={absolute path to monitor property file}; optional; default is the example_monitor.properties
+     */
+    public static void main(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        Arrays.stream(args)
+                .map(arg -> arg.split("=", 2))
+                .filter(tokens -> tokens.length == 2)
+                .forEach(tokens -> options.put(tokens[0], tokens[1]));
+        Properties properties = options.containsKey("--config") ?
+                PropertiesUtil.getProperties(options.get("--config")) :
+                PropertiesUtil.getProperties();
+
+        setup(properties);
+
+        if (!options.containsKey("--files")) {
+            log.error("Missing --files option. Usage: --app=ReplayMain --files=<file or dir,...> " +
+                    "[--format=AUTO|LINE|PICKLE] [--config=<monitor properties>]");
+            System.exit(1);
+        }
+        List<File> files = toFiles(options.get("--files"));
+        MetricsFileReader.Format format = MetricsFileReader.Format.valueOf(
+                options.getOrDefault("--format", "AUTO").toUpperCase());
+
+        List<String> plainAddresses = splitList(properties.getProperty("GraphiteReporter.plain"));
+        List<String> pickleAddresses = splitList(properties.getProperty("Replay.pickle",
+                properties.getProperty("GraphiteReporter.pickle")));
+        int replicationFactor = Integer.parseInt(properties.getProperty("GraphiteReporter.replicationFactor", "1"));
+        int parallelism = Integer.parseInt(properties.getProperty("Replay.parallelism", "4"));
+        double metricsPerSec = Double.parseDouble(properties.getProperty("Replay.metricsPerSec", "20000"));
+        int batchSize = Integer.parseInt(properties.getProperty("Replay.batchSize", "1000"));
+        int maxRetries = Integer.parseInt(properties.getProperty("Replay.maxRetries", "5"));
+
+        // Without matching plain addresses we cannot reproduce the routing of the GraphiteReporter, so the pickle
+        // addresses are used as ring keys. That is only relevant if there is more than one carbon-cache.
+        List<String> ringKeys = plainAddresses.size() == pickleAddresses.size() ? plainAddresses : pickleAddresses;
+        Replayer replayer = new Replayer(ringKeys, pickleAddresses, replicationFactor, parallelism, metricsPerSec,
+                maxRetries).start();
+        MetricsFileReader reader = new MetricsFileReader(batchSize);
+        log.info("Replaying {} file(s) to {} with {} threads at max. {} metrics/sec",
+                files.size(), pickleAddresses, parallelism, metricsPerSec);
+
+        long startTs = System.currentTimeMillis();
+        long numRead = 0;
+        try {
+            long[] lastProgressTs = {startTs};
+            for (File file : files) {
+                numRead += reader.read(file, format, batch -> {
+                    replayer.submit(batch);
+                    long now = System.currentTimeMillis();
+                    if (now - lastProgressTs[0] >= PROGRESS_INTERVAL_MS) {
+                        lastProgressTs[0] = now;
+                        logProgress(replayer, startTs);
+                    }
+                });
+            }
+            replayer.finish();
+        } catch (Exception e) {
+            log.error("Replay failed", e);
+            System.exit(1);
+        }
+
+        logProgress(replayer, startTs);
+        log.info("Replay completed. Read {} metrics, skipped {} invalid entries, sent {}, failed {}",
+                numRead, reader.getNumInvalid(), replayer.getNumSent(), replayer.getNumFailed());
+        System.exit(replayer.getNumFailed() > 0 ? 1 : 0);
+    }
+
+    private static void setup(Properties properties) {
+        Thread.currentThread().setName("ReplayMain");
+
+        String appName = properties.getProperty("Replay.appDir", "bisq-monitor-replay");
+        File appDir = new File(Utilities.getUserDataDir(), appName);
+        if (!appDir.exists() && !appDir.mkdir()) {
+            log.warn("make appDir failed");
+        }
+
+        String logPath = Paths.get(appDir.getPath(), "bisq").toString();
+        Log.setup(logPath);
+        Log.setLevel(Level.INFO);
+        log.info("Log file at: {}.log", logPath);
+    }
+
+    private static void logProgress(Replayer replayer, long startTs) {
+        long elapsedMs = Math.max(1, System.currentTimeMillis() - startTs);
+        long numSent = replayer.getNumSent();
+        log.info("Sent {} metrics in {} sec ({} metrics/sec), failed {}",
+                numSent, elapsedMs / 1000, numSent * 1000 / elapsedMs, replayer.getNumFailed());
+    }
+
+    // Directories are expanded to their files, sorted by name so spool segments get replayed oldest first
+    private static List<File> toFiles(String paths) {
+        List<File> files = new ArrayList<>();
+        for (String path : splitList(paths)) {
+            File file = new File(path);
+            if (file.isDirectory()) {
+                File[] children = file.listFiles(File::isFile);
+                if (children != null) {
+                    Arrays.sort(children);
+                    files.addAll(Arrays.asList(children));
+                }
+            } else if (file.isFile()) {
+                files.add(file);
+            } else {
+                log.warn("Skipping {} as it does not exist", file);
+            }
+        }
+        return files;
+    }
+
+    private static List<String> splitList(String values) {
+        if (values == null) {
+            return List.of();
+        }
+        return Arrays.stream(values.split(","))
+                .map(String::trim)
+                .filter(value -> !value.isEmpty())
+                .collect(Collectors.toList());
+    }
+}
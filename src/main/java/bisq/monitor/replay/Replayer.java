@@ -0,0 +1,215 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.monitor.replay;
+
+import bisq.monitor.reporter.GraphiteConnection;
+import bisq.monitor.reporter.HashRing;
+import bisq.monitor.reporter.Metrics;
+import bisq.monitor.reporter.PickleEncoder;
+import bisq.monitor.reporter.ReporterStats;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Sends batches of metrics with the pickle protocol from parallel sender threads. Each thread has its own connection
+ * to each carbon-cache. Metrics are routed with the same consistent hashing as in the GraphiteReporter, so a replayed
+ * series lands on the carbon-cache which holds its live data.
+ * <p>
+ * The throughput is limited to metricsPerSec over all threads. Submitting blocks if all senders are busy, so the
+ * reader does not run ahead of the network.
+ */
+@Slf4j
+public class Replayer {
+    private static final long RETRY_DELAY_MS = 1000;
+    private static final List<Metrics> END_OF_INPUT = new ArrayList<>();
+
+    private final List<String> pickleAddresses;
+    private final HashRing hashRing;
+    private final int replicationFactor;
+    private final int maxRetries;
+    private final RateLimiter rateLimiter;
+    private final BlockingQueue<List<Metrics>> queue;
+    private final List<Thread> senders = new ArrayList<>();
+    private final ReporterStats stats = new ReporterStats("replay");
+    private final LongAdder numSent = new LongAdder();
+    private final LongAdder numFailed = new LongAdder();
+
+    /**
+     * @param ringKeys        The keys of the carbon-caches on the hash ring. Must be the GraphiteReporter.plain
+     *                        addresses to get the same routing as the GraphiteReporter.
+     * @param pickleAddresses The pickle receivers, at the same index as the ring keys.
+     * @param metricsPerSec   Max. throughput. 0 means unlimited.
+     */
+    public Replayer(List<String> ringKeys,
+                    List<String> pickleAddresses,
+                    int replicationFactor,
+                    int parallelism,
+                    double metricsPerSec,
+                    int maxRetries) {
+        if (ringKeys.isEmpty() || ringKeys.size() != pickleAddresses.size()) {
+            throw new IllegalArgumentException("Ring keys and pickle addresses must have the same number of entries. " +
+                    "ringKeys=" + ringKeys + ", pickleAddresses=" + pickleAddresses);
+        }
+        this.pickleAddresses = pickleAddresses;
+        hashRing = new HashRing(ringKeys, HashRing.DEFAULT_VIRTUAL_NODES);
+        this.replicationFactor = Math.max(1, Math.min(ringKeys.size(), replicationFactor));
+        this.maxRetries = maxRetries;
+        rateLimiter = new RateLimiter(metricsPerSec);
+        queue = new ArrayBlockingQueue<>(2 * parallelism);
+        for (int i = 0; i < parallelism; i++) {
+            Thread thread = new Thread(new Sender(), "Replayer-" + i);
+            thread.setDaemon(true);
+            senders.add(thread);
+        }
+    }
+
+    public Replayer start() {
+        senders.forEach(Thread::start);
+        return this;
+    }
+
+    /**
+     * Blocks until a sender thread is free to take the batch.
+     */
+    public void submit(List<Metrics> batch) throws InterruptedException {
+        queue.put(batch);
+    }
+
+    /**
+     * Waits until all submitted batches have been sent and closes the connections.
+     */
+    public void finish() throws InterruptedException {
+        for (int i = 0; i < senders.size(); i++) {
+            queue.put(END_OF_INPUT);
+        }
+        for (Thread sender : senders) {
+            sender.join();
+        }
+    }
+
+    public long getNumSent() {
+        return numSent.sum();
+    }
+
+    public long getNumFailed() {
+        return numFailed.sum();
+    }
+
+    public ReporterStats getStats() {
+        return stats;
+    }
+
+    private class Sender implements Runnable {
+        private final List<GraphiteConnection> connections = new ArrayList<>();
+        private final PickleEncoder encoder = new PickleEncoder(128 * 1024);
+        private final int[] targets = new int[replicationFactor];
+
+        Sender() {
+            pickleAddresses.forEach(address -> connections.add(new GraphiteConnection(address, stats)));
+        }
+
+        @Override
+        public void run() {
+            try {
+                List<Metrics> batch;
+                while ((batch = queue.take()) != END_OF_INPUT) {
+                    rateLimiter.acquire(batch.size());
+                    if (connections.size() == 1) {
+                        send(0, batch);
+                    } else {
+                        List<List<Metrics>> batchByShard = new ArrayList<>(connections.size());
+                        connections.forEach(connection -> batchByShard.add(new ArrayList<>()));
+                        batch.forEach(metrics -> {
+                            int numTargets = hashRing.getNodes(metrics.getName(), targets);
+                            for (int i = 0; i < numTargets; i++) {
+                                batchByShard.get(targets[i]).add(metrics);
+                            }
+                        });
+                        for (int i = 0; i < connections.size(); i++) {
+                            if (!batchByShard.get(i).isEmpty()) {
+                                send(i, batchByShard.get(i));
+                            }
+                        }
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                connections.forEach(GraphiteConnection::close);
+            }
+        }
+
+        private void send(int shard, List<Metrics> batch) throws InterruptedException {
+            GraphiteConnection connection = connections.get(shard);
+            for (int attempt = 0; attempt <= maxRetries; attempt++) {
+                long ts = System.currentTimeMillis();
+                try {
+                    long numBytes = connection.write(encoder.encode(batch));
+                    stats.onFlush(batch.size(), numBytes, System.currentTimeMillis() - ts);
+                    numSent.add(batch.size());
+                    return;
+                } catch (IOException e) {
+                    stats.onWriteFailure();
+                    log.warn("Writing {} metrics to {} failed (attempt {} of {}): {}",
+                            batch.size(), connection.getAddress(), attempt + 1, maxRetries + 1, e.getMessage());
+                    if (attempt < maxRetries) {
+                        Thread.sleep(RETRY_DELAY_MS << Math.min(attempt, 5));
+                    }
+                }
+            }
+            numFailed.add(batch.size());
+            log.error("Giving up on {} metrics for {}", batch.size(), connection.getAddress());
+        }
+    }
+
+    /**
+     * Spreads the permits evenly over time. Callers reserve their slot under the lock and wait outside of it.
+     */
+    private static class RateLimiter {
+        private final double nanosPerPermit;
+        private long nextFreeNanos = System.nanoTime();
+
+        RateLimiter(double permitsPerSec) {
+            nanosPerPermit = permitsPerSec > 0 ? TimeUnit.SECONDS.toNanos(1) / permitsPerSec : 0;
+        }
+
+        void acquire(int permits) throws InterruptedException {
+            if (nanosPerPermit == 0) {
+                return;
+            }
+            long waitNanos;
+            synchronized (this) {
+                long now = System.nanoTime();
+                // We do not save up permits while idle, otherwise a stalled reader would cause a burst
+                long start = Math.max(now, nextFreeNanos);
+                nextFreeNanos = start + (long) (permits * nanosPerPermit);
+                waitNanos = start - now;
+            }
+            if (waitNanos > 0) {
+                TimeUnit.NANOSECONDS.sleep(waitNanos);
+            }
+        }
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.monitor.reporter;
+
+/**
+ * Chooses how long the GraphiteReporter lingers for more metrics before a flush, based on an EWMA of the observed
+ * arrival rate. If not enough metrics for a pickle batch are expected within maxLingerMs we are in a quiet period
+ * and flush after minLingerMs. Otherwise we wait until a full batch is expected, but at most maxLingerMs.
+ * <p>
+ * The batch size limit is given in bytes and converted to a number of metrics with an EWMA of the encoded size,
+ * so a flush is triggered immediately once that many metrics are pending.
+ */
+public class AdaptiveLinger {
+    private static final double ALPHA = 0.2;
+    // Conservative start value before the first flush. Typical lines are 60-120 bytes.
+    private static final int INITIAL_ITEM_SIZE = 128;
+
+    private final long minLingerMs;
+    private final long maxLingerMs;
+    private final int batchSizeBytes;
+    private final int minItemsForBatching;
+    private final int maxItemsForBatching;
+    private double arrivalRatePerMs;
+    private double avgItemSize = INITIAL_ITEM_SIZE;
+    private long lastFlushTs = System.currentTimeMillis();
+    private volatile long lingerMs;
+    private volatile int batchSizeItems;
+
+    public AdaptiveLinger(long minLingerMs,
+                          long maxLingerMs,
+                          int batchSizeBytes,
+                          int minItemsForBatching,
+                          int maxItemsForBatching) {
+        this.minLingerMs = minLingerMs;
+        this.maxLingerMs = Math.max(minLingerMs, maxLingerMs);
+        this.batchSizeBytes = batchSizeBytes;
+        this.minItemsForBatching = minItemsForBatching;
+        this.maxItemsForBatching = maxItemsForBatching;
+        lingerMs = minLingerMs;
+        batchSizeItems = toBatchSizeItems();
+    }
+
+    /**
+     * Updates the estimates after a flush.
+     *
+     * @param numItems Number of flushed metrics
+     * @param numBytes Estimated encoded size of the flushed metrics
+     */
+    public void onFlush(int numItems, long numBytes) {
+        onFlush(numItems, numBytes, System.currentTimeMillis());
+    }
+
+    synchronized void onFlush(int numItems, long numBytes, long now) {
+        double rate = (double) numItems / Math.max(1, now - lastFlushTs);
+        lastFlushTs = now;
+        arrivalRatePerMs = ALPHA * rate + (1 - ALPHA) * arrivalRatePerMs;
+        if (numItems > 0) {
+            avgItemSize = ALPHA * ((double) numBytes / numItems) + (1 - ALPHA) * avgItemSize;
+        }
+        batchSizeItems = toBatchSizeItems();
+
+        if (arrivalRatePerMs * maxLingerMs < minItemsForBatching) {
+            lingerMs = minLingerMs;
+        } else {
+            long timeToFillBatch = (long) (batchSizeItems / arrivalRatePerMs);
+            lingerMs = Math.max(minLingerMs, Math.min(maxLingerMs, timeToFillBatch));
+        }
+    }
+
+    public long getLingerMs() {
+        return lingerMs;
+    }
+
+    public int getBatchSizeItems() {
+        return batchSizeItems;
+    }
+
+    public synchronized double getArrivalRatePerSec() {
+        return arrivalRatePerMs * 1000;
+    }
+
+    private int toBatchSizeItems() {
+        return (int) Math.max(1, Math.min(maxItemsForBatching, batchSizeBytes / avgItemSize));
+    }
+}
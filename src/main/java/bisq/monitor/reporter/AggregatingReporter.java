@@ -0,0 +1,191 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.monitor.reporter;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Pre-aggregates numeric metrics before they get passed to the delegate reporter.
+ * For metrics with a path starting with one of the configured prefixes we keep min, max, sum, count and last value
+ * per path over a time window. At window close we report them as [path].min, [path].max, [path].sum, [path].count
+ * and [path].last with the window close time as timestamp. All other metrics are passed through unchanged.
+ * This allows probing more often without multiplying the number of datapoints sent to and stored at Graphite.
+ * <p>
+ * Matching walks up the parents of a name, so nothing is cached per name and dynamic names stay collectable. The
+ * aggregate of a path is removed once it stayed empty for a whole window.
+ */
+@Slf4j
+public class AggregatingReporter extends Reporter {
+    private static final long SHUT_DOWN_TIMEOUT_MS = 2000;
+
+    private final Reporter delegate;
+    // Names are interned, so the set of prefix names can be matched by identity
+    private final Set<MetricName> prefixes;
+    private final Map<MetricName, Aggregate> aggregates = new ConcurrentHashMap<>();
+    private final ReporterScheduler scheduler = new ReporterScheduler("AggregatingReporter").start();
+
+    public AggregatingReporter(Reporter delegate, Properties properties) {
+        this.delegate = delegate;
+        prefixes = Stream.of(properties.getProperty("AggregatingReporter.paths", "").split(","))
+                .map(String::trim)
+                .filter(prefix -> !prefix.isEmpty())
+                .map(MetricName.ROOT::resolve)
+                .collect(Collectors.toSet());
+        long windowSec = Long.parseLong(properties.getProperty("AggregatingReporter.windowSec", "60"));
+        scheduler.runPeriodically(this::closeWindow, windowSec, TimeUnit.SECONDS);
+    }
+
+    @Override
+    public void report(Metrics metrics) {
+        if (isAggregated(metrics)) {
+            add(metrics);
+        } else {
+            delegate.report(metrics);
+        }
+    }
+
+    @Override
+    public void report(Collection<Metrics> metrics) {
+        List<Metrics> passThrough = new ArrayList<>(metrics.size());
+        metrics.forEach(item -> {
+            if (isAggregated(item)) {
+                add(item);
+            } else {
+                passThrough.add(item);
+            }
+        });
+        if (!passThrough.isEmpty()) {
+            delegate.report(passThrough);
+        }
+    }
+
+    @Override
+    public void shutDown() {
+        scheduler.shutDown(this::closeWindow, SHUT_DOWN_TIMEOUT_MS);
+        delegate.shutDown();
+    }
+
+    private boolean isAggregated(Metrics metrics) {
+        if (metrics.getType() == Metrics.Type.STRING) {
+            return false;
+        }
+        for (MetricName name = metrics.getName(); name != null; name = name.getParent()) {
+            if (prefixes.contains(name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void add(Metrics metrics) {
+        double value = metrics.getType() == Metrics.Type.LONG ? metrics.getLongValue() : metrics.getDoubleValue();
+        while (!aggregates.computeIfAbsent(metrics.getName(), Aggregate::new).add(value)) {
+            // Got removed as idle by closeWindow in the meantime. We retry with a new one.
+            Thread.onSpinWait();
+        }
+    }
+
+    // Runs on the scheduler thread
+    void closeWindow() {
+        long timeStampInSec = System.currentTimeMillis() / 1000;
+        List<Metrics> metrics = new ArrayList<>();
+        aggregates.forEach((name, aggregate) -> {
+            if (!aggregate.drainTo(metrics, timeStampInSec)) {
+                aggregates.remove(name, aggregate);
+            }
+        });
+        if (!metrics.isEmpty()) {
+            delegate.report(metrics);
+        }
+    }
+
+    int getNumAggregates() {
+        return aggregates.size();
+    }
+
+    private static class Aggregate {
+        private final MetricName minName;
+        private final MetricName maxName;
+        private final MetricName sumName;
+        private final MetricName countName;
+        private final MetricName lastName;
+        private double min;
+        private double max;
+        private double sum;
+        private long count;
+        private double last;
+        private boolean removed;
+
+        private Aggregate(MetricName name) {
+            minName = name.child("min");
+            maxName = name.child("max");
+            sumName = name.child("sum");
+            countName = name.child("count");
+            lastName = name.child("last");
+        }
+
+        /**
+         * @return false if the aggregate got removed, so the value has to be added to a new one
+         */
+        private synchronized boolean add(double value) {
+            if (removed) {
+                return false;
+            }
+            if (count == 0) {
+                min = value;
+                max = value;
+            } else {
+                min = Math.min(min, value);
+                max = Math.max(max, value);
+            }
+            sum += value;
+            count++;
+            last = value;
+            return true;
+        }
+
+        /**
+         * @return false if there was no value in the window. The aggregate is then marked as removed.
+         */
+        private synchronized boolean drainTo(List<Metrics> metrics, long timeStampInSec) {
+            if (count == 0) {
+                removed = true;
+                return false;
+            }
+            metrics.add(new Metrics(minName, min, timeStampInSec));
+            metrics.add(new Metrics(maxName, max, timeStampInSec));
+            metrics.add(new Metrics(sumName, sum, timeStampInSec));
+            metrics.add(new Metrics(countName, count, timeStampInSec));
+            metrics.add(new Metrics(lastName, last, timeStampInSec));
+            count = 0;
+            sum = 0;
+            return true;
+        }
+    }
+}
@@ -17,18 +17,11 @@
 
 package bisq.monitor.reporter;
 
-import bisq.monitor.utils.Util;
 import lombok.extern.slf4j.Slf4j;
 
-import java.io.OutputStream;
-import java.io.OutputStreamWriter;
-import java.io.Writer;
-import java.net.Socket;
-import java.nio.ByteBuffer;
-import java.nio.charset.StandardCharsets;
 import java.util.Collection;
-import java.util.Properties;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
 
 /**
  * Report to graphite server using the pickle protocol
@@ -39,77 +32,38 @@ import java.util.concurrent.CompletableFuture;
  */
 @Slf4j
 public class BatchWriter {
-    private static final char APPEND = 'a';
-    private static final char LIST = 'l';
-    private static final char LONG = 'L';
-    private static final char MARK = '(';
-    private static final char STOP = '.';
-    private static final char STRING = 'S';
-    private static final char TUPLE = 't';
-    private static final char QUOTE = '\'';
-    private static final char LF = '\n';
-
-    private final String host;
-    private final int port;
-
-    public BatchWriter(Properties properties) {
-        String[] tokens = properties.getProperty("GraphiteReporter.pickle").split(":");
-        host = tokens[0];
-        port = Integer.parseInt(tokens[1]);
+    private final GraphiteConnection connection;
+    private final ExecutorService executor;
+    private final ReporterStats stats;
+    // Only used on the sender thread
+    private final PickleEncoder encoder = new PickleEncoder(128 * 1024);
+
+    /**
+     * @param address host:port of the carbon pickle receiver
+     */
+    public BatchWriter(String address, ExecutorService executor, ReporterStats stats, long writeTimeoutMs) {
+        connection = new GraphiteConnection(address, stats, writeTimeoutMs);
+        this.executor = executor;
+        this.stats = stats;
     }
 
     // https://graphite.readthedocs.io/en/latest/feeding-carbon.html
     public CompletableFuture<Boolean> report(Collection<Metrics> metricsCollection) {
         return CompletableFuture.supplyAsync(() -> {
-            try (Socket socket = new Socket(host, port);
-                 OutputStream outputStream = socket.getOutputStream()) {
-                String payload = serializeMetricItems(metricsCollection);
-                int length = payload.length();
-                byte[] header = ByteBuffer.allocate(4).putInt(length).array();
-                outputStream.write(header);
-                Writer writer = new OutputStreamWriter(outputStream, StandardCharsets.UTF_8);
-                writer.write(payload);
-                writer.flush();
+            long ts = System.currentTimeMillis();
+            try {
+                long numBytes = connection.write(encoder.encode(metricsCollection));
+                stats.onFlush(metricsCollection.size(), numBytes, System.currentTimeMillis() - ts);
                 return true;
             } catch (Throwable e) {
+                stats.onWriteFailure();
                 log.error("Error writing to Graphite: {}", e.getMessage());
                 return false;
             }
-        }, Util.newCachedThreadPool(20));
+        }, executor);
     }
 
-    private static String serializeMetricItems(Collection<Metrics> metrics) {
-        StringBuilder pickled = new StringBuilder(metrics.size() * 75);
-        pickled.append(MARK).append(LIST);
-
-        for (Metrics tuple : metrics) {
-            // begin outer tuple
-            pickled.append(MARK);
-
-            // the metric name is a string.
-            pickled.append(STRING)
-                    // the single quotes are to match python's repr("abcd")
-                    .append(QUOTE).append(tuple.getPath()).append(QUOTE).append(LF);
-
-            // begin the inner tuple
-            pickled.append(MARK);
-
-            // timestamp is a long
-            pickled.append(LONG).append(tuple.getTimeStampInSec())
-                    // the trailing L is to match python's repr(long(1234))             
-                    .append(LONG).append(LF);
-
-            // and the value is a string.
-            pickled.append(STRING).append(QUOTE).append(tuple.getValue()).append(QUOTE).append(LF);
-
-            pickled.append(TUPLE) // end inner tuple
-                    .append(TUPLE); // end outer tuple
-
-            pickled.append(APPEND);
-        }
-
-        // every pickle ends with STOP
-        pickled.append(STOP);
-        return pickled.toString();
+    public void shutDown() {
+        CompletableFuture.runAsync(connection::close, executor);
     }
 }
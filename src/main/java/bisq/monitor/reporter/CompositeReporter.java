@@ -0,0 +1,189 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.monitor.reporter;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.Collectors;
+
+/**
+ * Fans out all metrics to multiple reporters. Each sink gets its own bounded queue and sender thread, so a slow or
+ * dead sink cannot block the caller or the other sinks. If a queue is full the overflow policy of the queue applies,
+ * which must be DROP_OLDEST or DROP_NEWEST. BLOCK is rejected, as a stalled sink would block the shared caller.
+ * <p>
+ * Per sink we report monitor.reporter.composite.[sink].queueDepth, .lagMs (time since the queue was empty the last
+ * time) and .dropped at each stats interval. The sink is named after the class of its reporter, with the position in
+ * the list of reporters appended if several reporters have the same class.
+ */
+@Slf4j
+public class CompositeReporter extends Reporter {
+    private static final int MAX_BATCH_SIZE = 1000;
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+    private static final long SHUT_DOWN_TIMEOUT_MS = 2000;
+    private static final MetricName COMPOSITE = MetricName.ROOT.child("monitor").child("reporter").child("composite");
+
+    private final List<Sink> sinks;
+    private final ReporterScheduler scheduler = new ReporterScheduler("CompositeReporter").start();
+
+    public CompositeReporter(List<Reporter> reporters, Properties properties) {
+        int queueCapacity = Integer.parseInt(properties.getProperty("CompositeReporter.queueCapacity", "65536"));
+        RingBuffer.OverflowPolicy overflowPolicy = RingBuffer.OverflowPolicy.valueOf(
+                properties.getProperty("CompositeReporter.overflowPolicy", "DROP_OLDEST").toUpperCase());
+        if (overflowPolicy == RingBuffer.OverflowPolicy.BLOCK) {
+            throw new IllegalArgumentException("CompositeReporter.overflowPolicy BLOCK is not supported, as one " +
+                    "stalled sink would block the caller and with it all other sinks. Use DROP_OLDEST or DROP_NEWEST.");
+        }
+        List<String> classNames = reporters.stream()
+                .map(reporter -> reporter.getClass().getSimpleName().isEmpty() ?
+                        "Sink" :
+                        reporter.getClass().getSimpleName())
+                .collect(Collectors.toList());
+        sinks = new ArrayList<>(reporters.size());
+        for (int i = 0; i < reporters.size(); i++) {
+            String name = classNames.get(i);
+            if (Collections.frequency(classNames, name) > 1) {
+                name += "-" + i;
+            }
+            sinks.add(new Sink(name, reporters.get(i), new RingBuffer<>(queueCapacity, overflowPolicy, 0)));
+        }
+        sinks.forEach(Sink::start);
+        long statsIntervalSec = Long.parseLong(properties.getProperty("CompositeReporter.statsIntervalSec", "60"));
+        scheduler.runPeriodically(this::reportStats, statsIntervalSec, TimeUnit.SECONDS);
+    }
+
+    @Override
+    public void report(Metrics metrics) {
+        sinks.forEach(sink -> sink.offer(metrics));
+    }
+
+    @Override
+    public void report(Collection<Metrics> metrics) {
+        sinks.forEach(sink -> sink.offerAll(metrics));
+    }
+
+    @Override
+    public void shutDown() {
+        scheduler.shutDown(null, SHUT_DOWN_TIMEOUT_MS);
+        long deadline = System.currentTimeMillis() + SHUT_DOWN_TIMEOUT_MS;
+        sinks.forEach(sink -> sink.stop(deadline));
+        sinks.forEach(sink -> sink.reporter.shutDown());
+    }
+
+    List<String> getSinkNames() {
+        return sinks.stream().map(sink -> sink.simpleName).collect(Collectors.toList());
+    }
+
+    private void reportStats() {
+        long now = System.currentTimeMillis();
+        List<Metrics> metrics = new ArrayList<>(sinks.size() * 3);
+        sinks.forEach(sink -> {
+            metrics.add(new Metrics(sink.name.child("queueDepth"), sink.queue.size(), now / 1000));
+            metrics.add(new Metrics(sink.name.child("lagMs"), sink.getLag(now), now / 1000));
+            metrics.add(new Metrics(sink.name.child("dropped"), sink.queue.getDroppedCount(), now / 1000));
+        });
+        report(metrics);
+    }
+
+    private static class Sink implements Runnable {
+        private final Reporter reporter;
+        private final RingBuffer<Metrics> queue;
+        private final String simpleName;
+        private final MetricName name;
+        private final Thread thread;
+        private volatile boolean stopped;
+        private volatile boolean idle;
+        private volatile long lastEmptyTs = System.currentTimeMillis();
+
+        private Sink(String simpleName, Reporter reporter, RingBuffer<Metrics> queue) {
+            this.simpleName = simpleName;
+            this.reporter = reporter;
+            this.queue = queue;
+            name = COMPOSITE.child(simpleName);
+            thread = new Thread(this, "CompositeReporter-" + simpleName);
+            thread.setDaemon(true);
+        }
+
+        private void start() {
+            thread.start();
+        }
+
+        private void offer(Metrics metrics) {
+            queue.offer(metrics);
+            wakeUp();
+        }
+
+        private void offerAll(Collection<Metrics> metrics) {
+            queue.offerAll(metrics);
+            wakeUp();
+        }
+
+        private void wakeUp() {
+            if (idle) {
+                LockSupport.unpark(thread);
+            }
+        }
+
+        @Override
+        public void run() {
+            while (!stopped || !queue.isEmpty()) {
+                // The reporter might keep a reference to the batch, so we do not reuse it
+                List<Metrics> batch = new ArrayList<>(Math.min(MAX_BATCH_SIZE, Math.max(1, queue.size())));
+                if (queue.drainTo(batch, MAX_BATCH_SIZE) == 0) {
+                    lastEmptyTs = System.currentTimeMillis();
+                    if (stopped) {
+                        return;
+                    }
+                    idle = true;
+                    if (queue.isEmpty()) {
+                        LockSupport.parkNanos(IDLE_PARK_NANOS);
+                    }
+                    idle = false;
+                    continue;
+                }
+                try {
+                    reporter.report(batch);
+                } catch (Throwable t) {
+                    log.error("Error at reporting to {}: {}", simpleName, t.getMessage());
+                }
+            }
+        }
+
+        private long getLag(long now) {
+            return queue.isEmpty() ? 0 : now - lastEmptyTs;
+        }
+
+        private void stop(long deadline) {
+            stopped = true;
+            LockSupport.unpark(thread);
+            try {
+                thread.join(Math.max(1, deadline - System.currentTimeMillis()));
+            } catch (InterruptedException ignore) {
+            }
+            if (thread.isAlive()) {
+                log.warn("{} could not deliver {} metrics before shutdown", thread.getName(), queue.size());
+            }
+        }
+    }
+}
@@ -19,7 +19,7 @@ package bisq.monitor.reporter;
 
 import lombok.extern.slf4j.Slf4j;
 
-import java.util.Set;
+import java.util.Collection;
 
 @Slf4j
 public class ConsoleReporter extends Reporter {
@@ -29,7 +29,7 @@ public class ConsoleReporter extends Reporter {
     }
 
     @Override
-    public void report(Set<Metrics> metrics) {
+    public void report(Collection<Metrics> metrics) {
         metrics.forEach(this::report);
     }
 }
@@ -0,0 +1,187 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.monitor.reporter;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Long-lived connection to a carbon endpoint. The socket is kept open between writes and gets re-established after
+ * a failure with an exponential backoff, so we do not open a new (Tor) stream for each metric.
+ * Writes are non-blocking with a deadline, so a stalled tunnel fails the write instead of blocking the sender thread.
+ * Not thread safe. All calls are expected from the sender thread of the owning writer.
+ */
+@Slf4j
+public class GraphiteConnection {
+    private static final int CONNECT_TIMEOUT_MS = (int) TimeUnit.SECONDS.toMillis(10);
+    private static final long MIN_BACKOFF_MS = 500;
+    private static final long MAX_BACKOFF_MS = TimeUnit.MINUTES.toMillis(1);
+    public static final long DEFAULT_WRITE_TIMEOUT_MS = TimeUnit.SECONDS.toMillis(30);
+
+    private final String host;
+    private final int port;
+    private final ReporterStats stats;
+    private final long writeTimeoutMs;
+    private SocketChannel channel;
+    private Selector selector;
+    private long backoffMs;
+    private long nextConnectAttemptTs;
+
+    public GraphiteConnection(String hostAndPort, ReporterStats stats) {
+        this(hostAndPort, stats, DEFAULT_WRITE_TIMEOUT_MS);
+    }
+
+    /**
+     * @param writeTimeoutMs Max. time a single write may take before it fails and the connection gets closed
+     */
+    public GraphiteConnection(String hostAndPort, ReporterStats stats, long writeTimeoutMs) {
+        String[] tokens = hostAndPort.split(":");
+        host = tokens[0];
+        port = Integer.parseInt(tokens[1]);
+        this.stats = stats;
+        this.writeTimeoutMs = writeTimeoutMs;
+    }
+
+    /**
+     * Writes all remaining bytes of the given buffers with a gathering write. If a reused connection turns out to be
+     * broken we reconnect and retry once. Carbon overwrites datapoints with the same timestamp, so a partially
+     * written payload which gets sent again does not cause wrong data. A timed out write is not retried, as the
+     * tunnel is most likely stalled and retrying would block the sender thread for another writeTimeoutMs.
+     *
+     * @return the number of bytes written
+     */
+    public long write(ByteBuffer... buffers) throws IOException {
+        int[] positions = new int[buffers.length];
+        for (int i = 0; i < buffers.length; i++) {
+            positions[i] = buffers[i].position();
+        }
+        boolean reused = isConnected();
+        try {
+            return doWrite(buffers);
+        } catch (IOException e) {
+            close();
+            if (!reused || e instanceof SocketTimeoutException) {
+                throw e;
+            }
+            log.info("Connection to {}:{} was broken ({}). We reconnect and retry.", host, port, e.getMessage());
+            for (int i = 0; i < buffers.length; i++) {
+                buffers[i].position(positions[i]);
+            }
+            return doWrite(buffers);
+        }
+    }
+
+    public boolean isConnected() {
+        return channel != null && channel.isConnected();
+    }
+
+    public void close() {
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException ignore) {
+            }
+            channel = null;
+        }
+        if (selector != null) {
+            try {
+                selector.close();
+            } catch (IOException ignore) {
+            }
+            selector = null;
+        }
+    }
+
+    public String getAddress() {
+        return host + ":" + port;
+    }
+
+    private long doWrite(ByteBuffer... buffers) throws IOException {
+        connectIfNeeded();
+        try {
+            long deadline = System.currentTimeMillis() + writeTimeoutMs;
+            long numBytes = 0;
+            while (hasRemaining(buffers)) {
+                long written = channel.write(buffers);
+                if (written > 0) {
+                    numBytes += written;
+                    continue;
+                }
+                // Socket send buffer is full. We wait until it drains, but not beyond the deadline.
+                long remainingMs = deadline - System.currentTimeMillis();
+                if (remainingMs <= 0) {
+                    throw new SocketTimeoutException("Write to " + getAddress() + " timed out after " +
+                            writeTimeoutMs + " ms");
+                }
+                selector.select(remainingMs);
+                selector.selectedKeys().clear();
+            }
+            return numBytes;
+        } catch (IOException e) {
+            close();
+            throw e;
+        }
+    }
+
+    private void connectIfNeeded() throws IOException {
+        if (isConnected()) {
+            return;
+        }
+
+        long now = System.currentTimeMillis();
+        if (now < nextConnectAttemptTs) {
+            throw new IOException("Reconnect to " + getAddress() + " deferred for " + (nextConnectAttemptTs - now) + " ms");
+        }
+
+        try {
+            channel = SocketChannel.open();
+            channel.socket().setKeepAlive(true);
+            channel.socket().setTcpNoDelay(true);
+            channel.socket().connect(new InetSocketAddress(host, port), CONNECT_TIMEOUT_MS);
+            channel.configureBlocking(false);
+            selector = Selector.open();
+            channel.register(selector, SelectionKey.OP_WRITE);
+            backoffMs = 0;
+            nextConnectAttemptTs = 0;
+            log.info("Connected to Graphite at {}", getAddress());
+        } catch (IOException e) {
+            close();
+            stats.onConnectFailure();
+            backoffMs = backoffMs == 0 ? MIN_BACKOFF_MS : Math.min(MAX_BACKOFF_MS, backoffMs * 2);
+            nextConnectAttemptTs = now + backoffMs;
+            throw e;
+        }
+    }
+
+    private static boolean hasRemaining(ByteBuffer[] buffers) {
+        for (ByteBuffer buffer : buffers) {
+            if (buffer.hasRemaining()) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -17,76 +17,215 @@
 
 package bisq.monitor.reporter;
 
-import bisq.common.Timer;
-import bisq.common.UserThread;
 import lombok.extern.slf4j.Slf4j;
-import org.eclipse.jetty.util.ConcurrentHashSet;
 
-import java.util.HashSet;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
 import java.util.Properties;
-import java.util.Set;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.stream.Collectors;
 
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Reports to one or more Carbon destinations. GraphiteReporter.plain and GraphiteReporter.pickle take comma separated
+ * lists of host:port, where the entries at the same index are the receivers of the same carbon-cache. Metric paths are
+ * distributed over the destinations by consistent hashing, so a series always lands on the same carbon-cache. With a
+ * replicationFactor > 1 each metric is sent to that many distinct destinations.
+ * <p>
+ * Pending metrics are flushed when the batch size limit is reached or after the linger time chosen by
+ * {@link AdaptiveLinger}.
+ */
 @Slf4j
 public class GraphiteReporter extends Reporter {
-    private final LineWriter lineWriter;
-    private final BatchWriter batchWriter;
-    private final Set<Metrics> pending = new ConcurrentHashSet<>();
-    private final int delayForBatchingSec;
+    private static final long SHUT_DOWN_TIMEOUT_MS = 5000;
+
+    private final List<GraphiteShard> shards;
+    private final HashRing hashRing;
+    private final int replicationFactor;
+    private final RingBuffer<Metrics> pending;
     private final int minItemsForBatching;
-    private final int maxItemsForBatching;
-    private Timer timer;
+    private final AdaptiveLinger linger;
+    private final ReporterStats stats = new ReporterStats("graphite");
+    private final MetricName statsName = MetricName.ROOT.child("monitor").child("reporter").child("graphite");
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+    private final AtomicBoolean flushNowScheduled = new AtomicBoolean();
+    // Flushes run on our own thread, not on the UserThread which is shared with Bisq core
+    private final ReporterScheduler scheduler = new ReporterScheduler("GraphiteReporter-scheduler").start();
+    private volatile ScheduledFuture<?> timer;
+    private ScheduledFuture<?> statsTimer;
+    private long lastDroppedCount;
 
-    public GraphiteReporter(Properties properties) {
+    /**
+     * @param appDir Directory used for the spool. If null spooling is disabled.
+     */
+    public GraphiteReporter(Properties properties, File appDir) {
         super();
-        lineWriter = new LineWriter(properties);
-        batchWriter = new BatchWriter(properties);
-        delayForBatchingSec = Integer.parseInt(properties.getProperty("GraphiteReporter.delayForBatchingSec", "1"));
         minItemsForBatching = Integer.parseInt(properties.getProperty("GraphiteReporter.minItemsForBatching", "5"));
-        maxItemsForBatching = Integer.parseInt(properties.getProperty("GraphiteReporter.maxItemsForBatching", "1000"));
-    }
+        int maxItemsForBatching = Integer.parseInt(properties.getProperty("GraphiteReporter.maxItemsForBatching", "1000"));
+        long minLingerMs = Long.parseLong(properties.getProperty("GraphiteReporter.minLingerMs", "5"));
+        // delayForBatchingSec is the former fixed linger time
+        long maxLingerMs = Long.parseLong(properties.getProperty("GraphiteReporter.maxLingerMs",
+                String.valueOf(1000 * Long.parseLong(properties.getProperty("GraphiteReporter.delayForBatchingSec", "1")))));
+        int batchSizeBytes = Integer.parseInt(properties.getProperty("GraphiteReporter.batchSizeBytes", "65536"));
+        linger = new AdaptiveLinger(minLingerMs, maxLingerMs, batchSizeBytes, minItemsForBatching, maxItemsForBatching);
+        int queueCapacity = Integer.parseInt(properties.getProperty("GraphiteReporter.queueCapacity", "65536"));
+        RingBuffer.OverflowPolicy overflowPolicy = RingBuffer.OverflowPolicy.valueOf(
+                properties.getProperty("GraphiteReporter.overflowPolicy", "DROP_OLDEST").toUpperCase());
+        long blockTimeoutMs = Long.parseLong(properties.getProperty("GraphiteReporter.blockTimeoutMs", "1000"));
+        pending = new RingBuffer<>(queueCapacity, overflowPolicy, blockTimeoutMs);
 
-    public void report(Metrics metrics) {
-        pending.add(metrics);
+        List<String> plainAddresses = parseAddresses(properties.getProperty("GraphiteReporter.plain"));
+        List<String> pickleAddresses = parseAddresses(properties.getProperty("GraphiteReporter.pickle"));
+        if (plainAddresses.isEmpty() || plainAddresses.size() != pickleAddresses.size()) {
+            throw new IllegalArgumentException("GraphiteReporter.plain and GraphiteReporter.pickle must list the same " +
+                    "number of host:port entries. plain=" + plainAddresses + ", pickle=" + pickleAddresses);
+        }
+        int numShards = plainAddresses.size();
+        int configuredReplicationFactor = Integer.parseInt(
+                properties.getProperty("GraphiteReporter.replicationFactor", "1"));
+        checkArgument(configuredReplicationFactor >= 1,
+                "GraphiteReporter.replicationFactor must be at least 1. replicationFactor=%s",
+                configuredReplicationFactor);
+        replicationFactor = Math.min(numShards, configuredReplicationFactor);
 
-        if (timer == null) {
-            // We wait a bit if more items arrive, so we can batch them
-            timer = UserThread.runAfter(this::sendPending, delayForBatchingSec);
+        boolean spoolEnabled = appDir != null &&
+                "true".equals(properties.getProperty("GraphiteReporter.spool.enabled", "false"));
+        int segmentSize = Integer.parseInt(properties.getProperty("GraphiteReporter.spool.segmentSizeKb", "4096")) * 1024;
+        long maxSpoolSize = Long.parseLong(properties.getProperty("GraphiteReporter.spool.maxSizeMb", "256")) * 1024 * 1024;
+        int replayBytesPerSec = Integer.parseInt(properties.getProperty("GraphiteReporter.spool.replayBytesPerSec", "65536"));
+        long writeTimeoutMs = TimeUnit.SECONDS.toMillis(
+                Long.parseLong(properties.getProperty("GraphiteReporter.writeTimeoutSec", "30")));
+        shards = new ArrayList<>(numShards);
+        for (int i = 0; i < numShards; i++) {
+            // A single destination keeps the spool directory used before sharding got added
+            File spoolDir = !spoolEnabled ? null :
+                    new File(appDir, numShards == 1 ? "graphite-spool" : "graphite-spool-" + i);
+            shards.add(new GraphiteShard(plainAddresses.get(i), pickleAddresses.get(i), stats, scheduler,
+                    writeTimeoutMs, spoolDir, segmentSize, maxSpoolSize, replayBytesPerSec));
+        }
+        hashRing = new HashRing(plainAddresses, HashRing.DEFAULT_VIRTUAL_NODES);
+
+        long statsIntervalSec = Long.parseLong(properties.getProperty("GraphiteReporter.statsIntervalSec", "60"));
+        if (statsIntervalSec > 0) {
+            statsTimer = scheduler.runPeriodically(this::reportStats, statsIntervalSec, TimeUnit.SECONDS);
         }
     }
 
+    public void report(Metrics metrics) {
+        pending.offer(metrics);
+        scheduleFlush();
+    }
+
     @Override
-    public void report(Set<Metrics> metrics) {
-        pending.addAll(metrics);
+    public void report(Collection<Metrics> metrics) {
+        pending.offerAll(metrics);
+        scheduleFlush();
+    }
 
-        sendPending();
+    private void scheduleFlush() {
+        if (pending.size() >= linger.getBatchSizeItems()) {
+            if (flushNowScheduled.compareAndSet(false, true)) {
+                scheduler.execute(this::sendPending);
+            }
+        } else if (flushScheduled.compareAndSet(false, true)) {
+            // We wait a bit if more items arrive, so we can batch them
+            timer = scheduler.runAfter(this::sendPending, linger.getLingerMs(), TimeUnit.MILLISECONDS);
+        }
     }
 
+    // Runs on the scheduler thread
     private void sendPending() {
-        Set<Metrics> batch = pending.stream().limit(maxItemsForBatching).collect(Collectors.toSet());
-        Set<Metrics> candidates = new HashSet<>(batch);
-        pending.removeAll(batch);
-
-        if (candidates.size() >= minItemsForBatching) {
-           batchWriter.report(candidates);
-        } else {
-            candidates.forEach(lineWriter::report);
-        }
+        flushNowScheduled.set(false);
         if (timer != null) {
-            timer.stop();
+            timer.cancel(false);
             timer = null;
         }
+        flushScheduled.set(false);
+
+        int batchSizeItems = linger.getBatchSizeItems();
+        List<Metrics> candidates = new ArrayList<>(Math.min(batchSizeItems, pending.size()));
+        pending.drainTo(candidates, batchSizeItems);
+        long numBytes = 0;
+        for (Metrics metrics : candidates) {
+            numBytes += MetricsEncoder.getMaxLineLength(metrics);
+        }
+        linger.onFlush(candidates.size(), numBytes);
+
+        long droppedCount = pending.getDroppedCount();
+        if (droppedCount > lastDroppedCount) {
+            log.warn("Pending queue overflow. {} metrics got dropped since last flush. Total dropped: {}",
+                    droppedCount - lastDroppedCount, droppedCount);
+            lastDroppedCount = droppedCount;
+        }
+
+        if (shards.size() == 1) {
+            shards.get(0).send(candidates, minItemsForBatching);
+        } else if (!candidates.isEmpty()) {
+            List<List<Metrics>> candidatesByShard = new ArrayList<>(shards.size());
+            shards.forEach(shard -> candidatesByShard.add(new ArrayList<>()));
+            int[] targets = new int[replicationFactor];
+            candidates.forEach(metrics -> {
+                int numTargets = hashRing.getNodes(metrics.getName(), targets);
+                for (int i = 0; i < numTargets; i++) {
+                    candidatesByShard.get(targets[i]).add(metrics);
+                }
+            });
+            for (int i = 0; i < shards.size(); i++) {
+                shards.get(i).send(candidatesByShard.get(i), minItemsForBatching);
+            }
+        }
 
         if (!pending.isEmpty()) {
-            timer = UserThread.runAfter(this::sendPending, delayForBatchingSec);
+            scheduleFlush();
         }
     }
 
+    // We report our own health through our own pipeline, so it is visible next to the data points which go missing
+    private void reportStats() {
+        List<Metrics> metrics = new ArrayList<>();
+        stats.addTo(metrics, pending.size(), pending.getDroppedCount());
+        long timeStampInSec = System.currentTimeMillis() / 1000;
+        metrics.add(new Metrics(statsName.child("lingerMs"), linger.getLingerMs(), timeStampInSec));
+        metrics.add(new Metrics(statsName.child("batchSizeItems"), linger.getBatchSizeItems(), timeStampInSec));
+        metrics.add(new Metrics(statsName.child("arrivalRatePerSec"), linger.getArrivalRatePerSec(), timeStampInSec));
+        report(metrics);
+    }
+
+    public long getDroppedCount() {
+        return pending.getDroppedCount();
+    }
+
     @Override
     public void shutDown() {
-        if (timer != null) {
-            timer.stop();
-            timer = null;
+        long deadline = System.currentTimeMillis() + SHUT_DOWN_TIMEOUT_MS;
+        if (statsTimer != null) {
+            statsTimer.cancel(false);
+            statsTimer = null;
+        }
+        // We flush what is pending, then let the shards complete their writes
+        scheduler.shutDown(this::drainPending, SHUT_DOWN_TIMEOUT_MS);
+        shards.forEach(shard -> shard.shutDown(deadline));
+    }
+
+    private void drainPending() {
+        while (!pending.isEmpty()) {
+            sendPending();
+        }
+    }
+
+    private static List<String> parseAddresses(String addresses) {
+        if (addresses == null) {
+            return List.of();
         }
+        return Arrays.stream(addresses.split(","))
+                .map(String::trim)
+                .filter(address -> !address.isEmpty())
+                .collect(Collectors.toList());
     }
 }
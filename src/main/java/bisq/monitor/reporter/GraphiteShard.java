@@ -0,0 +1,158 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.monitor.reporter;
+
+import bisq.common.util.SingleThreadExecutorUtils;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One Carbon destination of the GraphiteReporter: a plaintext and a pickle connection to the same carbon-cache,
+ * an own sender thread, so shards are written in parallel, and an optional spool for the times it is not reachable.
+ */
+@Slf4j
+public class GraphiteShard {
+    @Getter
+    private final String name;
+    // Single sender thread shared by both writers. Writes are cheap as the connections are kept open.
+    private final ExecutorService executor;
+    private final LineWriter lineWriter;
+    private final BatchWriter batchWriter;
+    // Only accessed from the sender thread. Null if spooling is disabled.
+    private final MetricsSpool spool;
+    // Writes which have not been checked for failure yet, with their metrics to spool. In the order of sending, so
+    // the spool keeps that order at shutdown as well.
+    private final Map<CompletableFuture<Boolean>, List<Metrics>> pendingWrites =
+            Collections.synchronizedMap(new LinkedHashMap<>());
+    private final int replayBytesPerSec;
+    private ScheduledFuture<?> replayTimer;
+
+    /**
+     * @param spoolDir Directory used for the spool. If null spooling is disabled.
+     */
+    public GraphiteShard(String plainAddress,
+                         String pickleAddress,
+                         ReporterStats stats,
+                         ReporterScheduler scheduler,
+                         long writeTimeoutMs,
+                         File spoolDir,
+                         int segmentSize,
+                         long maxSpoolSize,
+                         int replayBytesPerSec) {
+        name = plainAddress;
+        executor = SingleThreadExecutorUtils.getSingleThreadExecutor("GraphiteReporter-" + plainAddress);
+        lineWriter = new LineWriter(plainAddress, executor, stats, writeTimeoutMs);
+        batchWriter = new BatchWriter(pickleAddress, executor, stats, writeTimeoutMs);
+        this.replayBytesPerSec = replayBytesPerSec;
+        if (spoolDir != null) {
+            spool = new MetricsSpool(spoolDir, segmentSize, maxSpoolSize);
+            replayTimer = scheduler.runPeriodically(() -> executor.execute(this::replaySpool), 1, TimeUnit.SECONDS);
+        } else {
+            spool = null;
+        }
+    }
+
+    public void send(List<Metrics> metrics, int minItemsForBatching) {
+        if (metrics.size() >= minItemsForBatching) {
+            spoolIfFailed(batchWriter.report(metrics), metrics);
+        } else if (!metrics.isEmpty()) {
+            spoolIfFailed(lineWriter.report(metrics), metrics);
+        }
+    }
+
+    /**
+     * Finishes the queued writes, but waits at most until deadline. Failed writes are appended to the spool before it
+     * gets closed.
+     */
+    public void shutDown(long deadline) {
+        if (replayTimer != null) {
+            replayTimer.cancel(false);
+            replayTimer = null;
+        }
+        lineWriter.shutDown();
+        batchWriter.shutDown();
+        executor.shutdown();
+        boolean terminated = false;
+        try {
+            terminated = executor.awaitTermination(Math.max(0, deadline - System.currentTimeMillis()),
+                    TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (!terminated) {
+            log.warn("Pending writes to {} did not complete before shutdown", name);
+        }
+        if (spool == null) {
+            return;
+        }
+        if (terminated) {
+            // The sender thread is gone, so we can use the spool from here. Callbacks of the last writes got
+            // rejected by the executor, their metrics are still in pendingWrites.
+            pendingWrites.forEach((future, metrics) -> {
+                if (!isSuccess(future)) {
+                    spool.append(metrics);
+                }
+            });
+            pendingWrites.clear();
+            spool.shutDown();
+        } else {
+            log.warn("{} pending writes to {} are not spooled as the sender thread is still busy",
+                    pendingWrites.size(), name);
+        }
+    }
+
+    private void spoolIfFailed(CompletableFuture<Boolean> future, List<Metrics> metrics) {
+        if (spool != null) {
+            pendingWrites.put(future, metrics);
+            future.whenCompleteAsync((success, throwable) -> {
+                // If the entry is gone, shutDown has taken care of it
+                if (pendingWrites.remove(future) != null && !Boolean.TRUE.equals(success)) {
+                    spool.append(metrics);
+                }
+            }, executor);
+        }
+    }
+
+    private static boolean isSuccess(CompletableFuture<Boolean> future) {
+        return future.isDone() && !future.isCompletedExceptionally() && future.join();
+    }
+
+    // Runs on the sender thread
+    private void replaySpool() {
+        if (spool.isEmpty()) {
+            return;
+        }
+        ByteBuffer payload = spool.peek(replayBytesPerSec);
+        int numBytes = payload.remaining();
+        if (numBytes > 0 && lineWriter.write(payload)) {
+            spool.advance(numBytes);
+            log.info("Replayed {} bytes from spool of {}", numBytes, name);
+        }
+    }
+}
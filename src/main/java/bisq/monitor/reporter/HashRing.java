@@ -0,0 +1,111 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.monitor.reporter;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Consistent hash ring for distributing metrics across Carbon destinations. Each node is placed at virtualNodes
+ * positions derived from its key (e.g. host:port), and a metric name maps to the nodes found clockwise from the hash
+ * of its path. So a series always lands on the same node, and adding or removing a node only moves the series of
+ * the ring segments next to it.
+ */
+public class HashRing {
+    // Changing it moves series to other nodes. All rings which must route like the GraphiteReporter use it.
+    public static final int DEFAULT_VIRTUAL_NODES = 128;
+
+    private final long[] positions;
+    private final int[] nodes;
+    private final int numNodes;
+
+    public HashRing(List<String> nodeKeys, int virtualNodes) {
+        numNodes = nodeKeys.size();
+        int size = numNodes * virtualNodes;
+        long[][] entries = new long[size][];
+        for (int node = 0; node < numNodes; node++) {
+            for (int i = 0; i < virtualNodes; i++) {
+                byte[] key = (nodeKeys.get(node) + "#" + i).getBytes(StandardCharsets.UTF_8);
+                entries[node * virtualNodes + i] = new long[]{hash(key), node};
+            }
+        }
+        Arrays.sort(entries, (a, b) -> a[0] != b[0] ? Long.compare(a[0], b[0]) : Long.compare(a[1], b[1]));
+        positions = new long[size];
+        nodes = new int[size];
+        for (int i = 0; i < size; i++) {
+            positions[i] = entries[i][0];
+            nodes[i] = (int) entries[i][1];
+        }
+    }
+
+    /**
+     * Fills target with distinct nodes for the given name, starting with the primary one.
+     *
+     * @return the number of nodes written to target, which is min(target.length, number of nodes)
+     */
+    public int getNodes(MetricName name, int[] target) {
+        int count = Math.min(target.length, numNodes);
+        if (count == 0) {
+            return 0;
+        }
+        int index = Arrays.binarySearch(positions, name.getPathHash());
+        if (index < 0) {
+            index = -index - 1;
+        }
+        int found = 0;
+        for (int i = 0; found < count && i < positions.length; i++) {
+            int node = nodes[(index + i) % positions.length];
+            if (!contains(target, found, node)) {
+                target[found++] = node;
+            }
+        }
+        return found;
+    }
+
+    public int getNumNodes() {
+        return numNodes;
+    }
+
+    /**
+     * 64 bit FNV-1a with a final avalanche step (from MurmurHash3), so similar paths get spread over the ring.
+     * Stable across restarts, unlike String.hashCode it is not allowed to change.
+     */
+    public static long hash(byte[] bytes) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : bytes) {
+            hash ^= b & 0xff;
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+    private static boolean contains(int[] array, int length, int value) {
+        for (int i = 0; i < length; i++) {
+            if (array[i] == value) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
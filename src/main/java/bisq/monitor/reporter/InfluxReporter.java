@@ -0,0 +1,262 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.monitor.reporter;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Report to InfluxDB using the line protocol.
+ * See: <a href="https://docs.influxdata.com/influxdb/v1.8/write_protocols/line_protocol_tutorial/">...</a>
+ * <p>
+ * With the default UDP transport, lines are packed into datagrams of max. mtu bytes and sent fire-and-forget from a
+ * non-blocking DatagramChannel, so a slow TSDB never blocks the sender. If sending a datagram fails (e.g. port
+ * unreachable as there is no UDP listener) and httpFallback is enabled, we post the lines to the write url instead and
+ * try UDP again after a minute. The HTTP transport only posts to the write url and is meant for local stand-ins.
+ * HTTP writes are limited by connectTimeoutMs and requestTimeoutMs, so a stalled endpoint cannot block the sender.
+ * Each metric is written as measurement named by the path with a single field 'value' and the timestamp in ns.
+ * Non-finite doubles are skipped, as InfluxDB rejects the whole write for a single NaN or Infinity.
+ */
+@Slf4j
+public class InfluxReporter extends Reporter {
+    private static final long NANOS_PER_SEC = 1_000_000_000L;
+    private static final int MAX_HTTP_BODY_SIZE = 1024 * 1024;
+    private static final long UDP_RETRY_INTERVAL_MS = 60_000;
+    private static final long SHUT_DOWN_TIMEOUT_MS = 2000;
+    private static final byte[] VALUE_FIELD = " value=".getBytes(StandardCharsets.US_ASCII);
+
+    private final RingBuffer<Metrics> pending;
+    private final ReporterScheduler scheduler = new ReporterScheduler("InfluxReporter").start();
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+    private final int mtu;
+    private DatagramChannel channel;
+    private HttpClient httpClient;
+    private URI writeUri;
+    private Duration requestTimeout;
+
+    // Only used on the sender thread
+    private final MetricsEncoder encoder = new MetricsEncoder(16);
+    private final ByteBuffer line = ByteBuffer.allocate(4096);
+    private ByteBuffer packet;
+    private long droppedDatagrams;
+    private long httpFallbackUntilTs;
+
+    public InfluxReporter(Properties properties) {
+        boolean useUdp = !"http".equalsIgnoreCase(properties.getProperty("InfluxReporter.transport", "udp"));
+        boolean useHttp = !useUdp || "true".equals(properties.getProperty("InfluxReporter.httpFallback", "true"));
+        mtu = Integer.parseInt(properties.getProperty("InfluxReporter.mtu", "1400"));
+        int queueCapacity = Integer.parseInt(properties.getProperty("InfluxReporter.queueCapacity", "65536"));
+        pending = new RingBuffer<>(queueCapacity, RingBuffer.OverflowPolicy.DROP_OLDEST, 0);
+        try {
+            if (useUdp) {
+                String host = properties.getProperty("InfluxReporter.host", "127.0.0.1");
+                int port = Integer.parseInt(properties.getProperty("InfluxReporter.port", "8089"));
+                channel = DatagramChannel.open();
+                channel.configureBlocking(false);
+                channel.connect(new InetSocketAddress(host, port));
+            }
+            if (useHttp) {
+                writeUri = URI.create(properties.getProperty("InfluxReporter.url", "http://127.0.0.1:8086/write?db=bisq"));
+                Duration connectTimeout = Duration.ofMillis(
+                        Long.parseLong(properties.getProperty("InfluxReporter.connectTimeoutMs", "5000")));
+                requestTimeout = Duration.ofMillis(
+                        Long.parseLong(properties.getProperty("InfluxReporter.requestTimeoutMs", "10000")));
+                httpClient = HttpClient.newBuilder().connectTimeout(connectTimeout).build();
+            }
+            packet = useUdp ? ByteBuffer.allocateDirect(mtu) : ByteBuffer.allocate(64 * 1024);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void report(Metrics metrics) {
+        pending.offer(metrics);
+        scheduleFlush();
+    }
+
+    @Override
+    public void report(Collection<Metrics> metrics) {
+        pending.offerAll(metrics);
+        scheduleFlush();
+    }
+
+    @Override
+    public void shutDown() {
+        scheduler.shutDown(() -> {
+            flush();
+            if (channel != null) {
+                try {
+                    channel.close();
+                } catch (IOException ignore) {
+                }
+            }
+        }, SHUT_DOWN_TIMEOUT_MS);
+    }
+
+    private void scheduleFlush() {
+        if (flushScheduled.compareAndSet(false, true)) {
+            scheduler.execute(() -> {
+                flushScheduled.set(false);
+                flush();
+            });
+        }
+    }
+
+    // Runs on the sender thread
+    private void flush() {
+        packet.clear();
+        boolean useUdp = isUdpActive();
+        int limit = useUdp ? mtu : MAX_HTTP_BODY_SIZE;
+        Metrics metrics;
+        while ((metrics = pending.poll()) != null) {
+            if (!encodeLine(metrics)) {
+                continue;
+            }
+            if (packet.position() > 0 && packet.position() + line.remaining() > limit) {
+                send(useUdp);
+                // After a failed datagram the rest goes over HTTP
+                useUdp = useUdp && isUdpActive();
+                limit = useUdp ? mtu : MAX_HTTP_BODY_SIZE;
+            }
+            if (packet.remaining() < line.remaining()) {
+                // Only possible for HTTP or a single line larger than the mtu
+                ByteBuffer grown = ByteBuffer.allocate(packet.position() + line.remaining());
+                packet.flip();
+                grown.put(packet);
+                packet = grown;
+            }
+            packet.put(line);
+        }
+        if (packet.position() > 0) {
+            send(useUdp);
+        }
+    }
+
+    private boolean isUdpActive() {
+        return channel != null && System.currentTimeMillis() >= httpFallbackUntilTs;
+    }
+
+    private boolean encodeLine(Metrics metrics) {
+        line.clear();
+        MetricName name = metrics.getName();
+        // Most paths need no escaping, so we write the bytes cached by the name without allocating
+        byte[] escaped = needsEscaping(name.getPath()) ? toMeasurement(name) : null;
+        int measurementLength = escaped != null ? escaped.length : name.getEncodedLength();
+        int valueLength = metrics.getType() == Metrics.Type.STRING ? metrics.getStringValue().length() * 6 : 32;
+        if (measurementLength + valueLength + 40 > line.capacity()) {
+            log.warn("Line for {} is too large. We drop it.", metrics.getPath());
+            return false;
+        }
+        if (escaped != null) {
+            line.put(escaped);
+        } else {
+            name.writeTo(line);
+        }
+        line.put(VALUE_FIELD);
+        switch (metrics.getType()) {
+            case LONG:
+                encoder.putLong(line, metrics.getLongValue());
+                line.put((byte) 'i');
+                break;
+            case DOUBLE:
+                if (!Double.isFinite(metrics.getDoubleValue())) {
+                    log.debug("Skipping non-finite value {} of {}", metrics.getDoubleValue(), metrics.getPath());
+                    return false;
+                }
+                encoder.putDouble(line, metrics.getDoubleValue());
+                break;
+            case STRING:
+            default:
+                String value = metrics.getStringValue().replace("\\", "\\\\").replace("\"", "\\\"");
+                line.put((byte) '"').put(value.getBytes(StandardCharsets.UTF_8)).put((byte) '"');
+        }
+        line.put((byte) ' ');
+        encoder.putLong(line, metrics.getTimeStampInSec() * NANOS_PER_SEC);
+        line.put((byte) '\n');
+        line.flip();
+        return true;
+    }
+
+    private void send(boolean useUdp) {
+        packet.flip();
+        try {
+            if (useUdp) {
+                try {
+                    if (channel.write(packet) == 0) {
+                        droppedDatagrams++;
+                        log.warn("Socket buffer full. Datagram dropped. Total dropped datagrams: {}", droppedDatagrams);
+                    }
+                    return;
+                } catch (IOException e) {
+                    if (httpClient == null) {
+                        throw e;
+                    }
+                    // As the channel is connected, a missing UDP listener shows up as PortUnreachableException
+                    log.warn("Sending datagram to InfluxDB failed ({}). We use HTTP for the next {} sec.",
+                            e.toString(), UDP_RETRY_INTERVAL_MS / 1000);
+                    httpFallbackUntilTs = System.currentTimeMillis() + UDP_RETRY_INTERVAL_MS;
+                }
+            }
+            post();
+        } catch (IOException e) {
+            log.error("Error writing to InfluxDB: {}", e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            packet.clear();
+        }
+    }
+
+    private void post() throws IOException, InterruptedException {
+        byte[] body = new byte[packet.remaining()];
+        packet.get(body);
+        HttpRequest request = HttpRequest.newBuilder(writeUri)
+                .POST(HttpRequest.BodyPublishers.ofByteArray(body))
+                .header("User-Agent", "bisq-monitor")
+                .timeout(requestTimeout)
+                .build();
+        HttpResponse<Void> response = httpClient.send(request, HttpResponse.BodyHandlers.discarding());
+        if (response.statusCode() / 100 != 2) {
+            log.error("Error writing to InfluxDB. Status code: {}", response.statusCode());
+        }
+    }
+
+    private static boolean needsEscaping(String path) {
+        return path.indexOf(',') >= 0 || path.indexOf(' ') >= 0;
+    }
+
+    // Commas and spaces must be escaped in measurement names
+    private static byte[] toMeasurement(MetricName name) {
+        return name.getPath().replace(",", "\\,").replace(" ", "\\ ").getBytes(StandardCharsets.UTF_8);
+    }
+}
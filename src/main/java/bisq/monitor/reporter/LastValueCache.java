@@ -0,0 +1,121 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.monitor.reporter;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Bounded concurrent table of the last reported value per metric name. Used to avoid reporting the same value with
+ * the same timestamp more than once.
+ * <p>
+ * Entries which have not been updated for ttlMs get evicted. If the table grows beyond maxSize the least recently
+ * updated entries get evicted as well, so memory stays flat even if the set of metric names keeps growing.
+ */
+@Slf4j
+public class LastValueCache {
+    private final Map<MetricName, Entry> entries = new ConcurrentHashMap<>();
+    private final int maxSize;
+    private final long ttlMs;
+    private final long expiryCheckIntervalMs;
+    private final AtomicBoolean evicting = new AtomicBoolean();
+    private volatile long lastExpiryCheck = System.currentTimeMillis();
+
+    public LastValueCache(int maxSize, long ttlMs) {
+        this.maxSize = maxSize;
+        this.ttlMs = ttlMs;
+        expiryCheckIntervalMs = Math.max(1000, ttlMs / 4);
+    }
+
+    /**
+     * @return true if the metrics got stored because there was no entry for its name or the entry had a different
+     * value or timestamp. False if it is a duplicate of the last value.
+     */
+    public boolean putIfChanged(Metrics metrics) {
+        long now = System.currentTimeMillis();
+        boolean[] changed = new boolean[1];
+        entries.compute(metrics.getName(), (name, entry) -> {
+            // An expired entry counts as evicted even if the expiry check has not removed it yet
+            if (entry != null && now - entry.updated <= ttlMs && entry.metrics.equals(metrics)) {
+                entry.updated = now;
+                return entry;
+            }
+            changed[0] = true;
+            return new Entry(metrics, now);
+        });
+        if (entries.size() > maxSize || now - lastExpiryCheck > expiryCheckIntervalMs) {
+            evict(now);
+        }
+        return changed[0];
+    }
+
+    public Optional<Metrics> get(MetricName name) {
+        Entry entry = entries.get(name);
+        if (entry == null || System.currentTimeMillis() - entry.updated > ttlMs) {
+            return Optional.empty();
+        }
+        return Optional.of(entry.metrics);
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    private void evict(long now) {
+        // Only one thread evicts, others continue without waiting
+        if (!evicting.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            lastExpiryCheck = now;
+            entries.values().removeIf(entry -> now - entry.updated > ttlMs);
+
+            int excess = entries.size() - maxSize;
+            if (excess > 0) {
+                // We remove 10% more than needed to not run into that path at each put
+                int numToRemove = excess + maxSize / 10;
+                List<Map.Entry<MetricName, Entry>> candidates = new ArrayList<>(entries.entrySet());
+                candidates.sort(Comparator.comparingLong(e -> e.getValue().updated));
+                candidates.stream()
+                        .limit(numToRemove)
+                        .forEach(e -> entries.remove(e.getKey(), e.getValue()));
+                log.info("LastValueCache exceeded maxSize of {}. Removed {} least recently updated entries",
+                        maxSize, numToRemove);
+            }
+        } finally {
+            evicting.set(false);
+        }
+    }
+
+    private static class Entry {
+        private final Metrics metrics;
+        private volatile long updated;
+
+        private Entry(Metrics metrics, long updated) {
+            this.metrics = metrics;
+            this.updated = updated;
+        }
+    }
+}
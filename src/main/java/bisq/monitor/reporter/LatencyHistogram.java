@@ -0,0 +1,192 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.monitor.reporter;
+
+import lombok.Getter;
+
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Fixed memory histogram for latencies, following the design of HdrHistogram: values are counted in log-linear
+ * buckets (32 linear sub-buckets per power of 2, so the value error is below 1/16), recording is lock-free and
+ * the histogram can be read and reset per interval without allocation.
+ * <p>
+ * Recording and interval reads are coordinated with a writer-reader phaser: writers record into the active one of
+ * two count arrays. The reader flips the active array, waits until all writers of the previous phase are done, reads
+ * the now inactive array and clears it.
+ */
+public class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    private static final int SUB_BUCKET_HALF_COUNT = SUB_BUCKET_COUNT / 2;
+
+    private final long highestTrackableValue;
+    private final AtomicLongArray[] counts;
+    private final AtomicLong[] maxValues = {new AtomicLong(), new AtomicLong()};
+
+    // Writer-reader phaser. Even phase records into index 0, odd phase (negative epoch) into index 1.
+    private final AtomicLong startEpoch = new AtomicLong();
+    private final AtomicLong evenEndEpoch = new AtomicLong();
+    private final AtomicLong oddEndEpoch = new AtomicLong(Long.MIN_VALUE);
+
+    /**
+     * @param highestTrackableValue Larger values get counted as highestTrackableValue.
+     */
+    public LatencyHistogram(long highestTrackableValue) {
+        this.highestTrackableValue = highestTrackableValue;
+        int size = bucketIndex(highestTrackableValue) + 1;
+        counts = new AtomicLongArray[]{new AtomicLongArray(size), new AtomicLongArray(size)};
+    }
+
+    /**
+     * Records a value. Negative values are ignored.
+     */
+    public void record(long value) {
+        if (value < 0) {
+            return;
+        }
+        long clamped = Math.min(value, highestTrackableValue);
+        long epoch = startEpoch.getAndIncrement();
+        try {
+            int phase = epoch < 0 ? 1 : 0;
+            counts[phase].incrementAndGet(bucketIndex(clamped));
+            maxValues[phase].accumulateAndGet(clamped, Math::max);
+        } finally {
+            if (epoch < 0) {
+                oddEndEpoch.getAndIncrement();
+            } else {
+                evenEndEpoch.getAndIncrement();
+            }
+        }
+    }
+
+    /**
+     * Fills the snapshot with the values recorded since the last call and resets the histogram.
+     */
+    public synchronized void snapshotAndReset(Snapshot snapshot) {
+        AtomicLongArray intervalCounts = counts[flipPhase()];
+        long count = 0;
+        for (int i = 0; i < intervalCounts.length(); i++) {
+            count += intervalCounts.get(i);
+        }
+
+        long p50Rank = rank(count, 0.5);
+        long p90Rank = rank(count, 0.9);
+        long p99Rank = rank(count, 0.99);
+        long cumulative = 0;
+        for (int i = 0; i < intervalCounts.length(); i++) {
+            long bucketCount = intervalCounts.getAndSet(i, 0);
+            if (bucketCount == 0) {
+                continue;
+            }
+            long previous = cumulative;
+            cumulative += bucketCount;
+            long value = highestEquivalentValue(i);
+            if (previous < p50Rank && cumulative >= p50Rank) {
+                snapshot.p50 = value;
+            }
+            if (previous < p90Rank && cumulative >= p90Rank) {
+                snapshot.p90 = value;
+            }
+            if (previous < p99Rank && cumulative >= p99Rank) {
+                snapshot.p99 = value;
+            }
+        }
+
+        int inactive = intervalCounts == counts[0] ? 0 : 1;
+        snapshot.max = maxValues[inactive].getAndSet(0);
+        snapshot.count = count;
+        if (count == 0) {
+            snapshot.p50 = 0;
+            snapshot.p90 = 0;
+            snapshot.p99 = 0;
+        } else {
+            // Bucket values are rounded up, so we cap them by the exact max value
+            snapshot.p50 = Math.min(snapshot.p50, snapshot.max);
+            snapshot.p90 = Math.min(snapshot.p90, snapshot.max);
+            snapshot.p99 = Math.min(snapshot.p99, snapshot.max);
+        }
+    }
+
+    /**
+     * @return the index of the count array of the phase which just ended
+     */
+    private int flipPhase() {
+        boolean nextPhaseIsEven = startEpoch.get() < 0;
+        long initialStartValue = nextPhaseIsEven ? 0 : Long.MIN_VALUE;
+        (nextPhaseIsEven ? evenEndEpoch : oddEndEpoch).set(initialStartValue);
+        long startValueAtFlip = startEpoch.getAndSet(initialStartValue);
+        AtomicLong previousEndEpoch = nextPhaseIsEven ? oddEndEpoch : evenEndEpoch;
+        while (previousEndEpoch.get() != startValueAtFlip) {
+            Thread.yield();
+        }
+        return nextPhaseIsEven ? 1 : 0;
+    }
+
+    private static long rank(long count, double percentile) {
+        return Math.max(1, (long) Math.ceil(count * percentile));
+    }
+
+    static int bucketIndex(long value) {
+        if (value < SUB_BUCKET_COUNT) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int shift = exponent - (SUB_BUCKET_BITS - 1);
+        return SUB_BUCKET_COUNT + (exponent - SUB_BUCKET_BITS) * SUB_BUCKET_HALF_COUNT +
+                (int) ((value >> shift) - SUB_BUCKET_HALF_COUNT);
+    }
+
+    static long highestEquivalentValue(int index) {
+        if (index < SUB_BUCKET_COUNT) {
+            return index;
+        }
+        int offset = index - SUB_BUCKET_COUNT;
+        int exponent = offset / SUB_BUCKET_HALF_COUNT + SUB_BUCKET_BITS;
+        long subBucket = offset % SUB_BUCKET_HALF_COUNT + SUB_BUCKET_HALF_COUNT;
+        int shift = exponent - (SUB_BUCKET_BITS - 1);
+        return ((subBucket + 1) << shift) - 1;
+    }
+
+    /**
+     * Reusable result of an interval read.
+     */
+    @Getter
+    public static class Snapshot {
+        private long count;
+        private long p50;
+        private long p90;
+        private long p99;
+        private long max;
+
+        /**
+         * Adds [name].count and, if anything was recorded, [name].p50, .p90, .p99 and .max to target.
+         */
+        public void addTo(Collection<Metrics> target, MetricName name, long timeStampInSec) {
+            target.add(new Metrics(name.child("count"), count, timeStampInSec));
+            if (count > 0) {
+                target.add(new Metrics(name.child("p50"), p50, timeStampInSec));
+                target.add(new Metrics(name.child("p90"), p90, timeStampInSec));
+                target.add(new Metrics(name.child("p99"), p99, timeStampInSec));
+                target.add(new Metrics(name.child("max"), max, timeStampInSec));
+            }
+        }
+    }
+}
@@ -17,13 +17,13 @@
 
 package bisq.monitor.reporter;
 
-import bisq.monitor.utils.Util;
-import com.google.common.base.Charsets;
 import lombok.extern.slf4j.Slf4j;
 
-import java.net.Socket;
-import java.util.Properties;
+import java.nio.ByteBuffer;
+import java.util.Collection;
+import java.util.List;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
 
 /**
  * Report to graphite server using the plaintext protocol
@@ -31,27 +31,52 @@ import java.util.concurrent.CompletableFuture;
  */
 @Slf4j
 public class LineWriter {
-    private final String host;
-    private final int port;
-
-    public LineWriter(Properties properties) {
-        super();
-        String[] tokens = properties.getProperty("GraphiteReporter.plain").split(":");
-        host = tokens[0];
-        port = Integer.parseInt(tokens[1]);
+    private final GraphiteConnection connection;
+    private final ExecutorService executor;
+    private final ReporterStats stats;
+    // Only used on the sender thread
+    private final MetricsEncoder encoder = new MetricsEncoder(64 * 1024);
+
+    /**
+     * @param address host:port of the carbon plaintext receiver
+     */
+    public LineWriter(String address, ExecutorService executor, ReporterStats stats, long writeTimeoutMs) {
+        connection = new GraphiteConnection(address, stats, writeTimeoutMs);
+        this.executor = executor;
+        this.stats = stats;
     }
 
     public CompletableFuture<Boolean> report(Metrics metrics) {
-        // trailing line break is needed
-        String payload = metrics.getPath() + " " + metrics.getValue() + " " + metrics.getTimeStampInSec() + "\n";
+        return report(List.of(metrics));
+    }
+
+    public CompletableFuture<Boolean> report(Collection<Metrics> metricsCollection) {
         return CompletableFuture.supplyAsync(() -> {
-            try (Socket socket = new Socket(host, port)) {
-                socket.getOutputStream().write(payload.getBytes(Charsets.UTF_8));
-                return true;
-            } catch (Exception e) {
-                log.error("Error writing to Graphite: {}", e.getMessage());
-                return false;
-            }
-        }, Util.newCachedThreadPool(20));
+            return write(encoder.encodeLines(metricsCollection), metricsCollection.size());
+        }, executor);
+    }
+
+    /**
+     * Writes already encoded lines, e.g. from the spool. Must be called on the sender thread.
+     */
+    boolean write(ByteBuffer payload) {
+        return write(payload, 0);
+    }
+
+    private boolean write(ByteBuffer payload, int batchSize) {
+        long ts = System.currentTimeMillis();
+        try {
+            long numBytes = connection.write(payload);
+            stats.onFlush(batchSize, numBytes, System.currentTimeMillis() - ts);
+            return true;
+        } catch (Exception e) {
+            stats.onWriteFailure();
+            log.error("Error writing to Graphite: {}", e.getMessage());
+            return false;
+        }
+    }
+
+    public void shutDown() {
+        CompletableFuture.runAsync(connection::close, executor);
     }
 }
@@ -0,0 +1,147 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.monitor.reporter;
+
+import lombok.Getter;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Hierarchical metric name. Names are interned in a trie of path segments (e.g. root -> seedNodes -> address ->
+ * group -> key), where each node caches its full path and the UTF-8 bytes of it. Repeated reports for the same node
+ * and key resolve to the same instance without building a new path string.
+ * <p>
+ * Parents only hold weak references to their children, so names with dynamic segments (seed addresses, replayed
+ * paths,...) are collected once nothing refers to them anymore, e.g. after they expired from the LastValueCache. As
+ * long as a name is referenced it stays the only instance for its path, so names can still be used as identity keys.
+ */
+public final class MetricName {
+    // Cleared references of collected children, removed from their parent on the next insert
+    private static final ReferenceQueue<MetricName> STALE_CHILDREN = new ReferenceQueue<>();
+
+    // Unnamed top of the trie. Its children are the first segments of absolute paths.
+    private static final MetricName TOP = new MetricName(null, "");
+    public static final MetricName ROOT = TOP.child(Metrics.ROOT);
+
+    /**
+     * @param path Absolute dot separated path, including the root segment.
+     */
+    public static MetricName of(String path) {
+        return TOP.resolve(path);
+    }
+
+    private final Map<String, ChildReference> children = new ConcurrentHashMap<>();
+    @Getter
+    private final MetricName parent;
+    @Getter
+    private final String path;
+    private final byte[] bytes;
+    // Stable hash of the path, used for consistent hashing
+    @Getter
+    private final long pathHash;
+
+    private MetricName(MetricName parent, String segment) {
+        this.parent = parent;
+        if (parent == null || parent.path.isEmpty()) {
+            path = segment;
+            bytes = segment.getBytes(StandardCharsets.UTF_8);
+        } else {
+            path = parent.path + "." + segment;
+            byte[] segmentBytes = segment.getBytes(StandardCharsets.UTF_8);
+            bytes = new byte[parent.bytes.length + 1 + segmentBytes.length];
+            System.arraycopy(parent.bytes, 0, bytes, 0, parent.bytes.length);
+            bytes[parent.bytes.length] = '.';
+            System.arraycopy(segmentBytes, 0, bytes, parent.bytes.length + 1, segmentBytes.length);
+        }
+        pathHash = HashRing.hash(bytes);
+    }
+
+    public MetricName child(String segment) {
+        ChildReference reference = children.get(segment);
+        MetricName child = reference != null ? reference.get() : null;
+        if (child != null) {
+            return child;
+        }
+
+        expungeStaleChildren();
+        MetricName[] result = new MetricName[1];
+        children.compute(segment, (key, existing) -> {
+            result[0] = existing != null ? existing.get() : null;
+            if (result[0] != null) {
+                return existing;
+            }
+            result[0] = new MetricName(this, key);
+            return new ChildReference(result[0], children, key);
+        });
+        return result[0];
+    }
+
+    /**
+     * @param relativePath Dot separated path below this name.
+     */
+    public MetricName resolve(String relativePath) {
+        MetricName name = this;
+        int start = 0;
+        int dot;
+        while ((dot = relativePath.indexOf('.', start)) >= 0) {
+            name = name.child(relativePath.substring(start, dot));
+            start = dot + 1;
+        }
+        return name.child(relativePath.substring(start));
+    }
+
+    public int getEncodedLength() {
+        return bytes.length;
+    }
+
+    public void writeTo(ByteBuffer buffer) {
+        buffer.put(bytes);
+    }
+
+    @Override
+    public String toString() {
+        return path;
+    }
+
+    private static void expungeStaleChildren() {
+        Reference<? extends MetricName> reference;
+        while ((reference = STALE_CHILDREN.poll()) != null) {
+            ChildReference childReference = (ChildReference) reference;
+            // Only removes the entry if it has not been replaced by a new child in the meantime
+            childReference.siblings.remove(childReference.segment, childReference);
+        }
+    }
+
+    // Refers to the children map and not to the parent, as a queued reference would keep the parent alive
+    private static class ChildReference extends WeakReference<MetricName> {
+        private final Map<String, ChildReference> siblings;
+        private final String segment;
+
+        private ChildReference(MetricName child, Map<String, ChildReference> siblings, String segment) {
+            super(child, STALE_CHILDREN);
+            this.siblings = siblings;
+            this.segment = segment;
+        }
+    }
+}
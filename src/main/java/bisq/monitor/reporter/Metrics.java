@@ -24,19 +24,60 @@ import java.util.Date;
 @Value
 public class Metrics {
     public static final String ROOT = "bisq_v2";
-    String path;
-    String value;
+
+    public enum Type {
+        LONG,
+        DOUBLE,
+        STRING
+    }
+
+    MetricName name;
+    Type type;
+    long longValue;
+    double doubleValue;
+    // Only set for Type.STRING
+    String stringValue;
     long timeStampInSec;
 
+    private Metrics(MetricName name, Type type, long longValue, double doubleValue, String stringValue, long timeStampInSec) {
+        this.name = name;
+        this.type = type;
+        this.longValue = longValue;
+        this.doubleValue = doubleValue;
+        this.stringValue = stringValue;
+        this.timeStampInSec = timeStampInSec;
+    }
+
+    public Metrics(MetricName name, long value, long timeStampInSec) {
+        this(name, Type.LONG, value, 0, null, timeStampInSec);
+    }
+
+    public Metrics(MetricName name, long value) {
+        this(name, value, now());
+    }
+
+    public Metrics(MetricName name, double value, long timeStampInSec) {
+        this(name, Type.DOUBLE, 0, value, null, timeStampInSec);
+    }
+
+    public Metrics(MetricName name, double value) {
+        this(name, value, now());
+    }
+
+    public Metrics(MetricName name, String value, long timeStampInSec) {
+        this(name, Type.STRING, 0, 0, value, timeStampInSec);
+    }
+
+    public Metrics(MetricName name, String value) {
+        this(name, value, now());
+    }
 
     public Metrics(String path, String value, long timeStampInSec) {
-        this.path = ROOT + "." + path;
-        this.value = value;
-        this.timeStampInSec = timeStampInSec;
+        this(toName(path), value, timeStampInSec);
     }
 
     public Metrics(String path, String value) {
-        this(path, value, System.currentTimeMillis() / 1000);
+        this(path, value, now());
     }
 
     public Metrics(String prefix, String key, String value) {
@@ -48,33 +89,60 @@ public class Metrics {
     }
 
     public Metrics(String path, int value, long timeStampInSec) {
-        this(path, String.valueOf(value), timeStampInSec);
+        this(toName(path), (long) value, timeStampInSec);
     }
 
     public Metrics(String path, int value) {
-        this(path, String.valueOf(value));
+        this(path, value, now());
     }
 
     public Metrics(String path, long value, long timeStampInSec) {
-        this(path, String.valueOf(value), timeStampInSec);
+        this(toName(path), value, timeStampInSec);
     }
 
     public Metrics(String path, long value) {
-        this(path, String.valueOf(value));
+        this(path, value, now());
     }
 
     public Metrics(String path, double value) {
-        this(path, String.valueOf(value));
+        this(path, value, now());
     }
 
     public Metrics(String path, double value, long timeStampInSec) {
-        this(path, String.valueOf(value), timeStampInSec);
+        this(toName(path), value, timeStampInSec);
+    }
+
+    public String getPath() {
+        return name.getPath();
+    }
+
+    /**
+     * String representation of the value. Allocates, so it should not be used at the reporting hot path.
+     */
+    public String getValue() {
+        switch (type) {
+            case LONG:
+                return String.valueOf(longValue);
+            case DOUBLE:
+                return String.valueOf(doubleValue);
+            case STRING:
+            default:
+                return stringValue;
+        }
     }
 
     @Override
     public String toString() {
-        return "Metrics {path='" + path + '\'' +
-                ", value='" + value + '\'' +
+        return "Metrics {path='" + getPath() + '\'' +
+                ", value='" + getValue() + '\'' +
                 ", timeStampInSec=" + timeStampInSec + " (" + new Date(timeStampInSec * 1000L) + ")}";
     }
-}
\ No newline at end of file
+
+    private static MetricName toName(String path) {
+        return MetricName.ROOT.resolve(path);
+    }
+
+    private static long now() {
+        return System.currentTimeMillis() / 1000;
+    }
+}
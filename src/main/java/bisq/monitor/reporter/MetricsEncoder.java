@@ -0,0 +1,197 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.monitor.reporter;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+
+/**
+ * Encodes metrics in the Graphite plaintext protocol into a reusable direct buffer. Paths are written from the cached
+ * bytes of the MetricName and numbers are written digit by digit, so encoding does not allocate per metric
+ * (except for non-ASCII string values and doubles which cannot be represented in fixed-point notation).
+ * Not thread safe. Each sender thread should use its own instance.
+ */
+public class MetricsEncoder {
+    // Max. length of a long or a fixed-point double as we write it
+    private static final int MAX_NUMBER_LENGTH = 32;
+    private static final int MAX_FRACTION_DIGITS = 12;
+    private static final int MAX_SIGNIFICANT_DIGITS = 15;
+    private static final double MAX_FIXED_POINT = 1e15;
+    private static final long[] POWERS_OF_TEN = new long[MAX_FRACTION_DIGITS + 1];
+
+    static {
+        POWERS_OF_TEN[0] = 1;
+        for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+        }
+    }
+
+    private final byte[] digits = new byte[20];
+    private ByteBuffer buffer;
+
+    public MetricsEncoder(int initialCapacity) {
+        buffer = ByteBuffer.allocateDirect(initialCapacity);
+    }
+
+    /**
+     * @return the buffer containing the encoded line, ready for reading. Only valid until the next call.
+     */
+    public ByteBuffer encodeLine(Metrics metrics) {
+        buffer.clear();
+        ensureCapacity(getMaxLineLength(metrics));
+        putLine(metrics);
+        return buffer.flip();
+    }
+
+    /**
+     * @return the buffer containing all encoded lines, ready for reading. Only valid until the next call.
+     */
+    public ByteBuffer encodeLines(Collection<Metrics> metricsCollection) {
+        buffer.clear();
+        for (Metrics metrics : metricsCollection) {
+            ensureCapacity(getMaxLineLength(metrics));
+            putLine(metrics);
+        }
+        return buffer.flip();
+    }
+
+    public static int getMaxLineLength(Metrics metrics) {
+        int valueLength = metrics.getType() == Metrics.Type.STRING ?
+                metrics.getStringValue().length() * 3 :
+                MAX_NUMBER_LENGTH;
+        return metrics.getName().getEncodedLength() + valueLength + MAX_NUMBER_LENGTH + 3;
+    }
+
+    private void putLine(Metrics metrics) {
+        metrics.getName().writeTo(buffer);
+        buffer.put((byte) ' ');
+        putValue(buffer, metrics);
+        buffer.put((byte) ' ');
+        putLong(buffer, metrics.getTimeStampInSec());
+        // trailing line break is needed
+        buffer.put((byte) '\n');
+    }
+
+    public void putValue(ByteBuffer target, Metrics metrics) {
+        switch (metrics.getType()) {
+            case LONG:
+                putLong(target, metrics.getLongValue());
+                break;
+            case DOUBLE:
+                putDouble(target, metrics.getDoubleValue());
+                break;
+            case STRING:
+            default:
+                putString(target, metrics.getStringValue());
+        }
+    }
+
+    public void putLong(ByteBuffer target, long value) {
+        if (value == Long.MIN_VALUE) {
+            putAscii(target, String.valueOf(value));
+            return;
+        }
+        if (value < 0) {
+            target.put((byte) '-');
+            value = -value;
+        }
+        int index = digits.length;
+        do {
+            digits[--index] = (byte) ('0' + value % 10);
+            value /= 10;
+        } while (value > 0);
+        target.put(digits, index, digits.length - index);
+    }
+
+    /**
+     * Writes the double in fixed-point notation with max. 12 fraction digits and trailing zeros removed.
+     * The number of fraction digits is reduced for large values, so we do not write digits beyond the precision
+     * of a double.
+     */
+    public void putDouble(ByteBuffer target, double value) {
+        double abs = Math.abs(value);
+        if (Double.isNaN(value) || Double.isInfinite(value) || abs >= MAX_FIXED_POINT ||
+                (abs != 0 && abs < 1d / POWERS_OF_TEN[MAX_FRACTION_DIGITS])) {
+            putAscii(target, String.valueOf(value));
+            return;
+        }
+
+        long integerPart = (long) abs;
+        int fractionDigits = Math.max(0, Math.min(MAX_FRACTION_DIGITS, MAX_SIGNIFICANT_DIGITS - numDigits(integerPart)));
+        long scale = POWERS_OF_TEN[fractionDigits];
+        long fraction = Math.round((abs - integerPart) * scale);
+        if (fraction >= scale) {
+            integerPart++;
+            fraction -= scale;
+        }
+        while (fractionDigits > 0 && fraction % 10 == 0) {
+            fraction /= 10;
+            fractionDigits--;
+        }
+
+        if (value < 0 && (integerPart > 0 || fractionDigits > 0)) {
+            target.put((byte) '-');
+        }
+        putLong(target, integerPart);
+        if (fractionDigits > 0) {
+            target.put((byte) '.');
+            int index = digits.length;
+            for (int i = 0; i < fractionDigits; i++) {
+                digits[--index] = (byte) ('0' + fraction % 10);
+                fraction /= 10;
+            }
+            target.put(digits, index, fractionDigits);
+        }
+    }
+
+    private static void putString(ByteBuffer target, String value) {
+        for (int i = 0; i < value.length(); i++) {
+            if (value.charAt(i) >= 0x80) {
+                target.put(value.getBytes(StandardCharsets.UTF_8));
+                return;
+            }
+        }
+        putAscii(target, value);
+    }
+
+    private static void putAscii(ByteBuffer target, String value) {
+        for (int i = 0; i < value.length(); i++) {
+            target.put((byte) value.charAt(i));
+        }
+    }
+
+    private static int numDigits(long value) {
+        int count = 1;
+        while (value >= 10) {
+            value /= 10;
+            count++;
+        }
+        return count;
+    }
+
+    private void ensureCapacity(int additional) {
+        if (buffer.remaining() < additional) {
+            int capacity = Math.max(buffer.capacity() * 2, buffer.position() + additional);
+            ByteBuffer grown = ByteBuffer.allocateDirect(capacity);
+            buffer.flip();
+            grown.put(buffer);
+            buffer = grown;
+        }
+    }
+}
@@ -0,0 +1,281 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.monitor.reporter;
+
+import bisq.monitor.utils.Util;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Deque;
+
+/**
+ * Disk-backed spool for metrics which could not be delivered to Graphite.
+ * <p>
+ * Metrics are stored as plaintext protocol lines in fixed-size, memory-mapped segment files. As the files are zero
+ * filled when created, the first zero byte marks the end of the written data, so a segment can be recovered after a
+ * restart without any index. Replay reads complete lines from the oldest segment and the caller sends them unchanged
+ * over the plaintext connection. After each replayed chunk the read position is saved to a small offset file, so
+ * after a restart replay continues where it stopped. At most the last chunk gets sent twice if we crash in between.
+ * Carbon overwrites datapoints with the same timestamp, so that does not cause wrong data.
+ * <p>
+ * If the spool exceeds its max. size the oldest segment gets deleted. Deleted segments are unmapped right away, so
+ * the disk space is freed without waiting for the GC.
+ * Not thread safe. All calls are expected from the sender thread of the GraphiteReporter.
+ */
+@Slf4j
+public class MetricsSpool {
+    private static final String FILE_PREFIX = "spool-";
+    private static final String FILE_SUFFIX = ".seg";
+    private static final String OFFSET_FILE_NAME = "spool.offset";
+    private static final byte LF = '\n';
+
+    private final File dir;
+    private final File offsetFile;
+    private final File offsetTempFile;
+    private final int segmentSize;
+    private final int maxSegments;
+    private final Deque<Segment> segments = new ArrayDeque<>();
+    private final MetricsEncoder encoder = new MetricsEncoder(1024);
+    private long nextSegmentIndex;
+
+    public MetricsSpool(File dir, int segmentSize, long maxSize) {
+        this.dir = dir;
+        offsetFile = new File(dir, OFFSET_FILE_NAME);
+        offsetTempFile = new File(dir, OFFSET_FILE_NAME + ".tmp");
+        this.segmentSize = segmentSize;
+        maxSegments = (int) Math.max(2, maxSize / segmentSize);
+        if (!dir.exists() && !dir.mkdirs()) {
+            log.warn("Creating spool dir {} failed", dir);
+        }
+        recover();
+    }
+
+    public void append(Collection<Metrics> metricsCollection) {
+        metricsCollection.forEach(metrics -> append(encoder.encodeLine(metrics)));
+    }
+
+    /**
+     * @return a buffer with complete lines from the oldest segment of at most maxBytes, or an empty buffer if the
+     * spool is empty. After the buffer has been sent the caller has to call {@link #advance(int)}.
+     */
+    public ByteBuffer peek(int maxBytes) {
+        Segment head = segments.peekFirst();
+        while (head != null && head.isFullyRead() && segments.size() > 1) {
+            deleteOldestSegment();
+            head = segments.peekFirst();
+        }
+        if (head == null || head.isFullyRead()) {
+            return ByteBuffer.allocate(0);
+        }
+
+        int end = Math.min(head.writePosition, head.readPosition + maxBytes);
+        // Only send complete lines
+        while (end > head.readPosition && head.buffer.get(end - 1) != LF) {
+            end--;
+        }
+        if (end == head.readPosition) {
+            // A single line larger than maxBytes. We send only that line, so we do not get stuck.
+            end = Math.min(head.readPosition + Math.max(1, maxBytes), head.writePosition);
+            while (end < head.writePosition && head.buffer.get(end - 1) != LF) {
+                end++;
+            }
+        }
+        ByteBuffer slice = head.buffer.duplicate();
+        slice.position(head.readPosition).limit(end);
+        return slice.slice();
+    }
+
+    public void advance(int numBytes) {
+        Segment head = segments.peekFirst();
+        if (head != null) {
+            head.readPosition += numBytes;
+            saveReadOffset(head);
+        }
+    }
+
+    public boolean isEmpty() {
+        return segments.stream().allMatch(Segment::isFullyRead);
+    }
+
+    public void shutDown() {
+        segments.forEach(segment -> segment.buffer.force());
+    }
+
+    private void append(ByteBuffer line) {
+        int length = line.remaining();
+        if (length > segmentSize) {
+            log.warn("Line of {} bytes exceeds spool segment size. We drop it.", length);
+            return;
+        }
+        Segment tail = segments.peekLast();
+        if (tail == null || tail.writePosition + length > segmentSize) {
+            if (tail != null) {
+                tail.buffer.force();
+            }
+            tail = createSegment();
+            if (tail == null) {
+                return;
+            }
+        }
+        ByteBuffer buffer = tail.buffer.duplicate();
+        buffer.position(tail.writePosition);
+        buffer.put(line);
+        tail.writePosition += length;
+    }
+
+    private Segment createSegment() {
+        while (segments.size() >= maxSegments) {
+            Segment oldest = segments.peekFirst();
+            log.warn("Spool exceeds max. size. We delete oldest segment {} with {} unsent bytes",
+                    oldest.file.getName(), oldest.writePosition - oldest.readPosition);
+            deleteOldestSegment();
+        }
+        long index = nextSegmentIndex++;
+        File file = new File(dir, String.format("%s%019d%s", FILE_PREFIX, index, FILE_SUFFIX));
+        try {
+            Segment segment = new Segment(file, index, segmentSize);
+            segments.addLast(segment);
+            return segment;
+        } catch (IOException e) {
+            log.error("Could not create spool segment {}. {}", file, e.getMessage());
+            return null;
+        }
+    }
+
+    private void deleteOldestSegment() {
+        Segment oldest = segments.pollFirst();
+        if (oldest != null) {
+            // Slices returned by peek are consumed before the next call, so nothing refers to the mapping anymore
+            unmap(oldest.buffer);
+            if (!oldest.file.delete()) {
+                log.warn("Could not delete spool segment {}", oldest.file);
+            }
+        }
+    }
+
+    private void saveReadOffset(Segment head) {
+        try {
+            Files.write(offsetTempFile.toPath(),
+                    (head.index + " " + head.readPosition).getBytes(StandardCharsets.US_ASCII));
+            Files.move(offsetTempFile.toPath(), offsetFile.toPath(),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            log.warn("Could not save spool read offset. {}", e.getMessage());
+        }
+    }
+
+    // Returns {segment index, read position} or null if there is no valid offset file
+    private long[] loadReadOffset() {
+        if (!offsetFile.exists()) {
+            return null;
+        }
+        try {
+            String[] tokens = new String(Files.readAllBytes(offsetFile.toPath()), StandardCharsets.US_ASCII)
+                    .trim().split(" ");
+            return new long[]{Long.parseLong(tokens[0]), Long.parseLong(tokens[1])};
+        } catch (IOException | RuntimeException e) {
+            log.warn("Could not read spool read offset from {}. We replay all segments. {}", offsetFile, e.getMessage());
+            return null;
+        }
+    }
+
+    private void recover() {
+        File[] files = dir.listFiles((d, name) -> name.startsWith(FILE_PREFIX) && name.endsWith(FILE_SUFFIX));
+        if (files == null) {
+            return;
+        }
+        Arrays.sort(files);
+        long[] readOffset = loadReadOffset();
+        for (File file : files) {
+            try {
+                long index = Long.parseLong(file.getName().substring(FILE_PREFIX.length(),
+                        file.getName().length() - FILE_SUFFIX.length()));
+                nextSegmentIndex = Math.max(nextSegmentIndex, index + 1);
+                if (readOffset != null && index < readOffset[0]) {
+                    // Fully replayed before the restart
+                    if (!file.delete()) {
+                        log.warn("Could not delete replayed spool segment {}", file);
+                    }
+                    continue;
+                }
+                Segment segment = new Segment(file, index, (int) Math.max(file.length(), segmentSize));
+                if (readOffset != null && index == readOffset[0]) {
+                    segment.readPosition = (int) Math.min(readOffset[1], segment.writePosition);
+                }
+                if (segment.writePosition > 0) {
+                    segments.addLast(segment);
+                } else {
+                    unmap(segment.buffer);
+                    if (!file.delete()) {
+                        log.warn("Could not delete empty spool segment {}", file);
+                    }
+                }
+            } catch (IOException | NumberFormatException e) {
+                log.error("Could not recover spool segment {}. {}", file, e.getMessage());
+            }
+        }
+        while (segments.size() > maxSegments) {
+            deleteOldestSegment();
+        }
+        if (!segments.isEmpty()) {
+            log.info("Recovered {} spool segments from {}", segments.size(), dir);
+        }
+    }
+
+    private static void unmap(MappedByteBuffer buffer) {
+        if (!Util.unmap(buffer)) {
+            log.debug("Could not unmap spool segment. It gets released by the GC.");
+        }
+    }
+
+    private static class Segment {
+        private final File file;
+        private final long index;
+        private final MappedByteBuffer buffer;
+        private int writePosition;
+        private int readPosition;
+
+        private Segment(File file, long index, int size) throws IOException {
+            this.file = file;
+            this.index = index;
+            try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                // The mapping stays valid after the channel is closed
+                buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            }
+            while (writePosition < size && buffer.get(writePosition) != 0) {
+                writePosition++;
+            }
+        }
+
+        private boolean isFullyRead() {
+            return readPosition >= writePosition;
+        }
+    }
+}
@@ -0,0 +1,457 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.monitor.reporter;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Decodes pickle payloads of the form [(path, (timestamp, value)), ...] as sent to the carbon pickle receiver.
+ * Supports the protocol 2 opcodes written by {@link PickleEncoder} and the protocol 0 text opcodes written by the
+ * former pickle writer and by the Python clients, which is enough for metric payloads but not a general unpickler.
+ * Not thread safe.
+ */
+public class PickleDecoder {
+    private static final byte MARK = '(';
+    private static final byte STOP = '.';
+    private static final byte POP = '0';
+    private static final byte POP_MARK = '1';
+    private static final byte NONE = 'N';
+    private static final byte INT = 'I';
+    private static final byte BININT = 'J';
+    private static final byte BININT1 = 'K';
+    private static final byte BININT2 = 'M';
+    private static final byte LONG = 'L';
+    private static final byte LONG1 = (byte) 0x8a;
+    private static final byte FLOAT = 'F';
+    private static final byte BINFLOAT = 'G';
+    private static final byte STRING = 'S';
+    private static final byte BINSTRING = 'T';
+    private static final byte SHORT_BINSTRING = 'U';
+    private static final byte UNICODE = 'V';
+    private static final byte BINUNICODE = 'X';
+    private static final byte SHORT_BINUNICODE = (byte) 0x8c;
+    private static final byte EMPTY_LIST = ']';
+    private static final byte LIST = 'l';
+    private static final byte APPEND = 'a';
+    private static final byte APPENDS = 'e';
+    private static final byte EMPTY_TUPLE = ')';
+    private static final byte TUPLE = 't';
+    private static final byte TUPLE1 = (byte) 0x85;
+    private static final byte TUPLE2 = (byte) 0x86;
+    private static final byte TUPLE3 = (byte) 0x87;
+    private static final byte PUT = 'p';
+    private static final byte BINPUT = 'q';
+    private static final byte LONG_BINPUT = 'r';
+    private static final byte MEMOIZE = (byte) 0x94;
+    private static final byte GET = 'g';
+    private static final byte BINGET = 'h';
+    private static final byte LONG_BINGET = 'j';
+    private static final byte PROTO = (byte) 0x80;
+    private static final byte FRAME = (byte) 0x95;
+    private static final byte NEWTRUE = (byte) 0x88;
+    private static final byte NEWFALSE = (byte) 0x89;
+
+    private static final Object MARK_OBJECT = new Object();
+
+    private final Deque<Object> stack = new ArrayDeque<>();
+    private final Map<Integer, Object> memo = new HashMap<>();
+
+    /**
+     * @param payload the pickle without the length header. Gets consumed up to and including the STOP opcode.
+     * @return the decoded metrics, with the path taken as absolute name (incl. root) and the original timestamp.
+     * @throws IllegalArgumentException if the payload is not a valid metric pickle
+     */
+    public List<Metrics> decode(ByteBuffer payload) {
+        stack.clear();
+        memo.clear();
+        ByteOrder order = payload.order();
+        payload.order(ByteOrder.LITTLE_ENDIAN);
+        try {
+            return toMetrics(unpickle(payload));
+        } finally {
+            payload.order(order);
+        }
+    }
+
+    private Object unpickle(ByteBuffer in) {
+        while (in.hasRemaining()) {
+            byte opcode = in.get();
+            switch (opcode) {
+                case PROTO:
+                    in.get();
+                    break;
+                case FRAME:
+                    in.getLong();
+                    break;
+                case STOP:
+                    return pop();
+                case MARK:
+                    stack.push(MARK_OBJECT);
+                    break;
+                case POP:
+                    pop();
+                    break;
+                case POP_MARK:
+                    popToMark();
+                    break;
+                case NONE:
+                    // ArrayDeque does not accept null
+                    stack.push("None");
+                    break;
+                case NEWTRUE:
+                    stack.push(1L);
+                    break;
+                case NEWFALSE:
+                    stack.push(0L);
+                    break;
+                case INT:
+                    stack.push(parseInt(readLine(in)));
+                    break;
+                case BININT:
+                    stack.push((long) in.getInt());
+                    break;
+                case BININT1:
+                    stack.push((long) (in.get() & 0xff));
+                    break;
+                case BININT2:
+                    stack.push((long) (in.getShort() & 0xffff));
+                    break;
+                case LONG:
+                    stack.push(parseLong(readLine(in)));
+                    break;
+                case LONG1:
+                    stack.push(readLong1(in));
+                    break;
+                case FLOAT:
+                    stack.push(Double.parseDouble(readLine(in)));
+                    break;
+                case BINFLOAT:
+                    // The only big endian number in the protocol
+                    stack.push(Double.longBitsToDouble(Long.reverseBytes(in.getLong())));
+                    break;
+                case STRING:
+                    stack.push(decodeStringRepr(readLineBytes(in)));
+                    break;
+                case BINSTRING:
+                case BINUNICODE:
+                    stack.push(readString(in, in.getInt()));
+                    break;
+                case SHORT_BINSTRING:
+                case SHORT_BINUNICODE:
+                    stack.push(readString(in, in.get() & 0xff));
+                    break;
+                case UNICODE:
+                    stack.push(decodeRawUnicodeEscape(readLineBytes(in)));
+                    break;
+                case EMPTY_LIST:
+                    stack.push(new ArrayList<>());
+                    break;
+                case LIST:
+                    stack.push(popToMark());
+                    break;
+                case APPEND: {
+                    Object item = pop();
+                    asList(peek()).add(item);
+                    break;
+                }
+                case APPENDS: {
+                    List<Object> items = popToMark();
+                    asList(peek()).addAll(items);
+                    break;
+                }
+                case EMPTY_TUPLE:
+                    stack.push(new Object[0]);
+                    break;
+                case TUPLE:
+                    stack.push(popToMark().toArray());
+                    break;
+                case TUPLE1:
+                    stack.push(popTuple(1));
+                    break;
+                case TUPLE2:
+                    stack.push(popTuple(2));
+                    break;
+                case TUPLE3:
+                    stack.push(popTuple(3));
+                    break;
+                case PUT:
+                    memo.put(Integer.parseInt(readLine(in)), peek());
+                    break;
+                case BINPUT:
+                    memo.put(in.get() & 0xff, peek());
+                    break;
+                case LONG_BINPUT:
+                    memo.put(in.getInt(), peek());
+                    break;
+                case MEMOIZE:
+                    memo.put(memo.size(), peek());
+                    break;
+                case GET:
+                    stack.push(getMemo(Integer.parseInt(readLine(in))));
+                    break;
+                case BINGET:
+                    stack.push(getMemo(in.get() & 0xff));
+                    break;
+                case LONG_BINGET:
+                    stack.push(getMemo(in.getInt()));
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unsupported pickle opcode 0x" +
+                            Integer.toHexString(opcode & 0xff) + " at position " + (in.position() - 1));
+            }
+        }
+        throw new IllegalArgumentException("Pickle payload without STOP opcode");
+    }
+
+    private static List<Metrics> toMetrics(Object root) {
+        List<Object> items = asList(root);
+        List<Metrics> result = new ArrayList<>(items.size());
+        for (Object item : items) {
+            Object[] tuple = asTuple(item, 2);
+            Object[] datapoint = asTuple(tuple[1], 2);
+            MetricName name = MetricName.of(String.valueOf(tuple[0]));
+            long timeStampInSec = toNumber(datapoint[0]).longValue();
+            result.add(toMetrics(name, datapoint[1], timeStampInSec));
+        }
+        return result;
+    }
+
+    private static Metrics toMetrics(MetricName name, Object value, long timeStampInSec) {
+        if (value instanceof Long || value instanceof BigInteger) {
+            return new Metrics(name, ((Number) value).longValue(), timeStampInSec);
+        } else if (value instanceof Double) {
+            return new Metrics(name, (double) value, timeStampInSec);
+        }
+        // The former pickle writer sent all values as strings
+        String string = String.valueOf(value);
+        try {
+            return new Metrics(name, Long.parseLong(string), timeStampInSec);
+        } catch (NumberFormatException ignore) {
+        }
+        try {
+            return new Metrics(name, Double.parseDouble(string), timeStampInSec);
+        } catch (NumberFormatException ignore) {
+        }
+        return new Metrics(name, string, timeStampInSec);
+    }
+
+    private static Number toNumber(Object value) {
+        if (value instanceof Number) {
+            return (Number) value;
+        }
+        // Protocol 0 strings, e.g. a timestamp sent as '1700000000'
+        return Double.parseDouble(String.valueOf(value));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<Object> asList(Object value) {
+        if (!(value instanceof List)) {
+            throw new IllegalArgumentException("Expected a list but got " + describe(value));
+        }
+        return (List<Object>) value;
+    }
+
+    private static Object[] asTuple(Object value, int length) {
+        if (!(value instanceof Object[]) || ((Object[]) value).length != length) {
+            throw new IllegalArgumentException("Expected a tuple of " + length + " but got " + describe(value));
+        }
+        return (Object[]) value;
+    }
+
+    private static String describe(Object value) {
+        return value == null ? "null" : value.getClass().getSimpleName();
+    }
+
+    private Object pop() {
+        Object value = stack.poll();
+        if (value == null || value == MARK_OBJECT) {
+            throw new IllegalArgumentException("Pickle stack underflow");
+        }
+        return value;
+    }
+
+    private Object peek() {
+        Object value = stack.peek();
+        if (value == null || value == MARK_OBJECT) {
+            throw new IllegalArgumentException("Pickle stack underflow");
+        }
+        return value;
+    }
+
+    private List<Object> popToMark() {
+        ArrayList<Object> items = new ArrayList<>();
+        Object value;
+        while ((value = stack.poll()) != MARK_OBJECT) {
+            if (value == null) {
+                throw new IllegalArgumentException("Pickle MARK not found");
+            }
+            items.add(value);
+        }
+        // The stack returns the items in reverse order
+        for (int i = 0, j = items.size() - 1; i < j; i++, j--) {
+            items.set(i, items.set(j, items.get(i)));
+        }
+        return items;
+    }
+
+    private Object[] popTuple(int length) {
+        Object[] tuple = new Object[length];
+        for (int i = length - 1; i >= 0; i--) {
+            tuple[i] = pop();
+        }
+        return tuple;
+    }
+
+    private Object getMemo(int key) {
+        Object value = memo.get(key);
+        if (value == null) {
+            throw new IllegalArgumentException("Pickle memo key " + key + " not found");
+        }
+        return value;
+    }
+
+    private static String readLine(ByteBuffer in) {
+        return new String(readLineBytes(in), StandardCharsets.UTF_8);
+    }
+
+    private static byte[] readLineBytes(ByteBuffer in) {
+        int start = in.position();
+        int end = start;
+        while (end < in.limit() && in.get(end) != '\n') {
+            end++;
+        }
+        if (end == in.limit()) {
+            throw new IllegalArgumentException("Unterminated pickle text argument at position " + start);
+        }
+        byte[] bytes = new byte[end - start];
+        in.get(bytes);
+        in.get();
+        return bytes;
+    }
+
+    private static String readString(ByteBuffer in, int length) {
+        if (length < 0 || length > in.remaining()) {
+            throw new IllegalArgumentException("Invalid pickle string length " + length);
+        }
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static Object parseInt(String value) {
+        // Protocol 0 writes booleans as I00/I01
+        if ("00".equals(value)) {
+            return 0L;
+        } else if ("01".equals(value)) {
+            return 1L;
+        }
+        return parseLong(value);
+    }
+
+    private static Object parseLong(String value) {
+        String digits = value.endsWith("L") ? value.substring(0, value.length() - 1) : value;
+        BigInteger bigInteger = new BigInteger(digits);
+        return bigInteger.bitLength() < 64 ? (Object) bigInteger.longValue() : bigInteger;
+    }
+
+    private static Object readLong1(ByteBuffer in) {
+        int numBytes = in.get() & 0xff;
+        if (numBytes > in.remaining()) {
+            throw new IllegalArgumentException("Invalid pickle LONG1 length " + numBytes);
+        }
+        // Little endian two's complement
+        byte[] bigEndian = new byte[Math.max(1, numBytes)];
+        for (int i = numBytes - 1; i >= 0; i--) {
+            bigEndian[i] = in.get();
+        }
+        BigInteger bigInteger = numBytes == 0 ? BigInteger.ZERO : new BigInteger(bigEndian);
+        return bigInteger.bitLength() < 64 ? (Object) bigInteger.longValue() : bigInteger;
+    }
+
+    // Protocol 0 string, which is python 2's repr() of the bytes, e.g. 'v\xc3\xa4l' for the UTF-8 of "väl"
+    private static String decodeStringRepr(byte[] bytes) {
+        int start = 0;
+        int end = bytes.length;
+        if (end >= 2 && (bytes[0] == '\'' || bytes[0] == '"') && bytes[end - 1] == bytes[0]) {
+            start++;
+            end--;
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream(end - start);
+        for (int i = start; i < end; i++) {
+            byte b = bytes[i];
+            if (b != '\\' || i + 1 == end) {
+                out.write(b);
+                continue;
+            }
+            byte escaped = bytes[++i];
+            switch (escaped) {
+                case 'n':
+                    out.write('\n');
+                    break;
+                case 'r':
+                    out.write('\r');
+                    break;
+                case 't':
+                    out.write('\t');
+                    break;
+                case 'x':
+                    if (i + 2 >= end) {
+                        throw new IllegalArgumentException("Invalid pickle string escape");
+                    }
+                    out.write(Integer.parseInt(new String(bytes, i + 1, 2, StandardCharsets.US_ASCII), 16));
+                    i += 2;
+                    break;
+                default:
+                    // \\, \' and \"
+                    out.write(escaped);
+            }
+        }
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    // Protocol 0 unicode is python's raw-unicode-escape: latin-1 with \\uXXXX and \\UXXXXXXXX for other characters.
+    // Backslash and newline are always escaped, so a backslash followed by u or U starts an escape.
+    private static String decodeRawUnicodeEscape(byte[] bytes) {
+        StringBuilder sb = new StringBuilder(bytes.length);
+        for (int i = 0; i < bytes.length; i++) {
+            int b = bytes[i] & 0xff;
+            if (b == '\\' && i + 1 < bytes.length && (bytes[i + 1] == 'u' || bytes[i + 1] == 'U')) {
+                int numDigits = bytes[i + 1] == 'u' ? 4 : 8;
+                if (i + 2 + numDigits > bytes.length) {
+                    throw new IllegalArgumentException("Invalid pickle unicode escape");
+                }
+                String hex = new String(bytes, i + 2, numDigits, StandardCharsets.US_ASCII);
+                sb.appendCodePoint(Integer.parseInt(hex, 16));
+                i += 1 + numDigits;
+            } else {
+                sb.append((char) b);
+            }
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,144 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.monitor.reporter;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+
+/**
+ * Encodes metrics as binary pickle (protocol 2) of the form [(path, (timestamp, value)), ...] as expected by the
+ * carbon pickle receiver. The payload is written into a reusable direct buffer and the length prefix is computed from
+ * the encoded bytes.
+ * See: <a href="https://github.com/python/cpython/blob/2.7/Lib/pickletools.py">pickletools</a> for the opcodes.
+ * Not thread safe. Each sender thread should use its own instance.
+ */
+public class PickleEncoder {
+    private static final byte PROTO = (byte) 0x80;
+    private static final byte PROTOCOL_VERSION = 2;
+    private static final byte EMPTY_LIST = ']';
+    private static final byte MARK = '(';
+    private static final byte BINUNICODE = 'X';
+    private static final byte BININT = 'J';
+    private static final byte LONG1 = (byte) 0x8a;
+    private static final byte BINFLOAT = 'G';
+    private static final byte TUPLE2 = (byte) 0x86;
+    private static final byte APPENDS = 'e';
+    private static final byte STOP = '.';
+
+    // Opcodes and numbers per item without path and value
+    private static final int ITEM_OVERHEAD = 32;
+    private static final int MAX_NUMBER_LENGTH = 10;
+
+    private final ByteBuffer header = ByteBuffer.allocateDirect(4);
+    private ByteBuffer payload;
+
+    public PickleEncoder(int initialCapacity) {
+        payload = ByteBuffer.allocateDirect(initialCapacity);
+    }
+
+    /**
+     * @return the length header and the payload, ready to be used for a gathering write. Only valid until the next
+     * call.
+     */
+    public ByteBuffer[] encode(Collection<Metrics> metricsCollection) {
+        payload.clear();
+        ensureCapacity(4);
+        payload.put(PROTO).put(PROTOCOL_VERSION).put(EMPTY_LIST).put(MARK);
+        for (Metrics metrics : metricsCollection) {
+            ensureCapacity(getMaxItemLength(metrics));
+            // (path, (timestamp, value))
+            putUnicode(metrics.getName());
+            putLong(metrics.getTimeStampInSec());
+            putValue(metrics);
+            payload.put(TUPLE2).put(TUPLE2);
+        }
+        ensureCapacity(2);
+        payload.put(APPENDS).put(STOP);
+        payload.flip();
+
+        header.clear();
+        header.putInt(payload.remaining()).flip();
+        return new ByteBuffer[]{header, payload};
+    }
+
+    private static int getMaxItemLength(Metrics metrics) {
+        int valueLength = metrics.getType() == Metrics.Type.STRING ?
+                metrics.getStringValue().length() * 3 + 5 :
+                MAX_NUMBER_LENGTH;
+        return ITEM_OVERHEAD + metrics.getName().getEncodedLength() + valueLength;
+    }
+
+    private void putValue(Metrics metrics) {
+        switch (metrics.getType()) {
+            case LONG:
+                putLong(metrics.getLongValue());
+                break;
+            case DOUBLE:
+                // BINFLOAT is big endian
+                payload.put(BINFLOAT).putDouble(metrics.getDoubleValue());
+                break;
+            case STRING:
+            default:
+                putUnicode(metrics.getStringValue());
+        }
+    }
+
+    private void putUnicode(MetricName name) {
+        payload.put(BINUNICODE).putInt(Integer.reverseBytes(name.getEncodedLength()));
+        name.writeTo(payload);
+    }
+
+    private void putUnicode(String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        payload.put(BINUNICODE).putInt(Integer.reverseBytes(bytes.length)).put(bytes);
+    }
+
+    private void putLong(long value) {
+        if (value == (int) value) {
+            // BININT is a 4 byte signed little endian int
+            payload.put(BININT).putInt(Integer.reverseBytes((int) value));
+            return;
+        }
+
+        // LONG1 is a little endian two's complement number with a one byte length prefix
+        int numBytes = 8;
+        while (numBytes > 1 && fitsInBytes(value, numBytes - 1)) {
+            numBytes--;
+        }
+        payload.put(LONG1).put((byte) numBytes);
+        for (int i = 0; i < numBytes; i++) {
+            payload.put((byte) (value >> (8 * i)));
+        }
+    }
+
+    private static boolean fitsInBytes(long value, int numBytes) {
+        long limit = 1L << (8 * numBytes - 1);
+        return value >= -limit && value < limit;
+    }
+
+    private void ensureCapacity(int additional) {
+        if (payload.remaining() < additional) {
+            int capacity = Math.max(payload.capacity() * 2, payload.position() + additional);
+            ByteBuffer grown = ByteBuffer.allocateDirect(capacity);
+            payload.flip();
+            grown.put(payload);
+            payload = grown;
+        }
+    }
+}
@@ -0,0 +1,203 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.monitor.reporter;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps the latest value per series and serves them in the Prometheus text exposition format at /metrics.
+ * The response is rendered into a reused buffer and only re-rendered if a value has changed since the last scrape.
+ * Metric paths are converted to valid Prometheus names by replacing all invalid characters with '_'. If two paths map
+ * to the same name, only the first one is exposed and the other one is dropped with a warning.
+ * String values which are not numbers are ignored.
+ * <p>
+ * Samples are written without timestamp. Our timestamps are often block or trade times which can be hours old, and
+ * Prometheus would drop such samples as out of bounds. The scrape time is what we want here.
+ */
+@Slf4j
+public class PrometheusReporter extends Reporter {
+    private static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    private final Map<MetricName, Series> seriesByName = new ConcurrentHashMap<>();
+    // Prometheus name to the path which claimed it first
+    private final Map<String, MetricName> ownerByPrometheusName = new ConcurrentHashMap<>();
+    private final AtomicLong version = new AtomicLong();
+    private final HttpServer server;
+
+    // Guarded by this. Only used by the http server thread.
+    private final MetricsEncoder encoder = new MetricsEncoder(16);
+    private ByteBuffer response = ByteBuffer.allocate(64 * 1024);
+    private long renderedVersion = -1;
+
+    public PrometheusReporter(Properties properties) {
+        String host = properties.getProperty("PrometheusReporter.host", "127.0.0.1");
+        int port = Integer.parseInt(properties.getProperty("PrometheusReporter.port", "9400"));
+        try {
+            server = HttpServer.create(new InetSocketAddress(host, port), 0);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        server.createContext("/metrics", this::onScrape);
+        server.setExecutor(Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "PrometheusReporter");
+            thread.setDaemon(true);
+            return thread;
+        }));
+        server.start();
+        log.info("PrometheusReporter listening on {}:{}", host, port);
+    }
+
+    @Override
+    public void report(Metrics metrics) {
+        update(metrics);
+        version.incrementAndGet();
+    }
+
+    @Override
+    public void report(Collection<Metrics> metrics) {
+        metrics.forEach(this::update);
+        version.incrementAndGet();
+    }
+
+    @Override
+    public void shutDown() {
+        server.stop(0);
+    }
+
+    private void update(Metrics metrics) {
+        if (metrics.getType() == Metrics.Type.STRING) {
+            try {
+                metrics = new Metrics(metrics.getName(), Double.parseDouble(metrics.getStringValue()),
+                        metrics.getTimeStampInSec());
+            } catch (NumberFormatException e) {
+                return;
+            }
+        }
+        Series series = seriesByName.get(metrics.getName());
+        if (series == null) {
+            series = seriesByName.computeIfAbsent(metrics.getName(), this::createSeries);
+        }
+        series.latest = metrics;
+    }
+
+    private Series createSeries(MetricName metricName) {
+        String prometheusName = Series.toPrometheusName(metricName.getPath());
+        MetricName owner = ownerByPrometheusName.putIfAbsent(prometheusName, metricName);
+        boolean isCollision = owner != null && owner != metricName;
+        if (isCollision) {
+            log.warn("Metric {} maps to the same Prometheus name {} as {}. We drop it.",
+                    metricName, prometheusName, owner);
+        }
+        return new Series(prometheusName, isCollision);
+    }
+
+    private synchronized void onScrape(HttpExchange exchange) throws IOException {
+        try {
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            long currentVersion = version.get();
+            if (currentVersion != renderedVersion) {
+                render();
+                renderedVersion = currentVersion;
+            }
+            exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+            exchange.sendResponseHeaders(200, response.position());
+            OutputStream outputStream = exchange.getResponseBody();
+            outputStream.write(response.array(), 0, response.position());
+        } catch (Throwable t) {
+            log.error("Error at scrape: {}", t.getMessage());
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void render() {
+        response.clear();
+        seriesByName.values().forEach(series -> {
+            if (series.isCollision) {
+                return;
+            }
+            Metrics latest = series.latest;
+            ensureCapacity(series.name.length + 64);
+            response.put(series.name).put((byte) ' ');
+            putValue(latest);
+            response.put((byte) '\n');
+        });
+    }
+
+    private void putValue(Metrics metrics) {
+        double value = metrics.getDoubleValue();
+        if (metrics.getType() == Metrics.Type.DOUBLE && Double.isInfinite(value)) {
+            // The exposition format uses +Inf/-Inf, not Java's Infinity
+            response.put((value > 0 ? "+Inf" : "-Inf").getBytes(StandardCharsets.US_ASCII));
+        } else {
+            encoder.putValue(response, metrics);
+        }
+    }
+
+    private void ensureCapacity(int additional) {
+        if (response.remaining() < additional) {
+            ByteBuffer grown = ByteBuffer.allocate(Math.max(response.capacity() * 2, response.position() + additional));
+            response.flip();
+            grown.put(response);
+            response = grown;
+        }
+    }
+
+    private static class Series {
+        private final byte[] name;
+        // Another path already uses the name. Not rendered.
+        private final boolean isCollision;
+        private volatile Metrics latest;
+
+        private Series(String prometheusName, boolean isCollision) {
+            name = prometheusName.getBytes(StandardCharsets.US_ASCII);
+            this.isCollision = isCollision;
+        }
+
+        private static String toPrometheusName(String path) {
+            StringBuilder sb = new StringBuilder(path.length() + 1);
+            if (path.isEmpty() || Character.isDigit(path.charAt(0))) {
+                sb.append('_');
+            }
+            for (int i = 0; i < path.length(); i++) {
+                char c = path.charAt(i);
+                boolean valid = (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '_';
+                sb.append(valid ? c : '_');
+            }
+            return sb.toString();
+        }
+    }
+}
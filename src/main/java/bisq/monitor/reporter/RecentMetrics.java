@@ -0,0 +1,266 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.monitor.reporter;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * Last pointsPerSeries metrics of each series in memory, for serving queries without hitting Graphite.
+ * Each series has its own ring buffer, so recording only locks the series it writes to.
+ * The number of series is limited by maxSeries. If it is reached, series which did not get a metric for maxIdleMs are
+ * removed to make room, e.g. after seed addresses rotated. Metrics of further series are ignored while none is idle.
+ */
+@Slf4j
+public class RecentMetrics {
+    // At most one scan for idle series per interval, so a full store does not scan for every ignored metric
+    private static final long EVICTION_INTERVAL_MS = 1000;
+
+    private final Map<MetricName, Series> seriesByName = new ConcurrentHashMap<>();
+    private final int pointsPerSeries;
+    private final int maxSeries;
+    private final long maxIdleMs;
+    private final AtomicInteger numSeries = new AtomicInteger();
+    private final AtomicLong nextEvictionMs = new AtomicLong();
+    private final LongAdder ignoredCount = new LongAdder();
+
+    public RecentMetrics(int pointsPerSeries, int maxSeries) {
+        this(pointsPerSeries, maxSeries, TimeUnit.DAYS.toMillis(1));
+    }
+
+    public RecentMetrics(int pointsPerSeries, int maxSeries, long maxIdleMs) {
+        this.pointsPerSeries = pointsPerSeries;
+        this.maxSeries = maxSeries;
+        this.maxIdleMs = maxIdleMs;
+    }
+
+    public void record(Metrics metrics) {
+        record(metrics, System.currentTimeMillis());
+    }
+
+    void record(Metrics metrics, long now) {
+        Series series = seriesByName.get(metrics.getName());
+        if (series == null) {
+            series = addSeries(metrics.getName(), now);
+            if (series == null && evictIdleSeries(now)) {
+                series = addSeries(metrics.getName(), now);
+            }
+            if (series == null) {
+                ignoredCount.increment();
+                return;
+            }
+        }
+        series.add(metrics, now);
+    }
+
+    /**
+     * Calls consumer for each series matching the pattern with its metrics in the time range, oldest first.
+     * Series without metrics in the range are skipped.
+     *
+     * @param pattern Path pattern created by {@link #toPattern(String)}.
+     */
+    public void query(Pattern pattern,
+                      long fromTimeStampInSec,
+                      long toTimeStampInSec,
+                      BiConsumer<MetricName, List<Metrics>> consumer) {
+        seriesByName.forEach((name, series) -> {
+            if (pattern.matcher(name.getPath()).matches()) {
+                List<Metrics> metrics = series.get(fromTimeStampInSec, toTimeStampInSec);
+                if (!metrics.isEmpty()) {
+                    consumer.accept(name, metrics);
+                }
+            }
+        });
+    }
+
+    private Series addSeries(MetricName metricName, long now) {
+        // A slot is reserved before the series is added, so concurrent new series cannot exceed maxSeries
+        return seriesByName.computeIfAbsent(metricName, name -> {
+            if (numSeries.getAndIncrement() >= maxSeries) {
+                numSeries.decrementAndGet();
+                return null;
+            }
+            return new Series(pointsPerSeries, now);
+        });
+    }
+
+    /**
+     * @return true if at least one series got removed
+     */
+    private boolean evictIdleSeries(long now) {
+        long next = nextEvictionMs.get();
+        if (now < next || !nextEvictionMs.compareAndSet(next, now + EVICTION_INTERVAL_MS)) {
+            return false;
+        }
+        int numEvicted = 0;
+        for (Map.Entry<MetricName, Series> entry : seriesByName.entrySet()) {
+            if (now - entry.getValue().lastAddedMs > maxIdleMs &&
+                    seriesByName.remove(entry.getKey(), entry.getValue())) {
+                numSeries.decrementAndGet();
+                numEvicted++;
+            }
+        }
+        if (numEvicted > 0) {
+            log.info("Removed {} series without metrics for {} ms", numEvicted, maxIdleMs);
+        }
+        return numEvicted > 0;
+    }
+
+    /**
+     * @param pattern Path pattern created by {@link #toPattern(String)}.
+     */
+    public List<MetricName> getNames(Pattern pattern) {
+        List<MetricName> names = new ArrayList<>();
+        seriesByName.keySet().forEach(name -> {
+            if (pattern.matcher(name.getPath()).matches()) {
+                names.add(name);
+            }
+        });
+        return names;
+    }
+
+    public int getNumSeries() {
+        return seriesByName.size();
+    }
+
+    public long getIgnoredCount() {
+        return ignoredCount.sum();
+    }
+
+    /**
+     * @param glob Graphite style path pattern: '*' and '?' match within a segment, {a,b} matches alternatives and
+     *             [a-z0-9] or [!abc] match a single character of the class.
+     * @throws IllegalArgumentException if the glob is malformed. The message is meant for the client.
+     */
+    public static Pattern toPattern(String glob) {
+        StringBuilder regex = new StringBuilder();
+        boolean inAlternatives = false;
+        for (int i = 0; i < glob.length(); i++) {
+            char c = glob.charAt(i);
+            switch (c) {
+                case '*':
+                    regex.append("[^.]*");
+                    break;
+                case '?':
+                    regex.append("[^.]");
+                    break;
+                case '[':
+                    i = appendCharacterClass(glob, i, regex);
+                    break;
+                case '{':
+                    if (inAlternatives) {
+                        throw new IllegalArgumentException("Nested { in target " + glob);
+                    }
+                    inAlternatives = true;
+                    regex.append("(?:");
+                    break;
+                case '}':
+                    if (!inAlternatives) {
+                        throw new IllegalArgumentException("Unbalanced } in target " + glob);
+                    }
+                    inAlternatives = false;
+                    regex.append(')');
+                    break;
+                case ',':
+                    regex.append(inAlternatives ? "|" : ",");
+                    break;
+                default:
+                    regex.append(Pattern.quote(String.valueOf(c)));
+            }
+        }
+        if (inAlternatives) {
+            throw new IllegalArgumentException("Unbalanced { in target " + glob);
+        }
+        try {
+            return Pattern.compile(regex.toString());
+        } catch (PatternSyntaxException e) {
+            // E.g. a range like [z-a]
+            throw new IllegalArgumentException("Invalid target " + glob);
+        }
+    }
+
+    /**
+     * @return the index of the closing ']'
+     */
+    private static int appendCharacterClass(String glob, int start, StringBuilder regex) {
+        int end = glob.indexOf(']', start + 1);
+        if (end < 0) {
+            throw new IllegalArgumentException("Unclosed [ in target " + glob);
+        }
+        int first = start + 1;
+        boolean negated = first < end && (glob.charAt(first) == '!' || glob.charAt(first) == '^');
+        if (negated) {
+            first++;
+        }
+        if (first == end) {
+            throw new IllegalArgumentException("Empty character class in target " + glob);
+        }
+        // Like '*' and '?' a negated class does not match the segment separator
+        regex.append(negated ? "[^." : "[");
+        for (int i = first; i < end; i++) {
+            char c = glob.charAt(i);
+            boolean isRange = c == '-' && i > first && i < end - 1;
+            if (!isRange && !Character.isLetterOrDigit(c)) {
+                regex.append('\\');
+            }
+            regex.append(c);
+        }
+        regex.append(']');
+        return end;
+    }
+
+    private static class Series {
+        private final Metrics[] ring;
+        private long count;
+        private volatile long lastAddedMs;
+
+        private Series(int capacity, long now) {
+            ring = new Metrics[capacity];
+            lastAddedMs = now;
+        }
+
+        private synchronized void add(Metrics metrics, long now) {
+            ring[(int) (count++ % ring.length)] = metrics;
+            lastAddedMs = now;
+        }
+
+        private synchronized List<Metrics> get(long fromTimeStampInSec, long toTimeStampInSec) {
+            int size = (int) Math.min(count, ring.length);
+            List<Metrics> result = new ArrayList<>(size);
+            for (long i = count - size; i < count; i++) {
+                Metrics metrics = ring[(int) (i % ring.length)];
+                long timeStamp = metrics.getTimeStampInSec();
+                if (timeStamp >= fromTimeStampInSec && timeStamp <= toTimeStampInSec) {
+                    result.add(metrics);
+                }
+            }
+            return result;
+        }
+    }
+}
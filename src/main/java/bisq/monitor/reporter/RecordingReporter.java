@@ -0,0 +1,53 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.monitor.reporter;
+
+import lombok.Getter;
+
+import java.util.Collection;
+
+/**
+ * Decorator which records all metrics into {@link RecentMetrics} before passing them to the delegate.
+ */
+public class RecordingReporter extends Reporter {
+    private final Reporter delegate;
+    @Getter
+    private final RecentMetrics recentMetrics;
+
+    public RecordingReporter(Reporter delegate, RecentMetrics recentMetrics) {
+        this.delegate = delegate;
+        this.recentMetrics = recentMetrics;
+    }
+
+    @Override
+    public void report(Metrics metrics) {
+        recentMetrics.record(metrics);
+        delegate.report(metrics);
+    }
+
+    @Override
+    public void report(Collection<Metrics> metrics) {
+        metrics.forEach(recentMetrics::record);
+        delegate.report(metrics);
+    }
+
+    @Override
+    public void shutDown() {
+        delegate.shutDown();
+    }
+}
@@ -17,8 +17,10 @@
 
 package bisq.monitor.reporter;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 import java.util.Map;
-import java.util.Set;
 
 public abstract class Reporter {
 
@@ -27,14 +29,18 @@ public abstract class Reporter {
 
     abstract public void report(Metrics metrics);
 
-    abstract public void report(Set<Metrics> metrics);
+    /**
+     * Bulk version of report(Metrics). Implementations should hand over the whole collection at once instead of
+     * processing each item like a single report.
+     */
+    abstract public void report(Collection<Metrics> metrics);
 
     public void shutDown() {
     }
 
     public void report(Map<String, String> map, String prefix) {
-        map.entrySet().stream()
-                .map(entry -> new Metrics(prefix, entry.getKey(), entry.getValue()))
-                .forEach(this::report);
+        List<Metrics> metrics = new ArrayList<>(map.size());
+        map.forEach((key, value) -> metrics.add(new Metrics(prefix, key, value)));
+        report(metrics);
     }
 }
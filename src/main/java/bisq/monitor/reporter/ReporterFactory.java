@@ -0,0 +1,77 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.monitor.reporter;
+
+import bisq.monitor.reporter.tsdb.TimeSeriesStore;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+@Slf4j
+public class ReporterFactory {
+    /**
+     * @param appDir Data directory of the app. Used by reporters which persist data.
+     */
+    public static Reporter createReporter(Properties properties, File appDir) {
+        List<Reporter> sinks = new ArrayList<>();
+        if ("true".equals(properties.getProperty("GraphiteReporter.enabled", "false"))) {
+            sinks.add(new GraphiteReporter(properties, appDir));
+        }
+        if ("true".equals(properties.getProperty("PrometheusReporter.enabled", "false"))) {
+            sinks.add(new PrometheusReporter(properties));
+        }
+        if ("true".equals(properties.getProperty("InfluxReporter.enabled", "false"))) {
+            sinks.add(new InfluxReporter(properties));
+        }
+
+        Reporter reporter;
+        if (sinks.isEmpty()) {
+            reporter = new ConsoleReporter();
+        } else if (sinks.size() == 1) {
+            reporter = sinks.get(0);
+        } else {
+            // Isolate the sinks from each other, so a slow one does not delay the others
+            reporter = new CompositeReporter(sinks, properties);
+        }
+        if ("true".equals(properties.getProperty("AggregatingReporter.enabled", "false"))) {
+            reporter = new AggregatingReporter(reporter, properties);
+        }
+        if ("true".equals(properties.getProperty("TimeSeriesStore.enabled", "false"))) {
+            if (appDir != null) {
+                // Outermost, so the store gets the raw points and not the aggregates
+                reporter = new TeeReporter(reporter, createTimeSeriesStore(properties, appDir));
+            } else {
+                log.warn("TimeSeriesStore is enabled but no appDir is given. We do not store metrics.");
+            }
+        }
+        return reporter;
+    }
+
+    private static TimeSeriesStore createTimeSeriesStore(Properties properties, File appDir) {
+        int segmentSize = Integer.parseInt(properties.getProperty("TimeSeriesStore.segmentSizeMb", "16")) * 1024 * 1024;
+        int chunkSize = Integer.parseInt(properties.getProperty("TimeSeriesStore.chunkSizeBytes", "1024"));
+        long chunkDurationSec = Long.parseLong(properties.getProperty("TimeSeriesStore.chunkDurationSec", "7200"));
+        long retentionSec = TimeUnit.HOURS.toSeconds(
+                Long.parseLong(properties.getProperty("TimeSeriesStore.retentionHours", "72")));
+        return new TimeSeriesStore(new File(appDir, "tsdb"), segmentSize, chunkSize, chunkDurationSec, retentionSec);
+    }
+}
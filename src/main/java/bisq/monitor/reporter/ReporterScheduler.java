@@ -0,0 +1,121 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.monitor.reporter;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Scheduler thread owned by a reporter for its flushes and periodic tasks. Reporters must not use the UserThread,
+ * which is shared with Bisq core callbacks: a busy UserThread would delay metric delivery and a slow flush would
+ * delay P2P processing.
+ * <p>
+ * Lifecycle: tasks can be scheduled after {@link #start()}. {@link #shutDown(Runnable, long)} cancels all scheduled
+ * tasks, runs a final drain task on the scheduler thread and waits for it until the timeout. Tasks submitted after
+ * shutdown are ignored, so late reports do not throw at the caller.
+ */
+@Slf4j
+public class ReporterScheduler {
+    private final String name;
+    private ScheduledThreadPoolExecutor executor;
+
+    public ReporterScheduler(String name) {
+        this.name = name;
+    }
+
+    public synchronized ReporterScheduler start() {
+        if (executor == null) {
+            executor = new ScheduledThreadPoolExecutor(1, runnable -> {
+                Thread thread = new Thread(runnable, name);
+                thread.setDaemon(true);
+                return thread;
+            });
+            executor.setRemoveOnCancelPolicy(true);
+            executor.setContinueExistingPeriodicTasksAfterShutdownPolicy(false);
+            executor.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+        }
+        return this;
+    }
+
+    public void execute(Runnable task) {
+        try {
+            getExecutor().execute(() -> run(task));
+        } catch (RejectedExecutionException e) {
+            log.debug("{} is shut down. Task ignored.", name);
+        }
+    }
+
+    /**
+     * @return the future of the task or null if the scheduler is shut down
+     */
+    public ScheduledFuture<?> runAfter(Runnable task, long delay, TimeUnit timeUnit) {
+        try {
+            return getExecutor().schedule(() -> run(task), delay, timeUnit);
+        } catch (RejectedExecutionException e) {
+            log.debug("{} is shut down. Task ignored.", name);
+            return null;
+        }
+    }
+
+    public ScheduledFuture<?> runPeriodically(Runnable task, long period, TimeUnit timeUnit) {
+        return getExecutor().scheduleWithFixedDelay(() -> run(task), period, period, timeUnit);
+    }
+
+    /**
+     * Cancels scheduled tasks, runs drainTask (if not null) after the already queued tasks and stops the thread.
+     *
+     * @return true if the drain task completed within timeoutMs
+     */
+    public boolean shutDown(Runnable drainTask, long timeoutMs) {
+        ScheduledThreadPoolExecutor executor = getExecutor();
+        if (drainTask != null) {
+            execute(drainTask);
+        }
+        executor.shutdown();
+        try {
+            if (executor.awaitTermination(timeoutMs, TimeUnit.MILLISECONDS)) {
+                return true;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        log.warn("{} did not finish draining within {} ms", name, timeoutMs);
+        executor.shutdownNow();
+        return false;
+    }
+
+    private synchronized ScheduledThreadPoolExecutor getExecutor() {
+        if (executor == null) {
+            throw new IllegalStateException(name + " is not started");
+        }
+        return executor;
+    }
+
+    // An exception would silently cancel a periodic task
+    private void run(Runnable task) {
+        try {
+            task.run();
+        } catch (Throwable t) {
+            log.error("Error at task of {}", name, t);
+        }
+    }
+}
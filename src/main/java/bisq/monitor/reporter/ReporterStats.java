@@ -0,0 +1,93 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.monitor.reporter;
+
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Health of a reporter, published under monitor.reporter.[reporterName]: queueDepth, dropped, bytesWritten,
+ * connectFailures, writeFailures, secSinceLastFlush and histograms (count, p50, p90, p99, max per interval) for
+ * batchSize and flushLatencyMs.
+ * <p>
+ * Counters are cumulative, so a restart of the monitor shows up as a reset to 0. The recording methods are thread
+ * safe and cheap enough to be called at each flush.
+ */
+public class ReporterStats {
+    private static final long HIGHEST_TRACKABLE_LATENCY = TimeUnit.MINUTES.toMillis(10);
+    private static final long HIGHEST_TRACKABLE_BATCH_SIZE = 1 << 20;
+
+    private final MetricName name;
+    private final LongAdder bytesWritten = new LongAdder();
+    private final LongAdder connectFailures = new LongAdder();
+    private final LongAdder writeFailures = new LongAdder();
+    private final LatencyHistogram batchSizes = new LatencyHistogram(HIGHEST_TRACKABLE_BATCH_SIZE);
+    private final LatencyHistogram flushLatencies = new LatencyHistogram(HIGHEST_TRACKABLE_LATENCY);
+    // Only used inside the synchronized addTo
+    private final LatencyHistogram.Snapshot snapshot = new LatencyHistogram.Snapshot();
+    private volatile long lastSuccessfulFlushTs = System.currentTimeMillis();
+
+    public ReporterStats(String reporterName) {
+        name = MetricName.ROOT.child("monitor").child("reporter").child(reporterName);
+    }
+
+    /**
+     * @param batchSize Number of metrics written. Use 0 for raw payloads, e.g. replayed from the spool.
+     */
+    public void onFlush(int batchSize, long numBytes, long durationMs) {
+        if (batchSize > 0) {
+            batchSizes.record(batchSize);
+        }
+        flushLatencies.record(durationMs);
+        bytesWritten.add(numBytes);
+        lastSuccessfulFlushTs = System.currentTimeMillis();
+    }
+
+    public void onWriteFailure() {
+        writeFailures.increment();
+    }
+
+    public void onConnectFailure() {
+        connectFailures.increment();
+    }
+
+    /**
+     * Adds the current stats to target and resets the histograms.
+     */
+    public synchronized void addTo(Collection<Metrics> target, int queueDepth, long droppedCount) {
+        long now = System.currentTimeMillis();
+        long timeStampInSec = now / 1000;
+        target.add(new Metrics(name.child("queueDepth"), queueDepth, timeStampInSec));
+        target.add(new Metrics(name.child("dropped"), droppedCount, timeStampInSec));
+        target.add(new Metrics(name.child("bytesWritten"), bytesWritten.sum(), timeStampInSec));
+        target.add(new Metrics(name.child("connectFailures"), connectFailures.sum(), timeStampInSec));
+        target.add(new Metrics(name.child("writeFailures"), writeFailures.sum(), timeStampInSec));
+        target.add(new Metrics(name.child("secSinceLastFlush"), (now - lastSuccessfulFlushTs) / 1000, timeStampInSec));
+        addHistogram(target, name.child("batchSize"), batchSizes, timeStampInSec);
+        addHistogram(target, name.child("flushLatencyMs"), flushLatencies, timeStampInSec);
+    }
+
+    private void addHistogram(Collection<Metrics> target,
+                              MetricName histogramName,
+                              LatencyHistogram histogram,
+                              long timeStampInSec) {
+        histogram.snapshotAndReset(snapshot);
+        snapshot.addTo(target, histogramName, timeStampInSec);
+    }
+}
@@ -0,0 +1,229 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.monitor.reporter;
+
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Lock-free bounded ring buffer used as pending queue between the producers of metrics and the sender thread.
+ * Based on the bounded MPMC queue of Dmitry Vyukov: each slot carries a sequence number which tells producers and
+ * consumers if the slot is ready for them, so neither side needs a lock and no node objects get allocated.
+ * <p>
+ * It is used with multiple producers and a single consumer, but polling is also safe from producers which is
+ * required for the DROP_OLDEST policy.
+ * <p>
+ * With the BLOCK policy producers wait at most blockTimeoutMs for free space and then drop the new element. Producers
+ * might run on the scheduler thread which is also used for flushing, so waiting unlimited could cause a deadlock.
+ */
+public class RingBuffer<E> {
+    public enum OverflowPolicy {
+        DROP_OLDEST,
+        DROP_NEWEST,
+        BLOCK
+    }
+
+    private static final long BLOCK_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+
+    private final int mask;
+    private final AtomicReferenceArray<E> elements;
+    private final AtomicLongArray sequences;
+    private final AtomicLong head = new AtomicLong();
+    private final AtomicLong tail = new AtomicLong();
+    private final LongAdder droppedCount = new LongAdder();
+    private final OverflowPolicy overflowPolicy;
+    private final long blockTimeoutNanos;
+
+    public RingBuffer(int capacity, OverflowPolicy overflowPolicy, long blockTimeoutMs) {
+        if (capacity < 2 || capacity > (1 << 30)) {
+            throw new IllegalArgumentException("Capacity must be between 2 and 2^30. capacity=" + capacity);
+        }
+        int size = Integer.highestOneBit(capacity - 1) << 1;
+        mask = size - 1;
+        elements = new AtomicReferenceArray<>(size);
+        sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            sequences.set(i, i);
+        }
+        this.overflowPolicy = overflowPolicy;
+        blockTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(blockTimeoutMs);
+    }
+
+    /**
+     * @return true if the element got added. False if it got dropped.
+     */
+    public boolean offer(E element) {
+        long deadline = 0;
+        while (!tryOffer(element)) {
+            switch (overflowPolicy) {
+                case DROP_OLDEST:
+                    if (poll() != null) {
+                        droppedCount.increment();
+                    }
+                    break;
+                case BLOCK:
+                    long now = System.nanoTime();
+                    if (deadline == 0) {
+                        deadline = now + blockTimeoutNanos;
+                    } else if (now - deadline > 0) {
+                        droppedCount.increment();
+                        return false;
+                    }
+                    LockSupport.parkNanos(BLOCK_PARK_NANOS);
+                    break;
+                case DROP_NEWEST:
+                default:
+                    droppedCount.increment();
+                    return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Adds all elements. If there is enough free space the whole range of slots gets claimed with a single CAS,
+     * otherwise the elements are offered one by one and the overflow policy applies.
+     *
+     * @return the number of added elements
+     */
+    @SuppressWarnings("unchecked")
+    public int offerAll(Collection<? extends E> batch) {
+        // A concurrent collection can change its size while we iterate it, but each claimed slot must be published
+        Object[] array = batch.toArray();
+        int size = array.length;
+        if (size == 0) {
+            return 0;
+        }
+        if (size <= capacity()) {
+            long position = tail.get();
+            while (true) {
+                long delta = sequences.get((int) position & mask) - position;
+                if (delta > 0) {
+                    position = tail.get();
+                } else if (delta < 0 || !isFree(position + 1, size - 1)) {
+                    break;
+                } else if (tail.compareAndSet(position, position + size)) {
+                    for (Object element : array) {
+                        int index = (int) position & mask;
+                        elements.lazySet(index, (E) element);
+                        sequences.set(index, ++position);
+                    }
+                    return size;
+                } else {
+                    position = tail.get();
+                }
+            }
+        }
+        int count = 0;
+        for (Object element : array) {
+            if (offer((E) element)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    public E poll() {
+        long position = head.get();
+        while (true) {
+            int index = (int) position & mask;
+            long delta = sequences.get(index) - (position + 1);
+            if (delta == 0) {
+                if (head.compareAndSet(position, position + 1)) {
+                    E element = elements.get(index);
+                    elements.lazySet(index, null);
+                    sequences.set(index, position + mask + 1);
+                    return element;
+                }
+                position = head.get();
+            } else if (delta < 0) {
+                return null;
+            } else {
+                position = head.get();
+            }
+        }
+    }
+
+    /**
+     * Moves up to maxElements into the target collection.
+     *
+     * @return the number of transferred elements
+     */
+    public int drainTo(Collection<? super E> target, int maxElements) {
+        int count = 0;
+        E element;
+        while (count < maxElements && (element = poll()) != null) {
+            target.add(element);
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * @return an estimate of the number of pending elements as producers and consumers might be in progress.
+     */
+    public int size() {
+        return (int) Math.max(0, Math.min(tail.get() - head.get(), mask + 1));
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    public int capacity() {
+        return mask + 1;
+    }
+
+    public long getDroppedCount() {
+        return droppedCount.sum();
+    }
+
+    private boolean isFree(long position, int numSlots) {
+        for (long i = position; i < position + numSlots; i++) {
+            if (sequences.get((int) i & mask) != i) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean tryOffer(E element) {
+        long position = tail.get();
+        while (true) {
+            int index = (int) position & mask;
+            long delta = sequences.get(index) - position;
+            if (delta == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    elements.lazySet(index, element);
+                    sequences.set(index, position + 1);
+                    return true;
+                }
+                position = tail.get();
+            } else if (delta < 0) {
+                return false;
+            } else {
+                position = tail.get();
+            }
+        }
+    }
+}
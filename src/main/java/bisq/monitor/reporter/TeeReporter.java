@@ -0,0 +1,64 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.monitor.reporter;
+
+import bisq.monitor.reporter.tsdb.TimeSeriesStore;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decorator which writes all metrics into the embedded {@link TimeSeriesStore} before passing them to the delegate,
+ * so recent history is kept locally even if the delegate cannot deliver them.
+ */
+@Slf4j
+public class TeeReporter extends Reporter {
+    private static final long MAINTENANCE_INTERVAL_SEC = 60;
+    private static final long SHUT_DOWN_TIMEOUT_MS = 2000;
+
+    private final Reporter delegate;
+    @Getter
+    private final TimeSeriesStore store;
+    private final ReporterScheduler scheduler = new ReporterScheduler("TeeReporter").start();
+
+    public TeeReporter(Reporter delegate, TimeSeriesStore store) {
+        this.delegate = delegate;
+        this.store = store;
+        scheduler.runPeriodically(store::maintain, MAINTENANCE_INTERVAL_SEC, TimeUnit.SECONDS);
+    }
+
+    @Override
+    public void report(Metrics metrics) {
+        store.append(metrics);
+        delegate.report(metrics);
+    }
+
+    @Override
+    public void report(Collection<Metrics> metrics) {
+        metrics.forEach(store::append);
+        delegate.report(metrics);
+    }
+
+    @Override
+    public void shutDown() {
+        scheduler.shutDown(store::shutDown, SHUT_DOWN_TIMEOUT_MS);
+        delegate.shutDown();
+    }
+}
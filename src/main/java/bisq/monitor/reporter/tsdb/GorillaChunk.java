@@ -0,0 +1,240 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.monitor.reporter.tsdb;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Compressed chunk of the points of one series, following the Gorilla paper of Facebook: timestamps are stored as
+ * delta-of-delta with variable length prefixes, values as XOR with the previous value where only the meaningful bits
+ * are written. For regular probe intervals and slowly changing values a point takes only a few bits.
+ * <p>
+ * The first point is stored with 64 bit timestamp and value. A chunk has a fixed capacity and refuses a point if it
+ * might not fit, then the caller has to seal it and start a new one.
+ * Not thread safe.
+ */
+public class GorillaChunk {
+    // Worst case: 4 + 32 bits for the timestamp, 2 + 5 + 6 + 64 bits for the value
+    private static final int MAX_POINT_BITS = 113;
+    private static final int FIRST_POINT_BITS = 128;
+
+    public interface PointConsumer {
+        void accept(long timeStampInSec, double value);
+    }
+
+    private final byte[] data;
+    private long bitPosition;
+    private int numPoints;
+    private long firstTimeStamp;
+    private long lastTimeStamp;
+    private long lastDelta;
+    private long lastValueBits;
+    private int lastLeadingZeros = Integer.MAX_VALUE;
+    private int lastTrailingZeros;
+
+    public GorillaChunk(int capacity) {
+        data = new byte[capacity];
+    }
+
+    /**
+     * @return false if the point does not fit into the chunk.
+     */
+    public boolean append(long timeStampInSec, double value) {
+        long valueBits = Double.doubleToRawLongBits(value);
+        if (numPoints == 0) {
+            if (FIRST_POINT_BITS > data.length * 8L) {
+                return false;
+            }
+            writeBits(timeStampInSec, 64);
+            writeBits(valueBits, 64);
+            firstTimeStamp = timeStampInSec;
+        } else {
+            if (bitPosition + MAX_POINT_BITS > data.length * 8L) {
+                return false;
+            }
+            long delta = timeStampInSec - lastTimeStamp;
+            long deltaOfDelta = delta - lastDelta;
+            if (deltaOfDelta < Integer.MIN_VALUE || deltaOfDelta > Integer.MAX_VALUE) {
+                return false;
+            }
+            writeTimeStamp(deltaOfDelta);
+            writeValue(valueBits);
+            lastDelta = delta;
+        }
+        lastTimeStamp = timeStampInSec;
+        lastValueBits = valueBits;
+        numPoints++;
+        return true;
+    }
+
+    public int getNumPoints() {
+        return numPoints;
+    }
+
+    public int getNumBytes() {
+        return (int) ((bitPosition + 7) / 8);
+    }
+
+    public long getFirstTimeStamp() {
+        return firstTimeStamp;
+    }
+
+    public long getLastTimeStamp() {
+        return lastTimeStamp;
+    }
+
+    public void writeTo(ByteBuffer buffer) {
+        buffer.put(data, 0, getNumBytes());
+    }
+
+    /**
+     * Decodes numPoints points from the remaining bytes of buffer. The position of buffer is not changed.
+     */
+    public static void decode(ByteBuffer buffer, int numPoints, PointConsumer consumer) {
+        BitReader reader = new BitReader(buffer);
+        if (numPoints == 0) {
+            return;
+        }
+        long timeStamp = reader.readBits(64);
+        long valueBits = reader.readBits(64);
+        consumer.accept(timeStamp, Double.longBitsToDouble(valueBits));
+        long delta = 0;
+        int leadingZeros = 0;
+        int meaningfulBits = 64;
+        for (int i = 1; i < numPoints; i++) {
+            delta += readDeltaOfDelta(reader);
+            timeStamp += delta;
+            if (reader.readBit() == 1) {
+                if (reader.readBit() == 1) {
+                    leadingZeros = (int) reader.readBits(5);
+                    meaningfulBits = (int) reader.readBits(6);
+                    if (meaningfulBits == 0) {
+                        meaningfulBits = 64;
+                    }
+                }
+                long xor = reader.readBits(meaningfulBits) << (64 - leadingZeros - meaningfulBits);
+                valueBits ^= xor;
+            }
+            consumer.accept(timeStamp, Double.longBitsToDouble(valueBits));
+        }
+    }
+
+    // The ranges are those of two's complement numbers with 7, 9 and 12 bits
+    private void writeTimeStamp(long deltaOfDelta) {
+        if (deltaOfDelta == 0) {
+            writeBits(0, 1);
+        } else if (deltaOfDelta >= -64 && deltaOfDelta <= 63) {
+            writeBits(0b10, 2);
+            writeBits(deltaOfDelta, 7);
+        } else if (deltaOfDelta >= -256 && deltaOfDelta <= 255) {
+            writeBits(0b110, 3);
+            writeBits(deltaOfDelta, 9);
+        } else if (deltaOfDelta >= -2048 && deltaOfDelta <= 2047) {
+            writeBits(0b1110, 4);
+            writeBits(deltaOfDelta, 12);
+        } else {
+            writeBits(0b1111, 4);
+            writeBits(deltaOfDelta, 32);
+        }
+    }
+
+    private static long readDeltaOfDelta(BitReader reader) {
+        int prefix = 0;
+        while (prefix < 4 && reader.readBit() == 1) {
+            prefix++;
+        }
+        switch (prefix) {
+            case 0:
+                return 0;
+            case 1:
+                return signExtend(reader.readBits(7), 7);
+            case 2:
+                return signExtend(reader.readBits(9), 9);
+            case 3:
+                return signExtend(reader.readBits(12), 12);
+            default:
+                return signExtend(reader.readBits(32), 32);
+        }
+    }
+
+    private void writeValue(long valueBits) {
+        long xor = valueBits ^ lastValueBits;
+        if (xor == 0) {
+            writeBits(0, 1);
+            return;
+        }
+        writeBits(1, 1);
+        // We have only 5 bits for the number of leading zeros
+        int leadingZeros = Math.min(31, Long.numberOfLeadingZeros(xor));
+        int trailingZeros = Long.numberOfTrailingZeros(xor);
+        if (leadingZeros >= lastLeadingZeros && trailingZeros >= lastTrailingZeros) {
+            // Meaningful bits fit into the window of the previous value
+            writeBits(0, 1);
+            writeBits(xor >>> lastTrailingZeros, 64 - lastLeadingZeros - lastTrailingZeros);
+        } else {
+            int meaningfulBits = 64 - leadingZeros - trailingZeros;
+            writeBits(1, 1);
+            writeBits(leadingZeros, 5);
+            // 64 is stored as 0
+            writeBits(meaningfulBits, 6);
+            writeBits(xor >>> trailingZeros, meaningfulBits);
+            lastLeadingZeros = leadingZeros;
+            lastTrailingZeros = trailingZeros;
+        }
+    }
+
+    private void writeBits(long value, int numBits) {
+        for (int i = numBits - 1; i >= 0; i--) {
+            if (((value >>> i) & 1) != 0) {
+                data[(int) (bitPosition >>> 3)] |= (byte) (0x80 >>> (bitPosition & 7));
+            }
+            bitPosition++;
+        }
+    }
+
+    private static long signExtend(long value, int numBits) {
+        int shift = 64 - numBits;
+        return (value << shift) >> shift;
+    }
+
+    private static class BitReader {
+        private final ByteBuffer buffer;
+        private final int start;
+        private long bitPosition;
+
+        private BitReader(ByteBuffer buffer) {
+            this.buffer = buffer;
+            start = buffer.position();
+        }
+
+        private int readBit() {
+            int b = buffer.get(start + (int) (bitPosition >>> 3));
+            int bit = (b >>> (7 - (bitPosition & 7))) & 1;
+            bitPosition++;
+            return bit;
+        }
+
+        private long readBits(int numBits) {
+            long value = 0;
+            for (int i = 0; i < numBits; i++) {
+                value = (value << 1) | readBit();
+            }
+            return value;
+        }
+    }
+}
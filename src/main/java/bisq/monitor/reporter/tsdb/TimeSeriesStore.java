@@ -0,0 +1,359 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.monitor.reporter.tsdb;
+
+import bisq.monitor.reporter.MetricName;
+import bisq.monitor.reporter.Metrics;
+import bisq.monitor.utils.Util;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Embedded store for recent metrics. Points of each series are collected in a {@link GorillaChunk} in memory. When
+ * the chunk is full or older than chunkDurationSec it gets sealed and appended to the active segment file.
+ * <p>
+ * Segments are fixed-size, memory-mapped files named by their creation time. A new segment is started when the
+ * active one is full or older than an hour. A segment is deleted once the next one was created before the retention
+ * period, so all its chunks are older than that. Records are [short nameLength][name][int numPoints][long firstTs]
+ * [long lastTs][int numBytes][data]. As the files are zero filled when created, a nameLength of 0 marks the end of
+ * the written data, so the active segment can be recovered after a restart. Each segment is mapped once and unmapped
+ * before it gets deleted.
+ * <p>
+ * Points of open chunks are only in memory, so at a crash we lose at most chunkDurationSec of data.
+ * STRING metrics are stored if their value is a number, otherwise ignored.
+ */
+@Slf4j
+public class TimeSeriesStore {
+    private static final String FILE_PREFIX = "tsdb-";
+    private static final String FILE_SUFFIX = ".seg";
+    private static final long SEGMENT_DURATION_MS = TimeUnit.HOURS.toMillis(1);
+    private static final int RECORD_HEADER_SIZE = 2 + 4 + 8 + 8 + 4;
+
+    public interface SeriesPointConsumer {
+        void accept(MetricName name, long timeStampInSec, double value);
+    }
+
+    private final File dir;
+    private final int segmentSize;
+    private final int chunkSize;
+    private final long chunkDurationMs;
+    private final long retentionMs;
+    private final List<Segment> segments = new ArrayList<>();
+    private final Map<MetricName, OpenChunk> openChunks = new HashMap<>();
+    private Segment active;
+
+    public TimeSeriesStore(File dir, int segmentSize, int chunkSize, long chunkDurationSec, long retentionSec) {
+        this.dir = dir;
+        this.segmentSize = segmentSize;
+        this.chunkSize = chunkSize;
+        chunkDurationMs = TimeUnit.SECONDS.toMillis(chunkDurationSec);
+        retentionMs = TimeUnit.SECONDS.toMillis(retentionSec);
+        if (!dir.exists() && !dir.mkdirs()) {
+            log.warn("Creating tsdb dir {} failed", dir);
+        }
+        recover();
+    }
+
+    public synchronized void append(Metrics metrics) {
+        double value;
+        switch (metrics.getType()) {
+            case LONG:
+                value = metrics.getLongValue();
+                break;
+            case DOUBLE:
+                value = metrics.getDoubleValue();
+                break;
+            default:
+                try {
+                    value = Double.parseDouble(metrics.getStringValue());
+                } catch (NumberFormatException e) {
+                    return;
+                }
+        }
+        OpenChunk openChunk = openChunks.computeIfAbsent(metrics.getName(), name -> new OpenChunk(chunkSize));
+        if (!openChunk.chunk.append(metrics.getTimeStampInSec(), value)) {
+            seal(metrics.getName(), openChunk);
+            openChunk = new OpenChunk(chunkSize);
+            openChunks.put(metrics.getName(), openChunk);
+            openChunk.chunk.append(metrics.getTimeStampInSec(), value);
+        }
+    }
+
+    /**
+     * Seals chunks older than chunkDurationSec and deletes segments beyond the retention period.
+     * Expected to be called periodically.
+     */
+    public synchronized void maintain() {
+        long now = System.currentTimeMillis();
+        Iterator<Map.Entry<MetricName, OpenChunk>> iterator = openChunks.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<MetricName, OpenChunk> entry = iterator.next();
+            if (now - entry.getValue().created > chunkDurationMs) {
+                seal(entry.getKey(), entry.getValue());
+                iterator.remove();
+            }
+        }
+        applyRetention(now);
+    }
+
+    /**
+     * Calls consumer for all stored points of the series in the given time range, sealed chunks first, then the
+     * open chunk. Points are in the order they were reported.
+     */
+    public void query(MetricName name,
+                      long fromTimeStampInSec,
+                      long toTimeStampInSec,
+                      GorillaChunk.PointConsumer consumer) {
+        query(List.of(name), fromTimeStampInSec, toTimeStampInSec,
+                (seriesName, timeStamp, value) -> consumer.accept(timeStamp, value));
+    }
+
+    /**
+     * Like {@link #query(MetricName, long, long, GorillaChunk.PointConsumer)} for multiple series, reading each segment
+     * only once. Points of a series are in the order they were reported, points of different series interleave.
+     */
+    public synchronized void query(Collection<MetricName> names,
+                                   long fromTimeStampInSec,
+                                   long toTimeStampInSec,
+                                   SeriesPointConsumer consumer) {
+        Map<String, MetricName> nameByPath = new HashMap<>();
+        names.forEach(name -> nameByPath.put(name.getPath(), name));
+        for (Segment segment : segments) {
+            ByteBuffer buffer = segment.buffer.duplicate();
+            buffer.position(0).limit(segment.writePosition);
+            while (buffer.remaining() >= RECORD_HEADER_SIZE) {
+                int recordStart = buffer.position();
+                int nameLength = buffer.getShort();
+                int numPoints = buffer.getInt(recordStart + 2 + nameLength);
+                long firstTs = buffer.getLong(recordStart + 2 + nameLength + 4);
+                long lastTs = buffer.getLong(recordStart + 2 + nameLength + 12);
+                int numBytes = buffer.getInt(recordStart + 2 + nameLength + 20);
+                int dataStart = recordStart + RECORD_HEADER_SIZE + nameLength;
+                // Timestamps might not be ordered, so we check the range of both first and last
+                boolean overlaps = Math.max(firstTs, lastTs) >= fromTimeStampInSec &&
+                        Math.min(firstTs, lastTs) <= toTimeStampInSec;
+                MetricName name = overlaps ? nameByPath.get(readName(buffer, recordStart + 2, nameLength)) : null;
+                if (name != null) {
+                    ByteBuffer data = buffer.duplicate();
+                    data.limit(dataStart + numBytes).position(dataStart);
+                    GorillaChunk.decode(data, numPoints, filter(name, fromTimeStampInSec, toTimeStampInSec, consumer));
+                }
+                buffer.position(dataStart + numBytes);
+            }
+        }
+        for (MetricName name : nameByPath.values()) {
+            OpenChunk openChunk = openChunks.get(name);
+            if (openChunk != null) {
+                ByteBuffer data = ByteBuffer.allocate(openChunk.chunk.getNumBytes());
+                openChunk.chunk.writeTo(data);
+                GorillaChunk.decode(data.flip(), openChunk.chunk.getNumPoints(),
+                        filter(name, fromTimeStampInSec, toTimeStampInSec, consumer));
+            }
+        }
+    }
+
+    int getNumSegments() {
+        return segments.size();
+    }
+
+    public synchronized void shutDown() {
+        openChunks.forEach(this::seal);
+        openChunks.clear();
+        if (active != null) {
+            active.buffer.force();
+        }
+    }
+
+    private void seal(MetricName name, OpenChunk openChunk) {
+        GorillaChunk chunk = openChunk.chunk;
+        if (chunk.getNumPoints() == 0) {
+            return;
+        }
+        byte[] nameBytes = name.getPath().getBytes(StandardCharsets.UTF_8);
+        int recordSize = RECORD_HEADER_SIZE + nameBytes.length + chunk.getNumBytes();
+        if (nameBytes.length > Short.MAX_VALUE || recordSize > segmentSize) {
+            log.warn("Chunk of {} with {} bytes does not fit into a segment. We drop it.", name, recordSize);
+            return;
+        }
+        long now = System.currentTimeMillis();
+        if (active == null || active.writePosition + recordSize > segmentSize || now - active.created > SEGMENT_DURATION_MS) {
+            if (!rollSegment(now)) {
+                return;
+            }
+        }
+        ByteBuffer buffer = active.buffer.duplicate();
+        buffer.position(active.writePosition);
+        buffer.putShort((short) nameBytes.length);
+        buffer.put(nameBytes);
+        buffer.putInt(chunk.getNumPoints());
+        buffer.putLong(chunk.getFirstTimeStamp());
+        buffer.putLong(chunk.getLastTimeStamp());
+        buffer.putInt(chunk.getNumBytes());
+        chunk.writeTo(buffer);
+        active.writePosition = buffer.position();
+    }
+
+    private boolean rollSegment(long now) {
+        if (active != null) {
+            active.buffer.force();
+        }
+        // Names must be unique and sorted, so we never go back in time
+        long created = active == null ? now : Math.max(now, active.created + 1);
+        File file = new File(dir, String.format("%s%019d%s", FILE_PREFIX, created, FILE_SUFFIX));
+        try {
+            active = new Segment(file, created, map(file, FileChannel.MapMode.READ_WRITE, segmentSize));
+            segments.add(active);
+            applyRetention(now);
+            return true;
+        } catch (IOException e) {
+            log.error("Could not create tsdb segment {}. {}", file, e.getMessage());
+            return false;
+        }
+    }
+
+    private void applyRetention(long now) {
+        // A segment only contains chunks sealed before the next segment got created
+        while (segments.size() > 1 && segments.get(1).created < now - retentionMs) {
+            Segment oldest = segments.remove(0);
+            // Queries run under the same lock, so nothing refers to the mapping anymore
+            if (!Util.unmap(oldest.buffer)) {
+                log.debug("Could not unmap tsdb segment {}. It gets released by the GC.", oldest.file);
+            }
+            if (!oldest.file.delete()) {
+                log.warn("Could not delete tsdb segment {}", oldest.file);
+            }
+        }
+    }
+
+    private void recover() {
+        File[] files = dir.listFiles((d, name) -> name.startsWith(FILE_PREFIX) && name.endsWith(FILE_SUFFIX));
+        if (files == null || files.length == 0) {
+            return;
+        }
+        Arrays.sort(files);
+        for (File file : files) {
+            try {
+                String created = file.getName().substring(FILE_PREFIX.length(), file.getName().length() - FILE_SUFFIX.length());
+                boolean isLast = file == files[files.length - 1];
+                // We continue writing to the last segment
+                MappedByteBuffer buffer = isLast ?
+                        map(file, FileChannel.MapMode.READ_WRITE, Math.max(segmentSize, (int) file.length())) :
+                        map(file, FileChannel.MapMode.READ_ONLY, (int) file.length());
+                Segment segment = new Segment(file, Long.parseLong(created), buffer);
+                segment.writePosition = findEndOfRecords(buffer);
+                segments.add(segment);
+                if (isLast) {
+                    active = segment;
+                }
+            } catch (IOException | NumberFormatException e) {
+                log.error("Could not recover tsdb segment {}. {}", file, e.getMessage());
+            }
+        }
+        if (!segments.isEmpty()) {
+            applyRetention(System.currentTimeMillis());
+            log.info("Recovered {} tsdb segments from {}", segments.size(), dir);
+        }
+    }
+
+    private static int findEndOfRecords(ByteBuffer buffer) {
+        int position = 0;
+        while (position + RECORD_HEADER_SIZE <= buffer.limit()) {
+            int nameLength = buffer.getShort(position);
+            if (nameLength <= 0) {
+                break;
+            }
+            int numBytesPosition = position + 2 + nameLength + 20;
+            if (numBytesPosition + 4 > buffer.limit()) {
+                break;
+            }
+            int end = position + RECORD_HEADER_SIZE + nameLength + buffer.getInt(numBytesPosition);
+            if (end > buffer.limit()) {
+                break;
+            }
+            position = end;
+        }
+        return position;
+    }
+
+    private static String readName(ByteBuffer buffer, int position, int nameLength) {
+        byte[] nameBytes = new byte[nameLength];
+        for (int i = 0; i < nameLength; i++) {
+            nameBytes[i] = buffer.get(position + i);
+        }
+        return new String(nameBytes, StandardCharsets.UTF_8);
+    }
+
+    private static GorillaChunk.PointConsumer filter(MetricName name,
+                                                     long fromTimeStampInSec,
+                                                     long toTimeStampInSec,
+                                                     SeriesPointConsumer consumer) {
+        return (timeStamp, value) -> {
+            if (timeStamp >= fromTimeStampInSec && timeStamp <= toTimeStampInSec) {
+                consumer.accept(name, timeStamp, value);
+            }
+        };
+    }
+
+    private static MappedByteBuffer map(File file, FileChannel.MapMode mode, int size) throws IOException {
+        StandardOpenOption[] options = mode == FileChannel.MapMode.READ_ONLY ?
+                new StandardOpenOption[]{StandardOpenOption.READ} :
+                new StandardOpenOption[]{StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE};
+        try (FileChannel channel = FileChannel.open(file.toPath(), options)) {
+            // The mapping stays valid after the channel is closed
+            return channel.map(mode, 0, size);
+        }
+    }
+
+    private static class Segment {
+        private final File file;
+        private final long created;
+        // Read-write for the active segment, read-only for recovered sealed ones
+        private final MappedByteBuffer buffer;
+        private int writePosition;
+
+        private Segment(File file, long created, MappedByteBuffer buffer) {
+            this.file = file;
+            this.created = created;
+            this.buffer = buffer;
+        }
+    }
+
+    private static class OpenChunk {
+        private final GorillaChunk chunk;
+        private final long created = System.currentTimeMillis();
+
+        private OpenChunk(int chunkSize) {
+            chunk = new GorillaChunk(chunkSize);
+        }
+    }
+}
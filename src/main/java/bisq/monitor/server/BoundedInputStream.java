@@ -0,0 +1,84 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.monitor.server;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Fails with {@link LimitExceededException} once more than maxBytes are read, so a request body can be consumed as a
+ * stream without trusting the client to send a sane amount of data.
+ */
+public class BoundedInputStream extends FilterInputStream {
+    public static class LimitExceededException extends IOException {
+        public LimitExceededException(long maxBytes) {
+            super("Request body exceeds the limit of " + maxBytes + " bytes");
+        }
+    }
+
+    private final long maxBytes;
+    private long numBytesRead;
+
+    public BoundedInputStream(InputStream inputStream, long maxBytes) {
+        super(inputStream);
+        this.maxBytes = maxBytes;
+    }
+
+    @Override
+    public int read() throws IOException {
+        int value = super.read();
+        if (value >= 0) {
+            onRead(1);
+        }
+        return value;
+    }
+
+    @Override
+    public int read(byte[] bytes, int offset, int length) throws IOException {
+        // We read at most one byte beyond the limit to detect the overflow
+        int numBytes = super.read(bytes, offset, (int) Math.min(length, maxBytes - numBytesRead + 1));
+        if (numBytes > 0) {
+            onRead(numBytes);
+        }
+        return numBytes;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        long numBytes = super.skip(Math.min(n, maxBytes - numBytesRead + 1));
+        onRead(numBytes);
+        return numBytes;
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    public long getNumBytesRead() {
+        return numBytesRead;
+    }
+
+    private void onRead(long numBytes) throws LimitExceededException {
+        numBytesRead += numBytes;
+        if (numBytesRead > maxBytes) {
+            throw new LimitExceededException(maxBytes);
+        }
+    }
+}
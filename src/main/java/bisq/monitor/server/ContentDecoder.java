@@ -0,0 +1,99 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.monitor.server;
+
+import org.apache.commons.compress.MemoryLimitException;
+import org.apache.commons.compress.compressors.xz.XZCompressorInputStream;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Decodes request bodies sent with a Content-Encoding header. Decoding is streamed, so a compressed report is never
+ * inflated into memory as a whole, and the decoded size is capped to protect against compression bombs.
+ * <p>
+ * Supported are gzip, deflate (zlib wrapped as by RFC 9110) and xz. Multiple encodings are undone in reverse order of
+ * the header. The xz header declares the dictionary size the decoder allocates, so it is capped by xzMemoryLimitKb.
+ */
+public class ContentDecoder {
+    public static final String SUPPORTED_ENCODINGS = "gzip, deflate, xz";
+
+    private static final int BUFFER_SIZE = 8192;
+
+    public static boolean isSupported(String contentEncoding) {
+        if (contentEncoding == null) {
+            return true;
+        }
+        for (String encoding : contentEncoding.split(",")) {
+            switch (encoding.trim().toLowerCase()) {
+                case "":
+                case "identity":
+                case "gzip":
+                case "x-gzip":
+                case "deflate":
+                case "xz":
+                    break;
+                default:
+                    return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @param contentEncoding Value of the Content-Encoding header, null if not present
+     * @param maxDecodedBytes Reading more decoded bytes fails with {@link BoundedInputStream.LimitExceededException}
+     * @param xzMemoryLimitKb Reading an xz stream which needs more memory fails with {@link MemoryLimitException}
+     * @throws IllegalArgumentException if the encoding is not {@link #isSupported(String) supported}
+     * @throws IOException if the header of the compressed stream is invalid
+     */
+    public static InputStream decode(InputStream inputStream,
+                                     String contentEncoding,
+                                     long maxDecodedBytes,
+                                     int xzMemoryLimitKb) throws IOException {
+        if (contentEncoding != null) {
+            String[] encodings = contentEncoding.split(",");
+            for (int i = encodings.length - 1; i >= 0; i--) {
+                inputStream = decode(inputStream, encodings[i].trim().toLowerCase(), xzMemoryLimitKb);
+            }
+        }
+        return new BoundedInputStream(inputStream, maxDecodedBytes);
+    }
+
+    private static InputStream decode(InputStream inputStream, String encoding, int xzMemoryLimitKb)
+            throws IOException {
+        switch (encoding) {
+            case "":
+            case "identity":
+                return inputStream;
+            case "gzip":
+            case "x-gzip":
+                return new GZIPInputStream(inputStream, BUFFER_SIZE);
+            case "deflate":
+                return new InflaterInputStream(inputStream);
+            case "xz":
+                return new XZCompressorInputStream(new BufferedInputStream(inputStream, BUFFER_SIZE), false,
+                        xzMemoryLimitKb);
+            default:
+                throw new IllegalArgumentException("Unsupported content encoding " + encoding);
+        }
+    }
+}
@@ -0,0 +1,199 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.monitor.server;
+
+import bisq.monitor.reporter.LatencyHistogram;
+import bisq.monitor.reporter.MetricName;
+import bisq.monitor.reporter.Metrics;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded queue with admission control for processing received reports.
+ * <p>
+ * A report is rejected if the queue is full, and throttled if its client has already maxQueuedPerClient reports
+ * queued, so a single seed node flushing its backlog cannot starve the others. Rejected and throttled reports are
+ * not processed, the caller is expected to tell the client to retry later.
+ * Health is published under monitor.server.ingestion: queueDepth, activeWorkers, accepted, throttled, rejected and
+ * histograms for queueWaitMs and processingMs.
+ */
+@Slf4j
+public class IngestionQueue {
+    private static final long HIGHEST_TRACKABLE_LATENCY = TimeUnit.MINUTES.toMillis(10);
+    private static final long WARN_INTERVAL_MS = TimeUnit.SECONDS.toMillis(10);
+    private static final long MIN_BACKOFF_MS = 10;
+    private static final long MAX_BACKOFF_MS = 500;
+
+    public enum Admission {
+        ACCEPTED,
+        THROTTLED,
+        REJECTED
+    }
+
+    private final ThreadPoolExecutor executor;
+    private final int maxQueuedPerClient;
+    private final Map<String, Integer> queuedPerClient = new ConcurrentHashMap<>();
+    private final MetricName name = MetricName.ROOT.child("monitor").child("server").child("ingestion");
+    private final LongAdder accepted = new LongAdder();
+    private final LongAdder throttled = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LatencyHistogram queueWaitMs = new LatencyHistogram(HIGHEST_TRACKABLE_LATENCY);
+    private final LatencyHistogram processingMs = new LatencyHistogram(HIGHEST_TRACKABLE_LATENCY);
+    // Only used inside the synchronized addTo
+    private final LatencyHistogram.Snapshot snapshot = new LatencyHistogram.Snapshot();
+    private volatile long lastWarnTs;
+
+    public IngestionQueue(int numThreads, int capacity, int maxQueuedPerClient) {
+        this.maxQueuedPerClient = maxQueuedPerClient;
+        executor = new ThreadPoolExecutor(numThreads, numThreads,
+                60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(capacity),
+                new ThreadFactoryBuilder().setNameFormat("IngestionQueue-%d").setDaemon(true).build());
+    }
+
+    public Admission submit(String client, Runnable task) {
+        Admission admission = tryAdmit(client, task);
+        count(admission, client);
+        return admission;
+    }
+
+    /**
+     * Retries with a backoff until the task gets admitted or maxWaitMs has passed. Used for batches, where the
+     * caller stops reading the request while waiting, which passes the backpressure on to the client.
+     */
+    public Admission submit(String client, Runnable task, long maxWaitMs) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + maxWaitMs;
+        long backoffMs = MIN_BACKOFF_MS;
+        Admission admission;
+        while ((admission = tryAdmit(client, task)) != Admission.ACCEPTED) {
+            long remainingMs = deadline - System.currentTimeMillis();
+            if (remainingMs <= 0) {
+                break;
+            }
+            Thread.sleep(Math.min(backoffMs, remainingMs));
+            backoffMs = Math.min(backoffMs * 2, MAX_BACKOFF_MS);
+        }
+        count(admission, client);
+        return admission;
+    }
+
+    public int getQueueDepth() {
+        return executor.getQueue().size();
+    }
+
+    /**
+     * Adds the current stats to target and resets the histograms.
+     */
+    public synchronized void addTo(Collection<Metrics> target) {
+        long timeStampInSec = System.currentTimeMillis() / 1000;
+        target.add(new Metrics(name.child("queueDepth"), getQueueDepth(), timeStampInSec));
+        target.add(new Metrics(name.child("activeWorkers"), executor.getActiveCount(), timeStampInSec));
+        target.add(new Metrics(name.child("accepted"), accepted.sum(), timeStampInSec));
+        target.add(new Metrics(name.child("throttled"), throttled.sum(), timeStampInSec));
+        target.add(new Metrics(name.child("rejected"), rejected.sum(), timeStampInSec));
+        addHistogram(target, name.child("queueWaitMs"), queueWaitMs, timeStampInSec);
+        addHistogram(target, name.child("processingMs"), processingMs, timeStampInSec);
+    }
+
+    public void shutDown() {
+        executor.shutdownNow();
+    }
+
+    private Admission tryAdmit(String client, Runnable task) {
+        if (!tryAcquire(client)) {
+            return Admission.THROTTLED;
+        }
+
+        long enqueueTs = System.currentTimeMillis();
+        try {
+            executor.execute(() -> {
+                long startTs = System.currentTimeMillis();
+                queueWaitMs.record(startTs - enqueueTs);
+                try {
+                    task.run();
+                } finally {
+                    release(client);
+                    processingMs.record(System.currentTimeMillis() - startTs);
+                }
+            });
+            return Admission.ACCEPTED;
+        } catch (RejectedExecutionException e) {
+            release(client);
+            return Admission.REJECTED;
+        }
+    }
+
+    private void count(Admission admission, String client) {
+        switch (admission) {
+            case THROTTLED:
+                throttled.increment();
+                warn("Client {} has {} reports queued. We throttle it.", client, maxQueuedPerClient);
+                break;
+            case REJECTED:
+                rejected.increment();
+                warn("Ingestion queue is full ({} queued). We reject the report from {}.", getQueueDepth(), client);
+                break;
+            case ACCEPTED:
+            default:
+                accepted.increment();
+        }
+    }
+
+    private boolean tryAcquire(String client) {
+        boolean[] acquired = {false};
+        queuedPerClient.compute(client, (key, numQueued) -> {
+            int current = numQueued != null ? numQueued : 0;
+            if (current >= maxQueuedPerClient) {
+                return numQueued;
+            }
+            acquired[0] = true;
+            return current + 1;
+        });
+        return acquired[0];
+    }
+
+    private void release(String client) {
+        queuedPerClient.computeIfPresent(client, (key, numQueued) -> numQueued <= 1 ? null : numQueued - 1);
+    }
+
+    // Under overload we would log for each request otherwise
+    private void warn(String format, Object... args) {
+        long now = System.currentTimeMillis();
+        if (now - lastWarnTs >= WARN_INTERVAL_MS) {
+            lastWarnTs = now;
+            log.warn(format + " Total throttled: " + throttled.sum() + ", rejected: " + rejected.sum(), args);
+        }
+    }
+
+    private void addHistogram(Collection<Metrics> target,
+                              MetricName histogramName,
+                              LatencyHistogram histogram,
+                              long timeStampInSec) {
+        histogram.snapshotAndReset(snapshot);
+        snapshot.addTo(target, histogramName, timeStampInSec);
+    }
+}
@@ -0,0 +1,913 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.monitor.server;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Non-blocking alternative to the Spark based Server, used with Server.transport=nio.
+ * <p>
+ * A single selector thread accepts connections and reads requests into pooled buffers. Only complete requests are
+ * handed over to a bounded worker pool, which parses the protobuf body directly from those buffers. So slow clients
+ * (e.g. over Tor) do not hold a worker thread, and a report storm is limited by the worker queue instead of spawning
+ * a thread per request. If the worker queue is full the request is answered with 503 and Retry-After.
+ * <p>
+ * Supports the HTTP/1.1 subset our clients use: requests with Content-Length, keep-alive, pipelining and
+ * Expect: 100-continue. Chunked request bodies are rejected with 411. Headers are limited to maxHeaderBytes and bodies
+ * to maxRequestBytes (413). Bodies with an unsupported Content-Encoding are rejected with 415 before reading them.
+ * <p>
+ * Batches (POST /batch) are the exception: the worker starts as soon as the header is read and consumes the body
+ * while it arrives, so a large backlog is never buffered as a whole. If the worker falls behind, we stop reading
+ * from the socket.
+ */
+@Slf4j
+public class NioServer extends Server {
+    private static final long SELECT_TIMEOUT_MS = 1000;
+    private static final byte[] HEADER_END = {'\r', '\n', '\r', '\n'};
+    private static final byte[] CONTINUE = "HTTP/1.1 100 Continue\r\n\r\n".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] EMPTY = new byte[0];
+    private static final ByteBuffer END_OF_BODY = ByteBuffer.allocate(0);
+    // Max. chunks of a streamed body read ahead of the worker
+    private static final int MAX_BUFFERED_CHUNKS = 8;
+
+    private enum State {
+        READING_HEADER,
+        READING_BODY,
+        PROCESSING,
+        WRITING
+    }
+
+    private final int workerThreads;
+    private final int workerQueueCapacity;
+    private final int maxConnections;
+    private final int maxHeaderBytes;
+    private final int maxRequestBytes;
+    private final long idleTimeoutMs;
+    private final long requestTimeoutMs;
+    private final ByteBufferPool bufferPool;
+    // Responses completed by workers, written by the selector thread
+    private final Queue<Connection> pendingResponses = new ConcurrentLinkedQueue<>();
+    // Streamed requests where the worker has caught up, so reading can continue
+    private final Queue<Connection> resumeReading = new ConcurrentLinkedQueue<>();
+    // Only accessed from the selector thread
+    private final Set<Connection> connections = new HashSet<>();
+    private RequestHandler requestHandler;
+    private QueryHandler queryHandler;
+    private Selector selector;
+    private ServerSocketChannel serverChannel;
+    private ThreadPoolExecutor workers;
+    private Thread selectorThread;
+    private volatile boolean running;
+
+    public NioServer(Properties properties) {
+        workerThreads = Integer.parseInt(properties.getProperty("Server.nio.workerThreads", "4"));
+        workerQueueCapacity = Integer.parseInt(properties.getProperty("Server.nio.workerQueueCapacity", "256"));
+        maxConnections = Integer.parseInt(properties.getProperty("Server.nio.maxConnections", "1024"));
+        maxHeaderBytes = Integer.parseInt(properties.getProperty("Server.nio.maxHeaderBytes", "8192"));
+        maxRequestBytes = Integer.parseInt(properties.getProperty("Server.nio.maxRequestBytes", "1048576"));
+        idleTimeoutMs = TimeUnit.SECONDS.toMillis(Long.parseLong(properties.getProperty("Server.nio.idleTimeoutSec", "60")));
+        requestTimeoutMs = TimeUnit.SECONDS.toMillis(Long.parseLong(properties.getProperty("Server.nio.requestTimeoutSec", "30")));
+        int bufferSize = Integer.parseInt(properties.getProperty("Server.nio.bufferSizeKb", "16")) * 1024;
+        int maxPooledBuffers = Integer.parseInt(properties.getProperty("Server.nio.maxPooledBuffers", "1024"));
+        // The header has to fit into a single buffer
+        bufferPool = new ByteBufferPool(Math.max(bufferSize, maxHeaderBytes), maxPooledBuffers);
+    }
+
+    @Override
+    public void start(int port, RequestHandler requestHandler, QueryHandler queryHandler) {
+        this.requestHandler = requestHandler;
+        this.queryHandler = queryHandler;
+        try {
+            selector = Selector.open();
+            serverChannel = ServerSocketChannel.open();
+            serverChannel.configureBlocking(false);
+            serverChannel.bind(new InetSocketAddress(port), 1024);
+            serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+
+            workers = new ThreadPoolExecutor(workerThreads, workerThreads,
+                    60, TimeUnit.SECONDS,
+                    new ArrayBlockingQueue<>(workerQueueCapacity),
+                    new ThreadFactoryBuilder().setNameFormat("NioServer-worker-%d").setDaemon(true).build());
+            running = true;
+            selectorThread = new Thread(this::runSelectorLoop, "NioServer-selector");
+            selectorThread.setDaemon(true);
+            selectorThread.start();
+            log.info("Server listening on port {} (nio)", port);
+        } catch (Throwable t) {
+            log.error("Server setup failed", t);
+            closeServerChannel();
+        }
+    }
+
+    @Override
+    public CompletableFuture<Void> shutDown() {
+        return CompletableFuture.runAsync(() -> {
+            running = false;
+            if (selector != null) {
+                selector.wakeup();
+            }
+            if (selectorThread != null) {
+                try {
+                    selectorThread.join(1000);
+                } catch (InterruptedException ignore) {
+                }
+            }
+            if (workers != null) {
+                workers.shutdownNow();
+            }
+        }, Executors.newSingleThreadExecutor());
+    }
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Selector thread
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    private void runSelectorLoop() {
+        while (running) {
+            try {
+                selector.select(SELECT_TIMEOUT_MS);
+                Iterator<SelectionKey> iterator = selector.selectedKeys().iterator();
+                while (iterator.hasNext()) {
+                    SelectionKey key = iterator.next();
+                    iterator.remove();
+                    if (!key.isValid()) {
+                        continue;
+                    }
+                    if (key.isAcceptable()) {
+                        accept();
+                        continue;
+                    }
+                    Connection connection = (Connection) key.attachment();
+                    try {
+                        if (key.isReadable()) {
+                            connection.onReadable();
+                        }
+                        if (key.isValid() && key.isWritable()) {
+                            connection.writeResponse();
+                        }
+                    } catch (IOException e) {
+                        log.debug("Closing connection from {}: {}", connection.remoteAddress, e.getMessage());
+                        connection.close();
+                    }
+                }
+                writePendingResponses();
+                resumeReading();
+                closeTimedOutConnections();
+            } catch (ClosedSelectorException e) {
+                break;
+            } catch (Throwable t) {
+                log.error("Error at selector loop", t);
+            }
+        }
+        new ArrayList<>(connections).forEach(Connection::close);
+        closeServerChannel();
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel;
+        while ((channel = serverChannel.accept()) != null) {
+            if (connections.size() >= maxConnections) {
+                log.warn("Max. connections of {} reached. We close the new connection.", maxConnections);
+                channel.close();
+                continue;
+            }
+            channel.configureBlocking(false);
+            channel.socket().setTcpNoDelay(true);
+            Connection connection = new Connection(channel);
+            connection.key = channel.register(selector, SelectionKey.OP_READ, connection);
+            connections.add(connection);
+        }
+    }
+
+    private void writePendingResponses() {
+        Connection connection;
+        while ((connection = pendingResponses.poll()) != null) {
+            if (!connection.channel.isOpen()) {
+                continue;
+            }
+            try {
+                connection.writeResponse();
+            } catch (IOException e) {
+                log.debug("Writing response to {} failed: {}", connection.remoteAddress, e.getMessage());
+                connection.close();
+            }
+        }
+    }
+
+    private void resumeReading() {
+        Connection connection;
+        while ((connection = resumeReading.poll()) != null) {
+            if (connection.state == State.READING_BODY && connection.key.isValid()) {
+                connection.key.interestOps(SelectionKey.OP_READ);
+            }
+        }
+    }
+
+    private void closeTimedOutConnections() {
+        long now = System.currentTimeMillis();
+        List<Connection> timedOut = new ArrayList<>();
+        for (Connection connection : connections) {
+            if (connection.isTimedOut(now)) {
+                timedOut.add(connection);
+            }
+        }
+        timedOut.forEach(Connection::close);
+    }
+
+    private void closeServerChannel() {
+        try {
+            if (serverChannel != null) {
+                serverChannel.close();
+            }
+            if (selector != null) {
+                selector.close();
+            }
+        } catch (IOException ignore) {
+        }
+    }
+
+    private static int indexOf(ByteBuffer buffer, int limit, byte[] pattern) {
+        for (int i = 0; i <= limit - pattern.length; i++) {
+            int j = 0;
+            while (j < pattern.length && buffer.get(i + j) == pattern[j]) {
+                j++;
+            }
+            if (j == pattern.length) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static String getReasonPhrase(int status) {
+        switch (status) {
+            case 200:
+                return "OK";
+            case 400:
+                return "Bad Request";
+            case 404:
+                return "Not Found";
+            case 405:
+                return "Method Not Allowed";
+            case 411:
+                return "Length Required";
+            case 413:
+                return "Payload Too Large";
+            case 415:
+                return "Unsupported Media Type";
+            case 429:
+                return "Too Many Requests";
+            case 431:
+                return "Request Header Fields Too Large";
+            case 503:
+                return "Service Unavailable";
+            default:
+                return status >= 500 ? "Internal Server Error" : "Error";
+        }
+    }
+
+    private String getRetryAfterHeader() {
+        return "Retry-After: " + requestHandler.getRetryAfterSec() + "\r\n";
+    }
+
+    private static Map<String, String> parseQueryString(String query) {
+        Map<String, String> params = new HashMap<>();
+        if (query == null) {
+            return params;
+        }
+        for (String param : query.split("&")) {
+            int separator = param.indexOf('=');
+            String key = separator >= 0 ? param.substring(0, separator) : param;
+            String value = separator >= 0 ? param.substring(separator + 1) : "";
+            params.put(URLDecoder.decode(key, StandardCharsets.UTF_8), URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+        return params;
+    }
+
+    /**
+     * State of one client connection. All methods except {@link #process()} are called on the selector thread.
+     * While PROCESSING the connection is not registered for any events and the body buffers are owned by the worker.
+     */
+    private class Connection {
+        private final SocketChannel channel;
+        private final String remoteAddress;
+        private SelectionKey key;
+        private State state = State.READING_HEADER;
+        private ByteBuffer headerBuffer;
+        private final List<ByteBuffer> body = new ArrayList<>();
+        private StreamingBody streamingBody;
+        private String method;
+        private String path;
+        private String query;
+        private String userAgent;
+        private String contentEncoding;
+        private boolean keepAlive;
+        private int contentLength;
+        private int bodyBytesRead;
+        private ByteBuffer response;
+        private boolean closeAfterResponse;
+        private long lastActivityTs = System.currentTimeMillis();
+        private long requestStartTs;
+
+        private Connection(SocketChannel channel) {
+            this.channel = channel;
+            remoteAddress = String.valueOf(channel.socket().getRemoteSocketAddress());
+        }
+
+        private void onReadable() throws IOException {
+            lastActivityTs = System.currentTimeMillis();
+            if (state == State.READING_HEADER) {
+                if (headerBuffer == null) {
+                    headerBuffer = bufferPool.acquire();
+                }
+                if (channel.read(headerBuffer) < 0) {
+                    close();
+                    return;
+                }
+                if (requestStartTs == 0) {
+                    requestStartTs = lastActivityTs;
+                }
+                parseHeader();
+            } else if (state == State.READING_BODY && streamingBody != null) {
+                readStreamingBody();
+            } else if (state == State.READING_BODY) {
+                ByteBuffer chunk = getBodyChunk();
+                int numBytes = channel.read(chunk);
+                if (numBytes < 0) {
+                    close();
+                    return;
+                }
+                bodyBytesRead += numBytes;
+                if (bodyBytesRead == contentLength) {
+                    dispatch();
+                }
+            }
+        }
+
+        private void parseHeader() throws IOException {
+            int headerEnd = indexOf(headerBuffer, Math.min(headerBuffer.position(), maxHeaderBytes), HEADER_END);
+            if (headerEnd < 0) {
+                if (headerBuffer.position() >= maxHeaderBytes) {
+                    sendError(431);
+                }
+                return;
+            }
+
+            byte[] headerBytes = new byte[headerEnd];
+            ByteBuffer header = headerBuffer.duplicate();
+            header.position(0).limit(headerEnd);
+            header.get(headerBytes);
+            String[] lines = new String(headerBytes, StandardCharsets.ISO_8859_1).split("\r\n");
+            String[] requestLine = lines[0].split(" ");
+            if (requestLine.length != 3 || !requestLine[2].startsWith("HTTP/1.")) {
+                sendError(400);
+                return;
+            }
+            method = requestLine[0];
+            String target = requestLine[1];
+            int querySeparator = target.indexOf('?');
+            path = querySeparator >= 0 ? target.substring(0, querySeparator) : target;
+            query = querySeparator >= 0 ? target.substring(querySeparator + 1) : null;
+            keepAlive = requestLine[2].equals("HTTP/1.1");
+            contentLength = 0;
+            userAgent = null;
+            contentEncoding = null;
+            boolean expectContinue = false;
+            for (int i = 1; i < lines.length; i++) {
+                int separator = lines[i].indexOf(':');
+                if (separator <= 0) {
+                    sendError(400);
+                    return;
+                }
+                String name = lines[i].substring(0, separator).trim().toLowerCase();
+                String value = lines[i].substring(separator + 1).trim();
+                switch (name) {
+                    case "content-length":
+                        try {
+                            contentLength = Integer.parseInt(value);
+                        } catch (NumberFormatException e) {
+                            sendError(400);
+                            return;
+                        }
+                        break;
+                    case "transfer-encoding":
+                        sendError(411);
+                        return;
+                    case "connection":
+                        keepAlive = value.equalsIgnoreCase("keep-alive") ||
+                                (keepAlive && !value.equalsIgnoreCase("close"));
+                        break;
+                    case "expect":
+                        expectContinue = value.equalsIgnoreCase("100-continue");
+                        break;
+                    case "user-agent":
+                        userAgent = value;
+                        break;
+                    case "content-encoding":
+                        contentEncoding = value;
+                        break;
+                }
+            }
+            if (contentLength < 0) {
+                sendError(400);
+                return;
+            }
+            if (!ContentDecoder.isSupported(contentEncoding)) {
+                sendError(415, "Accept-Encoding: " + ContentDecoder.SUPPORTED_ENCODINGS + "\r\n");
+                return;
+            }
+            boolean isStreaming = method.equals("POST") && path.equals("/batch");
+            if (contentLength > maxRequestBytes && !isStreaming) {
+                sendError(413);
+                return;
+            }
+
+            // Bytes after the header belong to the body, bytes after the body to the next (pipelined) request
+            headerBuffer.flip();
+            headerBuffer.position(headerEnd + HEADER_END.length);
+            bodyBytesRead = 0;
+            while (headerBuffer.hasRemaining() && bodyBytesRead < contentLength) {
+                ByteBuffer chunk = getBodyChunk();
+                int numBytes = Math.min(chunk.remaining(), headerBuffer.remaining());
+                ByteBuffer slice = headerBuffer.slice();
+                slice.limit(numBytes);
+                chunk.put(slice);
+                headerBuffer.position(headerBuffer.position() + numBytes);
+                bodyBytesRead += numBytes;
+            }
+            headerBuffer.compact();
+
+            if (isStreaming) {
+                dispatchStreaming(expectContinue);
+            } else if (bodyBytesRead == contentLength) {
+                dispatch();
+            } else {
+                state = State.READING_BODY;
+                if (expectContinue) {
+                    // Tiny write which fits into an empty socket buffer
+                    channel.write(ByteBuffer.wrap(CONTINUE));
+                }
+            }
+        }
+
+        // Returns the last body buffer if it has space left, limited to the missing body bytes
+        private ByteBuffer getBodyChunk() {
+            ByteBuffer chunk = body.isEmpty() ? null : body.get(body.size() - 1);
+            if (chunk == null || !chunk.hasRemaining()) {
+                chunk = bufferPool.acquire();
+                body.add(chunk);
+            }
+            chunk.limit(Math.min(chunk.capacity(), chunk.position() + contentLength - bodyBytesRead));
+            return chunk;
+        }
+
+        private void readStreamingBody() throws IOException {
+            ByteBuffer chunk = bufferPool.acquire();
+            chunk.limit(Math.min(chunk.capacity(), contentLength - bodyBytesRead));
+            int numBytes = channel.read(chunk);
+            if (numBytes <= 0) {
+                bufferPool.release(chunk);
+                if (numBytes < 0) {
+                    close();
+                }
+                return;
+            }
+            bodyBytesRead += numBytes;
+            chunk.flip();
+            streamingBody.offer(chunk);
+            if (bodyBytesRead == contentLength) {
+                streamingBody.finish(true);
+                state = State.PROCESSING;
+                key.interestOps(0);
+            } else {
+                streamingBody.pauseIfFull();
+            }
+        }
+
+        private void dispatchStreaming(boolean expectContinue) throws IOException {
+            streamingBody = new StreamingBody(this);
+            for (ByteBuffer chunk : body) {
+                chunk.flip();
+                streamingBody.offer(chunk);
+            }
+            body.clear();
+            try {
+                workers.execute(this::process);
+            } catch (RejectedExecutionException e) {
+                streamingBody.close();
+                log.debug("Worker queue full. We reject the request from {}", remoteAddress);
+                // The body was not read, so the connection cannot be reused
+                keepAlive = false;
+                setResponse(503, EMPTY, null, getRetryAfterHeader());
+                writeResponse();
+                return;
+            }
+
+            if (bodyBytesRead == contentLength) {
+                streamingBody.finish(true);
+                state = State.PROCESSING;
+                key.interestOps(0);
+            } else {
+                state = State.READING_BODY;
+                if (expectContinue) {
+                    channel.write(ByteBuffer.wrap(CONTINUE));
+                }
+            }
+        }
+
+        private void dispatch() {
+            state = State.PROCESSING;
+            key.interestOps(0);
+            body.forEach(ByteBuffer::flip);
+            try {
+                workers.execute(this::process);
+            } catch (RejectedExecutionException e) {
+                releaseBody();
+                log.debug("Worker queue full. We reject the request from {}", remoteAddress);
+                setResponse(503, EMPTY, null, getRetryAfterHeader());
+                try {
+                    writeResponse();
+                } catch (IOException ioException) {
+                    close();
+                }
+            }
+        }
+
+        // Runs on a worker thread
+        private void process() {
+            int status;
+            byte[] responseBody = EMPTY;
+            String contentType = null;
+            String extraHeaders = "";
+            try {
+                if (path.equals("/")) {
+                    status = method.equals("POST") ?
+                            requestHandler.onReport(new ByteBuffersInputStream(body), contentLength, contentEncoding,
+                                    userAgent != null ? userAgent : remoteAddress) :
+                            405;
+                } else if (path.equals("/batch")) {
+                    if (method.equals("POST")) {
+                        RequestHandler.BatchResult result = requestHandler.onBatch(streamingBody, contentEncoding,
+                                userAgent != null ? userAgent : remoteAddress);
+                        status = result.getStatus();
+                        extraHeaders = RequestHandler.ACCEPTED_HEADER + ": " + result.getNumAccepted() + "\r\n";
+                    } else {
+                        status = 405;
+                    }
+                } else if (path.equals("/query") && queryHandler != null) {
+                    if (method.equals("GET")) {
+                        Map<String, String> params = parseQueryString(query);
+                        try {
+                            QueryHandler.Query parsed = queryHandler.parse(params.get("target"),
+                                    params.get("from"), params.get("until"));
+                            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+                            queryHandler.write(parsed, outputStream);
+                            status = 200;
+                            responseBody = outputStream.toByteArray();
+                            contentType = "application/json";
+                        } catch (IllegalArgumentException e) {
+                            status = 400;
+                            responseBody = e.getMessage().getBytes(StandardCharsets.UTF_8);
+                        }
+                    } else {
+                        status = 405;
+                    }
+                } else {
+                    status = 404;
+                }
+            } catch (Throwable t) {
+                log.error("Error at processing request {} {}", method, path, t);
+                status = 500;
+            } finally {
+                releaseBody();
+                if (streamingBody != null) {
+                    if (!streamingBody.isComplete()) {
+                        // The rest of the body was not read, so the connection cannot be reused
+                        keepAlive = false;
+                    }
+                    streamingBody.close();
+                }
+            }
+            if (RequestHandler.isRetryLater(status)) {
+                extraHeaders += getRetryAfterHeader();
+            }
+            setResponse(status, responseBody, contentType, extraHeaders);
+            pendingResponses.add(this);
+            selector.wakeup();
+        }
+
+        private void sendError(int status) throws IOException {
+            sendError(status, "");
+        }
+
+        private void sendError(int status, String extraHeaders) throws IOException {
+            keepAlive = false;
+            releaseBody();
+            setResponse(status, EMPTY, null, extraHeaders);
+            writeResponse();
+        }
+
+        private void setResponse(int status, byte[] responseBody, String contentType, String extraHeaders) {
+            StringBuilder header = new StringBuilder(128)
+                    .append("HTTP/1.1 ").append(status).append(' ').append(getReasonPhrase(status)).append("\r\n")
+                    .append("Content-Length: ").append(responseBody.length).append("\r\n")
+                    .append("Connection: ").append(keepAlive ? "keep-alive" : "close").append("\r\n")
+                    .append(extraHeaders);
+            if (contentType != null) {
+                header.append("Content-Type: ").append(contentType).append("\r\n");
+            }
+            header.append("\r\n");
+            byte[] headerBytes = header.toString().getBytes(StandardCharsets.US_ASCII);
+            response = ByteBuffer.allocate(headerBytes.length + responseBody.length);
+            response.put(headerBytes).put(responseBody).flip();
+            closeAfterResponse = !keepAlive;
+        }
+
+        private void writeResponse() throws IOException {
+            long now = System.currentTimeMillis();
+            if (state != State.WRITING) {
+                state = State.WRITING;
+                // The idle time while writing counts from the start of the response, not from the request
+                lastActivityTs = now;
+            }
+            if (channel.write(response) > 0) {
+                lastActivityTs = now;
+            }
+            if (response.hasRemaining()) {
+                key.interestOps(SelectionKey.OP_WRITE);
+                return;
+            }
+
+            response = null;
+            streamingBody = null;
+            if (closeAfterResponse) {
+                close();
+                return;
+            }
+            state = State.READING_HEADER;
+            requestStartTs = 0;
+            lastActivityTs = System.currentTimeMillis();
+            key.interestOps(SelectionKey.OP_READ);
+            if (headerBuffer.position() > 0) {
+                // Pipelined request
+                requestStartTs = lastActivityTs;
+                parseHeader();
+            } else {
+                // Idle keep-alive connections do not hold a buffer
+                bufferPool.release(headerBuffer);
+                headerBuffer = null;
+            }
+        }
+
+        private boolean isTimedOut(long now) {
+            if (state == State.WRITING) {
+                // A client which does not read its response would otherwise hold the connection and the response
+                return now - lastActivityTs > idleTimeoutMs;
+            }
+            if (state != State.READING_HEADER && state != State.READING_BODY) {
+                return false;
+            }
+            if (streamingBody != null) {
+                // Not while we wait for the worker, and a large batch may take longer than requestTimeoutMs
+                return (key.interestOps() & SelectionKey.OP_READ) != 0 && now - lastActivityTs > idleTimeoutMs;
+            }
+            return now - lastActivityTs > idleTimeoutMs ||
+                    (requestStartTs > 0 && now - requestStartTs > requestTimeoutMs);
+        }
+
+        private void close() {
+            connections.remove(this);
+            if (key != null) {
+                key.cancel();
+            }
+            try {
+                channel.close();
+            } catch (IOException ignore) {
+            }
+            if (headerBuffer != null) {
+                bufferPool.release(headerBuffer);
+                headerBuffer = null;
+            }
+            // While processing, the worker releases the body
+            if (state != State.PROCESSING) {
+                releaseBody();
+            }
+            if (streamingBody != null) {
+                // Unblocks the worker
+                streamingBody.finish(false);
+            }
+        }
+
+        private void releaseBody() {
+            body.forEach(bufferPool::release);
+            body.clear();
+        }
+    }
+
+    /**
+     * Body of a streamed request. The selector thread hands over the chunks as they are read and the worker consumes
+     * them. If MAX_BUFFERED_CHUNKS are pending the selector stops reading until the worker has consumed one, so the
+     * client gets TCP backpressure instead of us buffering the body.
+     */
+    private class StreamingBody extends InputStream {
+        private final Connection connection;
+        private final BlockingQueue<ByteBuffer> chunks = new LinkedBlockingQueue<>();
+        private final AtomicBoolean paused = new AtomicBoolean();
+        private volatile boolean complete;
+        private volatile boolean closed;
+        // Only used by the worker
+        private ByteBuffer current;
+        private boolean endOfBody;
+
+        private StreamingBody(Connection connection) {
+            this.connection = connection;
+        }
+
+        // Selector thread
+        private void offer(ByteBuffer chunk) {
+            if (closed) {
+                bufferPool.release(chunk);
+            } else {
+                chunks.add(chunk);
+            }
+        }
+
+        // Selector thread
+        private void finish(boolean complete) {
+            this.complete = complete;
+            chunks.add(END_OF_BODY);
+        }
+
+        // Selector thread. The flag is set before the check, so a worker consuming concurrently resumes us.
+        private void pauseIfFull() {
+            paused.set(true);
+            if (chunks.size() >= MAX_BUFFERED_CHUNKS) {
+                connection.key.interestOps(0);
+            } else {
+                paused.set(false);
+            }
+        }
+
+        private boolean isComplete() {
+            return complete;
+        }
+
+        @Override
+        public int read() throws IOException {
+            ByteBuffer buffer = next();
+            return buffer == null ? -1 : buffer.get() & 0xff;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) throws IOException {
+            if (length == 0) {
+                return 0;
+            }
+            ByteBuffer buffer = next();
+            if (buffer == null) {
+                return -1;
+            }
+            int numBytes = Math.min(length, buffer.remaining());
+            buffer.get(bytes, offset, numBytes);
+            return numBytes;
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+            if (current != null) {
+                bufferPool.release(current);
+                current = null;
+            }
+            ByteBuffer chunk;
+            while ((chunk = chunks.poll()) != null) {
+                if (chunk != END_OF_BODY) {
+                    bufferPool.release(chunk);
+                }
+            }
+        }
+
+        private ByteBuffer next() throws IOException {
+            while (current == null || !current.hasRemaining()) {
+                if (current != null) {
+                    bufferPool.release(current);
+                    current = null;
+                    if (paused.compareAndSet(true, false)) {
+                        resumeReading.add(connection);
+                        selector.wakeup();
+                    }
+                }
+                if (endOfBody) {
+                    return null;
+                }
+                ByteBuffer chunk;
+                try {
+                    chunk = chunks.take();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while waiting for the request body");
+                }
+                if (chunk == END_OF_BODY) {
+                    endOfBody = true;
+                    return null;
+                }
+                current = chunk;
+            }
+            return current;
+        }
+    }
+
+    /**
+     * Reads the flipped body buffers in sequence without copying them into a single array.
+     */
+    private static class ByteBuffersInputStream extends InputStream {
+        private final List<ByteBuffer> buffers;
+        private int index;
+
+        private ByteBuffersInputStream(List<ByteBuffer> buffers) {
+            this.buffers = buffers;
+        }
+
+        @Override
+        public int read() {
+            ByteBuffer buffer = current();
+            return buffer == null ? -1 : buffer.get() & 0xff;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) {
+            if (length == 0) {
+                return 0;
+            }
+            ByteBuffer buffer = current();
+            if (buffer == null) {
+                return -1;
+            }
+            int numBytes = Math.min(length, buffer.remaining());
+            buffer.get(bytes, offset, numBytes);
+            return numBytes;
+        }
+
+        @Override
+        public int available() {
+            ByteBuffer buffer = current();
+            return buffer == null ? 0 : buffer.remaining();
+        }
+
+        private ByteBuffer current() {
+            while (index < buffers.size() && !buffers.get(index).hasRemaining()) {
+                index++;
+            }
+            return index < buffers.size() ? buffers.get(index) : null;
+        }
+    }
+}
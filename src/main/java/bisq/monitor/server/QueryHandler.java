@@ -0,0 +1,382 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.monitor.server;
+
+import bisq.monitor.reporter.MetricName;
+import bisq.monitor.reporter.Metrics;
+import bisq.monitor.reporter.RecentMetrics;
+import bisq.monitor.reporter.tsdb.TimeSeriesStore;
+import lombok.extern.slf4j.Slf4j;
+import spark.Request;
+import spark.Response;
+
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.regex.Pattern;
+
+/**
+ * Read-only query endpoint over the recently reported metrics, e.g.
+ * GET /query?target=bisq_v2.seedNodes.*.seedReport.node.usedMemoryInMB&from=-6h&until=now
+ * <p>
+ * Parameters follow the Graphite render API: target is a path glob (the root segment can be omitted), from and until
+ * are epoch seconds, 'now' or relative like -30min, -6h, -2d. The response uses the Graphite JSON format
+ * [{"target": path, "datapoints": [[value, timeStampInSec], ...]}, ...]. It is rendered into the output stream of
+ * the transport, which buffers the whole body on the NIO server.
+ * <p>
+ * If the embedded {@link TimeSeriesStore} is enabled, the points are read from it, so queries cover its retention
+ * period and not only the last values kept in memory. Series are still found by their names in the recent metrics.
+ * <p>
+ * Responses are cached for cacheTtlMs by the query string, so dashboards polling the same queries are cheap. The cache
+ * is limited to maxCacheBytes in total. Expired responses are dropped when read or when a response gets added, and if
+ * the cache is still full the least recently used responses are evicted.
+ */
+@Slf4j
+public class QueryHandler {
+    private static final int MAX_CACHED_RESPONSE_SIZE = 1024 * 1024;
+    private static final long DEFAULT_MAX_CACHE_BYTES = 16 * 1024 * 1024;
+
+    private final RecentMetrics recentMetrics;
+    private final TimeSeriesStore store;
+    private final long cacheTtlMs;
+    private final long maxCacheBytes;
+    private final int maxCachedResponseSize;
+    // In access order, so the least recently used response comes first. Guarded by itself, as is cachedBytes.
+    private final Map<String, CachedResponse> cache = new LinkedHashMap<>(16, 0.75f, true);
+    private long cachedBytes;
+
+    public QueryHandler(RecentMetrics recentMetrics, long cacheTtlMs) {
+        this(recentMetrics, cacheTtlMs, DEFAULT_MAX_CACHE_BYTES);
+    }
+
+    public QueryHandler(RecentMetrics recentMetrics, long cacheTtlMs, long maxCacheBytes) {
+        this(recentMetrics, null, cacheTtlMs, maxCacheBytes);
+    }
+
+    /**
+     * @param store If not null the points are read from the store
+     */
+    public QueryHandler(RecentMetrics recentMetrics, TimeSeriesStore store, long cacheTtlMs, long maxCacheBytes) {
+        this.recentMetrics = recentMetrics;
+        this.store = store;
+        this.cacheTtlMs = cacheTtlMs;
+        this.maxCacheBytes = maxCacheBytes;
+        maxCachedResponseSize = (int) Math.min(MAX_CACHED_RESPONSE_SIZE, maxCacheBytes);
+    }
+
+    public Object onQuery(Request request, Response response) throws IOException {
+        Query query;
+        try {
+            query = parse(request.queryParams("target"), request.queryParams("from"), request.queryParams("until"));
+        } catch (IllegalArgumentException e) {
+            response.status(400);
+            return e.getMessage();
+        }
+
+        response.status(200);
+        response.type("application/json");
+        write(query, response.raw().getOutputStream());
+        return "";
+    }
+
+    /**
+     * @throws IllegalArgumentException if a parameter is missing or invalid. The message is meant for the client.
+     */
+    Query parse(String target, String fromParam, String untilParam) {
+        if (target == null || target.isEmpty()) {
+            throw new IllegalArgumentException("Missing parameter target");
+        }
+        long now = System.currentTimeMillis() / 1000;
+        long from = parseTime(fromParam, now - TimeUnit.HOURS.toSeconds(1), now);
+        long until = parseTime(untilParam, now, now);
+        String glob = target.startsWith(Metrics.ROOT + ".") ? target : Metrics.ROOT + "." + target;
+        return new Query(RecentMetrics.toPattern(glob), from, until, target + "|" + fromParam + "|" + untilParam);
+    }
+
+    /**
+     * Streams the JSON response to outputStream, or the cached one if still valid.
+     */
+    void write(Query query, OutputStream outputStream) throws IOException {
+        CachedResponse cached = getFromCache(query.cacheKey);
+        if (cached != null) {
+            outputStream.write(cached.body);
+            outputStream.flush();
+            return;
+        }
+
+        CachingOutputStream cachingOutputStream = new CachingOutputStream(outputStream, maxCachedResponseSize);
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(cachingOutputStream, StandardCharsets.UTF_8))) {
+            writer.write('[');
+            boolean[] first = {true};
+            BiConsumer<MetricName, List<Metrics>> seriesWriter = (name, metrics) -> {
+                try {
+                    if (!first[0]) {
+                        writer.write(',');
+                    }
+                    first[0] = false;
+                    writeSeries(writer, name, metrics);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            };
+            if (store != null) {
+                queryStore(query, seriesWriter);
+            } else {
+                recentMetrics.query(query.pattern, query.from, query.until, seriesWriter);
+            }
+            writer.write(']');
+        } catch (UncheckedIOException e) {
+            // Client closed the connection
+            log.debug("Writing query response failed: {}", e.getMessage());
+            return;
+        }
+        if (cacheTtlMs > 0 && !cachingOutputStream.isOverflown()) {
+            putIntoCache(query.cacheKey, cachingOutputStream.getCachedBytes());
+        }
+    }
+
+    private void queryStore(Query query, BiConsumer<MetricName, List<Metrics>> consumer) {
+        List<MetricName> names = recentMetrics.getNames(query.pattern);
+        Map<MetricName, List<Metrics>> metricsByName = new LinkedHashMap<>();
+        names.forEach(name -> metricsByName.put(name, new ArrayList<>()));
+        store.query(names, query.from, query.until, (name, timeStampInSec, value) ->
+                metricsByName.get(name).add(new Metrics(name, value, timeStampInSec)));
+        metricsByName.forEach((name, metrics) -> {
+            if (!metrics.isEmpty()) {
+                consumer.accept(name, metrics);
+            }
+        });
+    }
+
+    long getCachedBytes() {
+        synchronized (cache) {
+            return cachedBytes;
+        }
+    }
+
+    private CachedResponse getFromCache(String key) {
+        long now = System.currentTimeMillis();
+        synchronized (cache) {
+            CachedResponse cached = cache.get(key);
+            if (cached != null && cached.expiry <= now) {
+                cache.remove(key);
+                cachedBytes -= cached.body.length;
+                return null;
+            }
+            return cached;
+        }
+    }
+
+    private void putIntoCache(String key, byte[] body) {
+        long now = System.currentTimeMillis();
+        synchronized (cache) {
+            Iterator<CachedResponse> iterator = cache.values().iterator();
+            while (iterator.hasNext()) {
+                CachedResponse cached = iterator.next();
+                if (cached.expiry <= now) {
+                    iterator.remove();
+                    cachedBytes -= cached.body.length;
+                }
+            }
+            CachedResponse previous = cache.put(key, new CachedResponse(body, now + cacheTtlMs));
+            cachedBytes += body.length - (previous != null ? previous.body.length : 0);
+            iterator = cache.values().iterator();
+            while (cachedBytes > maxCacheBytes && iterator.hasNext()) {
+                cachedBytes -= iterator.next().body.length;
+                iterator.remove();
+            }
+        }
+    }
+
+    private static void writeSeries(Writer writer, MetricName name, List<Metrics> metrics) throws IOException {
+        writer.write("{\"target\":");
+        writeString(writer, name.getPath());
+        writer.write(",\"datapoints\":[");
+        for (int i = 0; i < metrics.size(); i++) {
+            Metrics item = metrics.get(i);
+            if (i > 0) {
+                writer.write(',');
+            }
+            writer.write('[');
+            switch (item.getType()) {
+                case LONG:
+                    writer.write(Long.toString(item.getLongValue()));
+                    break;
+                case DOUBLE:
+                    double value = item.getDoubleValue();
+                    writer.write(Double.isFinite(value) ? Double.toString(value) : "null");
+                    break;
+                default:
+                    writeString(writer, item.getStringValue());
+            }
+            writer.write(',');
+            writer.write(Long.toString(item.getTimeStampInSec()));
+            writer.write(']');
+        }
+        writer.write("]}");
+    }
+
+    private static void writeString(Writer writer, String value) throws IOException {
+        writer.write('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                writer.write('\\');
+                writer.write(c);
+            } else if (c < 0x20) {
+                writer.write(String.format("\\u%04x", (int) c));
+            } else {
+                writer.write(c);
+            }
+        }
+        writer.write('"');
+    }
+
+    private static long parseTime(String value, long defaultValue, long now) {
+        if (value == null || value.isEmpty()) {
+            return defaultValue;
+        }
+        if (value.equals("now")) {
+            return now;
+        }
+        try {
+            if (!value.startsWith("-")) {
+                return Long.parseLong(value);
+            }
+            int unitStart = 1;
+            while (unitStart < value.length() && Character.isDigit(value.charAt(unitStart))) {
+                unitStart++;
+            }
+            long amount = Long.parseLong(value.substring(1, unitStart));
+            return now - amount * getUnitInSec(value.substring(unitStart));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid time " + value);
+        }
+    }
+
+    private static long getUnitInSec(String unit) {
+        switch (unit) {
+            case "s":
+            case "sec":
+            case "":
+                return 1;
+            case "min":
+                return TimeUnit.MINUTES.toSeconds(1);
+            case "h":
+                return TimeUnit.HOURS.toSeconds(1);
+            case "d":
+                return TimeUnit.DAYS.toSeconds(1);
+            case "w":
+                return TimeUnit.DAYS.toSeconds(7);
+            default:
+                throw new IllegalArgumentException("Invalid time unit " + unit);
+        }
+    }
+
+    static class Query {
+        private final Pattern pattern;
+        private final long from;
+        private final long until;
+        private final String cacheKey;
+
+        private Query(Pattern pattern, long from, long until, String cacheKey) {
+            this.pattern = pattern;
+            this.from = from;
+            this.until = until;
+            this.cacheKey = cacheKey;
+        }
+    }
+
+    private static class CachedResponse {
+        private final byte[] body;
+        private final long expiry;
+
+        private CachedResponse(byte[] body, long expiry) {
+            this.body = body;
+            this.expiry = expiry;
+        }
+    }
+
+    /**
+     * Passes all bytes to the response and keeps a copy for the cache as long as it is not too large.
+     */
+    private static class CachingOutputStream extends OutputStream {
+        private final OutputStream delegate;
+        private final int maxSize;
+        private ByteArrayOutputStream copy = new ByteArrayOutputStream();
+
+        private CachingOutputStream(OutputStream delegate, int maxSize) {
+            this.delegate = delegate;
+            this.maxSize = maxSize;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            delegate.write(b);
+            if (copy != null) {
+                copy.write(b);
+                checkSize();
+            }
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+            delegate.write(bytes, offset, length);
+            if (copy != null) {
+                copy.write(bytes, offset, length);
+                checkSize();
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            delegate.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            delegate.flush();
+        }
+
+        private boolean isOverflown() {
+            return copy == null;
+        }
+
+        private byte[] getCachedBytes() {
+            return copy.toByteArray();
+        }
+
+        private void checkSize() {
+            if (copy.size() > maxSize) {
+                copy = null;
+            }
+        }
+    }
+}
@@ -17,63 +17,227 @@
 
 package bisq.monitor.server;
 
+import bisq.monitor.reporter.LastValueCache;
+import bisq.monitor.reporter.Metrics;
 import bisq.monitor.reporter.Reporter;
+import bisq.monitor.reporter.ReporterScheduler;
 import bisq.monitor.server.handlers.*;
-import bisq.monitor.utils.Util;
-import bisq.seednode.reporting.ReportingItems;
+import lombok.Value;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.compress.MemoryLimitException;
 import spark.Request;
 import spark.Response;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Properties;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 import static com.google.common.base.Preconditions.checkArgument;
 
 @Slf4j
 public class RequestHandler {
+    // Response header of the batch endpoint with the number of reports taken from the body
+    public static final String ACCEPTED_HEADER = "X-Reports-Accepted";
+
+    @Value
+    public static class BatchResult {
+        int status;
+        int numAccepted;
+    }
+
     private final Set<ReportingHandler> reportingHandlers = new HashSet<>();
-    private final ExecutorService executor;
+    private final IngestionQueue ingestionQueue;
+    private final int retryAfterSec;
+    private final long batchMaxBytes;
+    private final long batchMaxWaitMs;
+    private final long maxDecodedBytes;
+    private final int xzMemoryLimitKb;
+    private final ReporterScheduler scheduler = new ReporterScheduler("RequestHandler-stats").start();
 
-    public RequestHandler(Reporter reporter) {
-        reportingHandlers.add(new DaoStateHandler(reporter));
-        reportingHandlers.add(new NetworkDataHandler(reporter));
-        reportingHandlers.add(new NodeLoadHandler(reporter));
-        reportingHandlers.add(new NetworkLoadHandler(reporter));
+    public RequestHandler(Reporter reporter, Properties properties) {
+        int maxSize = Integer.parseInt(properties.getProperty("Server.lastValueCache.maxSize", "100000"));
+        long ttlSec = Long.parseLong(properties.getProperty("Server.lastValueCache.ttlSec", "21600"));
+        LastValueCache lastValueCache = new LastValueCache(maxSize, TimeUnit.SECONDS.toMillis(ttlSec));
+        reportingHandlers.add(new DaoStateHandler(reporter, lastValueCache));
+        reportingHandlers.add(new NetworkDataHandler(reporter, lastValueCache));
+        reportingHandlers.add(new NodeLoadHandler(reporter, lastValueCache));
+        reportingHandlers.add(new NetworkLoadHandler(reporter, lastValueCache));
 
-        executor = Util.newCachedThreadPool(20);
+        int numThreads = Integer.parseInt(properties.getProperty("Server.ingestion.threads", "4"));
+        int queueCapacity = Integer.parseInt(properties.getProperty("Server.ingestion.queueCapacity", "1000"));
+        int maxQueuedPerClient = Integer.parseInt(properties.getProperty("Server.ingestion.maxQueuedPerClient", "50"));
+        ingestionQueue = new IngestionQueue(numThreads, queueCapacity, maxQueuedPerClient);
+        retryAfterSec = Integer.parseInt(properties.getProperty("Server.ingestion.retryAfterSec", "5"));
+        batchMaxBytes = Long.parseLong(properties.getProperty("Server.batch.maxBytes", "67108864"));
+        batchMaxWaitMs = Long.parseLong(properties.getProperty("Server.batch.maxWaitMs", "10000"));
+        maxDecodedBytes = Long.parseLong(properties.getProperty("Server.maxDecodedBytes", "16777216"));
+        xzMemoryLimitKb = Integer.parseInt(properties.getProperty("Server.xzMemoryLimitKb", "16384"));
+        long statsIntervalSec = Long.parseLong(properties.getProperty("Server.ingestion.statsIntervalSec", "60"));
+        if (statsIntervalSec > 0) {
+            scheduler.runPeriodically(() -> {
+                List<Metrics> metrics = new ArrayList<>();
+                ingestionQueue.addTo(metrics);
+                reporter.report(metrics);
+            }, statsIntervalSec, TimeUnit.SECONDS);
+        }
     }
 
     public String onRequest(Request request, Response response) {
         byte[] protoMessageAsBytes = request.bodyAsBytes();
-        try {
-            checkArgument(protoMessageAsBytes != null && protoMessageAsBytes.length > 0);
-            ReportingItems reportingItems = ReportingItems.fromProtoMessageAsBytes(protoMessageAsBytes);
-            log.info("Received from {} reportingItems {}", request.userAgent(), reportingItems);
-            try {
-                reportingHandlers.forEach(handler -> CompletableFuture.runAsync(() -> {
-                    try {
-                        handler.report(reportingItems);
-                    } catch (Throwable t) {
-                        log.error("Error at report call on {}. Error message: {}", handler.getClass().getSimpleName(), t.getMessage());
-                    }
-                }, executor));
-            } catch (Throwable t) {
-                log.error("Error at onRequest", t);
-            }
-            response.status(200);
+        int contentLength = protoMessageAsBytes != null ? protoMessageAsBytes.length : 0;
+        InputStream body = new ByteArrayInputStream(protoMessageAsBytes != null ? protoMessageAsBytes : new byte[0]);
+        int status = onReport(body, contentLength, request.headers("Content-Encoding"), request.userAgent());
+        setStatus(response, status);
+        return "";
+    }
+
+    /**
+     * Transport independent handling of a report. The protobuf message is parsed directly from the given stream and
+     * the handlers run on the {@link IngestionQueue}.
+     *
+     * @param contentLength   Size of the body in bytes as sent, i.e. before decoding
+     * @param contentEncoding Value of the Content-Encoding header, null if not present
+     * @param client          Used for logging, e.g. the user agent
+     * @return the HTTP status code for the response. For 429 and 503 the client should retry after
+     * {@link #getRetryAfterSec()}, for 415 it should resend with one of {@link ContentDecoder#SUPPORTED_ENCODINGS}.
+     */
+    public int onReport(InputStream body, int contentLength, String contentEncoding, String client) {
+        if (!ContentDecoder.isSupported(contentEncoding)) {
+            log.warn("Unsupported content encoding {} from {}", contentEncoding, client);
+            return 415;
+        }
+        try (InputStream inputStream = ContentDecoder.decode(body, contentEncoding, maxDecodedBytes,
+                xzMemoryLimitKb)) {
+            checkArgument(contentLength > 0);
+            IndexedReportingItems reportingItems =
+                    IndexedReportingItems.fromProto(protobuf.ReportingItems.parseFrom(inputStream));
+            log.info("Received from {} {} reportingItems of {}", client, reportingItems.getSize(),
+                    reportingItems.getAddress());
+            return toStatus(ingestionQueue.submit(reportingItems.getAddress(), () -> dispatch(reportingItems)));
+        } catch (BoundedInputStream.LimitExceededException e) {
+            log.warn("Decoded report from {} too large: {}", client, e.getMessage());
+            return 413;
+        } catch (MemoryLimitException e) {
+            log.warn("Decoding report from {} needs too much memory: {}", client, e.getMessage());
+            return 413;
         } catch (Throwable t) {
             log.error("Error at onRequest", t);
-            response.status(500);
+            return 500;
         }
+    }
 
+    public String onBatchRequest(Request request, Response response) throws IOException {
+        BatchResult result = onBatch(request.raw().getInputStream(), request.headers("Content-Encoding"),
+                request.userAgent());
+        setStatus(response, result.getStatus());
+        response.header(ACCEPTED_HEADER, String.valueOf(result.getNumAccepted()));
         return "";
     }
 
+    /**
+     * Transport independent handling of a stream of length-delimited ReportingItems messages, e.g. the backlog of a
+     * seed node after downtime. Each message is parsed and queued while reading, so the body is never held in memory
+     * as a whole. If a report is not admitted within batchMaxWaitMs we stop reading and the client is expected to
+     * resend the reports after the first numAccepted ones. Server.batch.maxBytes applies to the decoded stream.
+     *
+     * @param contentEncoding Value of the Content-Encoding header, null if not present
+     * @param client          Used for logging, e.g. the user agent
+     */
+    public BatchResult onBatch(InputStream body, String contentEncoding, String client) {
+        if (!ContentDecoder.isSupported(contentEncoding)) {
+            log.warn("Unsupported content encoding {} of batch from {}", contentEncoding, client);
+            return new BatchResult(415, 0);
+        }
+        int numAccepted = 0;
+        try (InputStream inputStream = ContentDecoder.decode(body, contentEncoding, batchMaxBytes,
+                xzMemoryLimitKb)) {
+            protobuf.ReportingItems proto;
+            while ((proto = protobuf.ReportingItems.parseDelimitedFrom(inputStream)) != null) {
+                IndexedReportingItems reportingItems = IndexedReportingItems.fromProto(proto);
+                log.debug("Received in batch from {} {} reportingItems of {}", client, reportingItems.getSize(),
+                        reportingItems.getAddress());
+                IngestionQueue.Admission admission = ingestionQueue.submit(reportingItems.getAddress(),
+                        () -> dispatch(reportingItems), batchMaxWaitMs);
+                if (admission != IngestionQueue.Admission.ACCEPTED) {
+                    log.info("Stopped batch from {} after {} reports as it was not admitted ({})",
+                            client, numAccepted, admission);
+                    return new BatchResult(toStatus(admission), numAccepted);
+                }
+                numAccepted++;
+            }
+            log.info("Received batch of {} reports from {}", numAccepted, client);
+            return new BatchResult(numAccepted > 0 ? 200 : 400, numAccepted);
+        } catch (BoundedInputStream.LimitExceededException e) {
+            log.warn("Batch from {} too large: {}", client, e.getMessage());
+            return new BatchResult(413, numAccepted);
+        } catch (MemoryLimitException e) {
+            log.warn("Decoding batch from {} needs too much memory: {}", client, e.getMessage());
+            return new BatchResult(413, numAccepted);
+        } catch (IOException e) {
+            // Also thrown for malformed messages (InvalidProtocolBufferException)
+            log.warn("Reading batch from {} failed after {} reports: {}", client, numAccepted, e.getMessage());
+            return new BatchResult(400, numAccepted);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return new BatchResult(503, numAccepted);
+        } catch (Throwable t) {
+            log.error("Error at onBatch", t);
+            return new BatchResult(500, numAccepted);
+        }
+    }
+
+    public int getRetryAfterSec() {
+        return retryAfterSec;
+    }
+
+    public static boolean isRetryLater(int status) {
+        return status == 429 || status == 503;
+    }
+
+    private void setStatus(Response response, int status) {
+        response.status(status);
+        if (isRetryLater(status)) {
+            response.header("Retry-After", String.valueOf(retryAfterSec));
+        } else if (status == 415) {
+            response.header("Accept-Encoding", ContentDecoder.SUPPORTED_ENCODINGS);
+        }
+    }
+
+    // Runs on the IngestionQueue
+    private void dispatch(IndexedReportingItems reportingItems) {
+        reportingHandlers.forEach(handler -> {
+            try {
+                handler.report(reportingItems);
+            } catch (Throwable t) {
+                log.error("Error at report call on {}. Error message: {}", handler.getClass().getSimpleName(), t.getMessage());
+            }
+        });
+    }
+
+    private static int toStatus(IngestionQueue.Admission admission) {
+        switch (admission) {
+            case THROTTLED:
+                return 429;
+            case REJECTED:
+                return 503;
+            case ACCEPTED:
+            default:
+                return 200;
+        }
+    }
+
     public CompletableFuture<Void> shutDown() {
-        return CompletableFuture.runAsync(executor::shutdownNow, Executors.newSingleThreadExecutor());
+        return CompletableFuture.runAsync(() -> {
+            scheduler.shutDown(null, 1000);
+            ingestionQueue.shutDown();
+        }, Executors.newSingleThreadExecutor());
     }
 }
\ No newline at end of file
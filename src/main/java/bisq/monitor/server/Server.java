@@ -29,10 +29,17 @@ public class Server {
     public Server() {
     }
 
-    public void start(int port, RequestHandler requestHandler) {
+    /**
+     * @param queryHandler Handler for the read-only query endpoint. If null the endpoint is not served.
+     */
+    public void start(int port, RequestHandler requestHandler, QueryHandler queryHandler) {
         try {
             Spark.port(port);
             Spark.post("/", requestHandler::onRequest);
+            Spark.post("/batch", requestHandler::onBatchRequest);
+            if (queryHandler != null) {
+                Spark.get("/query", queryHandler::onQuery);
+            }
             log.info("Server listening on port {}", port);
         } catch (Throwable t) {
             Spark.stop();
@@ -23,9 +23,12 @@ import bisq.common.app.AsciiLogo;
 import bisq.common.app.Log;
 import bisq.common.util.Utilities;
 import bisq.monitor.monitor.MonitorMain;
-import bisq.monitor.reporter.ConsoleReporter;
-import bisq.monitor.reporter.GraphiteReporter;
+import bisq.monitor.reporter.RecentMetrics;
+import bisq.monitor.reporter.RecordingReporter;
 import bisq.monitor.reporter.Reporter;
+import bisq.monitor.reporter.ReporterFactory;
+import bisq.monitor.reporter.TeeReporter;
+import bisq.monitor.reporter.tsdb.TimeSeriesStore;
 import bisq.monitor.utils.PropertiesUtil;
 import ch.qos.logback.classic.Level;
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
@@ -37,12 +40,14 @@ import java.nio.file.Paths;
 import java.util.Properties;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 
 @Slf4j
 public class ServerMain {
     private static Server server;
     private static RequestHandler requestHandler;
     private static Reporter reporter;
+    private static File appDir;
 
     /**
      * @param args Can be empty or is property file path
@@ -57,12 +62,27 @@ public class ServerMain {
 
         setup(properties);
 
-        reporter = "true".equals(properties.getProperty("GraphiteReporter.enabled", "false")) ?
-                new GraphiteReporter(properties) : new ConsoleReporter();
-        requestHandler = new RequestHandler(reporter);
+        reporter = ReporterFactory.createReporter(properties, appDir);
+        QueryHandler queryHandler = null;
+        if ("true".equals(properties.getProperty("Server.query.enabled", "false"))) {
+            int pointsPerSeries = Integer.parseInt(properties.getProperty("Server.query.pointsPerSeries", "360"));
+            int maxSeries = Integer.parseInt(properties.getProperty("Server.query.maxSeries", "100000"));
+            long maxIdleSec = Long.parseLong(properties.getProperty("Server.query.maxIdleSec", "86400"));
+            long cacheTtlMs = Long.parseLong(properties.getProperty("Server.query.cacheTtlMs", "5000"));
+            long cacheMaxBytes = Long.parseLong(properties.getProperty("Server.query.cacheMaxBytes", "16777216"));
+            RecentMetrics recentMetrics = new RecentMetrics(pointsPerSeries, maxSeries,
+                    TimeUnit.SECONDS.toMillis(maxIdleSec));
+            // With the embedded store enabled, queries read the points from there
+            TimeSeriesStore store = reporter instanceof TeeReporter ? ((TeeReporter) reporter).getStore() : null;
+            reporter = new RecordingReporter(reporter, recentMetrics);
+            queryHandler = new QueryHandler(recentMetrics, store, cacheTtlMs, cacheMaxBytes);
+        }
+        requestHandler = new RequestHandler(reporter, properties);
         int port = Integer.parseInt(properties.getProperty("Server.port", "13003"));
-        server = new Server();
-        server.start(port, requestHandler);
+        server = "nio".equals(properties.getProperty("Server.transport", "spark")) ?
+                new NioServer(properties) :
+                new Server();
+        server.start(port, requestHandler, queryHandler);
 
         keepRunning();
     }
@@ -71,7 +91,7 @@ public class ServerMain {
         Thread.currentThread().setName("ServerMain");
 
         String appName = properties.getProperty("Server.appDir", "bisq-monitor-server");
-        File appDir = new File(Utilities.getUserDataDir(), appName);
+        appDir = new File(Utilities.getUserDataDir(), appName);
         if (!appDir.exists() && !appDir.mkdir()) {
             log.warn("make appDir failed");
         }
@@ -18,10 +18,10 @@
 package bisq.monitor.server.handlers;
 
 import bisq.common.util.Tuple2;
+import bisq.monitor.reporter.LastValueCache;
+import bisq.monitor.reporter.MetricName;
 import bisq.monitor.reporter.Metrics;
 import bisq.monitor.reporter.Reporter;
-import bisq.monitor.utils.Util;
-import bisq.seednode.reporting.ReportingItems;
 import lombok.extern.slf4j.Slf4j;
 
 import java.util.*;
@@ -30,34 +30,36 @@ import java.util.stream.Collectors;
 
 @Slf4j
 public class DaoStateHandler extends ReportingHandler {
+    private static final Set<String> EXCLUDED_KEYS = Set.of("daoStateChainHeight", "blockTimeIsSec", "numBsqBlocks",
+            "daoStateHash", "proposalHash", "blindVoteHash");
+
     private final Map<Tuple2<Long, Long>, Map<String, Map<String, Map<String, Metrics>>>> map = new ConcurrentHashMap<>();
 
-    public DaoStateHandler(Reporter reporter) {
-        super(reporter);
+    public DaoStateHandler(Reporter reporter, LastValueCache lastValueCache) {
+        super(reporter, lastValueCache);
     }
 
     @Override
-    public void report(ReportingItems reportingItems) {
-        super.report(reportingItems, "dao", Set.of("daoStateChainHeight", "blockTimeIsSec", "numBsqBlocks",
-                "daoStateHash", "proposalHash", "blindVoteHash"));
+    public void report(IndexedReportingItems reportingItems) {
+        super.report(reportingItems, "dao", EXCLUDED_KEYS);
         try {
-            long height = Util.findLongValue(reportingItems, "dao.daoStateChainHeight").orElseThrow();
-            long blockTimeIsSec = Util.findLongValue(reportingItems, "dao.blockTimeIsSec").orElseThrow();
+            long height = reportingItems.findLongValue("dao.daoStateChainHeight").orElseThrow();
+            long blockTimeIsSec = reportingItems.findLongValue("dao.blockTimeIsSec").orElseThrow();
             pruneMap(map, height);
-            String address = Util.cleanAddress(reportingItems.getAddress());
-            String daoStateHash = Util.findStringValue(reportingItems, "dao.daoStateHash").orElseThrow();
+            String address = reportingItems.getAddress();
+            String daoStateHash = reportingItems.findStringValue("dao.daoStateHash").orElseThrow();
             fillHashValue(map, address, height, blockTimeIsSec, "daoStateHash", daoStateHash);
 
-            String proposalHash = Util.findStringValue(reportingItems, "dao.proposalHash").orElseThrow();
+            String proposalHash = reportingItems.findStringValue("dao.proposalHash").orElseThrow();
             fillHashValue(map, address, height, blockTimeIsSec, "proposalHash", proposalHash);
 
-            String blindVoteHash = Util.findStringValue(reportingItems, "dao.blindVoteHash").orElseThrow();
+            String blindVoteHash = reportingItems.findStringValue("dao.blindVoteHash").orElseThrow();
             fillHashValue(map, address, height, blockTimeIsSec, "blindVoteHash", blindVoteHash);
 
             Set<Metrics> metrics = getMetricItems(map);
-            String path = "seedNodes." + address + ".seedReport.dao.height";
-            metrics.add(new Metrics(path, height, blockTimeIsSec));
-            metrics.forEach(this::sendReport);
+            MetricName name = reportingItems.getSeedReportName().child("dao").child("height");
+            metrics.add(new Metrics(name, height, blockTimeIsSec));
+            sendReports(metrics);
         } catch (Throwable ignore) {
         }
     }
@@ -107,8 +109,8 @@ public class DaoStateHandler extends ReportingHandler {
                             .collect(Collectors.toMap(Map.Entry::getKey,
                                     entry -> {
                                         String address = entry.getKey();
-                                        String path = "seedNodes." + address + ".seedReport.dao." + hashType;
-                                        return new Metrics(path, finalIndex, blockTimeIsSec);
+                                        MetricName name = getSeedReportName(address).child("dao").child(hashType);
+                                        return new Metrics(name, finalIndex, blockTimeIsSec);
                                     }));
                     metricItemByNodeId.putAll(updated);
                     metrics.addAll(updated.values());
@@ -0,0 +1,117 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.monitor.server.handlers;
+
+import bisq.monitor.reporter.MetricName;
+import bisq.monitor.utils.Util;
+import bisq.seednode.reporting.DoubleValueReportingItem;
+import bisq.seednode.reporting.LongValueReportingItem;
+import bisq.seednode.reporting.ReportingItem;
+import bisq.seednode.reporting.ReportingItems;
+import bisq.seednode.reporting.StringValueReportingItem;
+import lombok.Getter;
+import lombok.Value;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Read-only view of a received ReportingItems, indexed in a single pass and shared by all ReportingHandlers of a
+ * request. Lookups by path and the items of a group are then O(1) instead of a scan over all items per lookup.
+ * <p>
+ * The reporting items are enum constants which hold the value of the last parsed report, so the values are copied
+ * here. Use {@link #fromProto} to convert a received message, as a report is processed after later ones got parsed.
+ */
+public class IndexedReportingItems {
+    @Value
+    public static class Item {
+        String key;
+        // Long, Double or String
+        Object value;
+    }
+
+    // Address without the onion suffix and port
+    @Getter
+    private final String address;
+    // Interned name for seedNodes.[address].seedReport
+    @Getter
+    private final MetricName seedReportName;
+    @Getter
+    private final int size;
+    private final Map<String, Object> valueByPath;
+    private final Map<String, List<Item>> itemsByGroup = new HashMap<>();
+
+    /**
+     * Converts and indexes the message while no other thread can change the values of the reporting items.
+     */
+    public static IndexedReportingItems fromProto(protobuf.ReportingItems proto) {
+        synchronized (IndexedReportingItems.class) {
+            return new IndexedReportingItems(ReportingItems.fromProto(proto));
+        }
+    }
+
+    IndexedReportingItems(ReportingItems reportingItems) {
+        address = Util.cleanAddress(reportingItems.getAddress());
+        seedReportName = ReportingHandler.getSeedReportName(address);
+        size = reportingItems.size();
+        valueByPath = new HashMap<>(reportingItems.size() * 2);
+        for (ReportingItem reportingItem : reportingItems) {
+            Object value = getValue(reportingItem);
+            if (value == null) {
+                continue;
+            }
+            // Like a linear search we use the first item if a path is reported multiple times
+            valueByPath.putIfAbsent(reportingItem.getPath(), value);
+            itemsByGroup.computeIfAbsent(reportingItem.getGroup(), group -> new ArrayList<>())
+                    .add(new Item(reportingItem.getKey(), value));
+        }
+        itemsByGroup.replaceAll((group, items) -> Collections.unmodifiableList(items));
+    }
+
+    /**
+     * @return the items of the given group in the reported order, or an empty list
+     */
+    public List<Item> getGroup(String group) {
+        return itemsByGroup.getOrDefault(group, List.of());
+    }
+
+    public Optional<String> findStringValue(String path) {
+        Object value = valueByPath.get(path);
+        return value instanceof String ? Optional.of((String) value) : Optional.empty();
+    }
+
+    public Optional<Long> findLongValue(String path) {
+        Object value = valueByPath.get(path);
+        return value instanceof Long ? Optional.of((Long) value) : Optional.empty();
+    }
+
+    private static Object getValue(ReportingItem reportingItem) {
+        if (reportingItem instanceof LongValueReportingItem) {
+            return ((LongValueReportingItem) reportingItem).getValue();
+        } else if (reportingItem instanceof DoubleValueReportingItem) {
+            return ((DoubleValueReportingItem) reportingItem).getValue();
+        } else if (reportingItem instanceof StringValueReportingItem) {
+            return ((StringValueReportingItem) reportingItem).getValue();
+        }
+        return null;
+    }
+}
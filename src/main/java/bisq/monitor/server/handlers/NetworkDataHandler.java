@@ -17,18 +17,18 @@
 
 package bisq.monitor.server.handlers;
 
+import bisq.monitor.reporter.LastValueCache;
 import bisq.monitor.reporter.Reporter;
-import bisq.seednode.reporting.ReportingItems;
 import lombok.extern.slf4j.Slf4j;
 
 @Slf4j
 public class NetworkDataHandler extends ReportingHandler {
-    public NetworkDataHandler(Reporter reporter) {
-        super(reporter);
+    public NetworkDataHandler(Reporter reporter, LastValueCache lastValueCache) {
+        super(reporter, lastValueCache);
     }
 
     @Override
-    public void report(ReportingItems reportingItems) {
+    public void report(IndexedReportingItems reportingItems) {
         super.report(reportingItems, "data");
     }
 }
\ No newline at end of file
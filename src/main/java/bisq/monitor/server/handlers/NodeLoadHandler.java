@@ -18,10 +18,10 @@
 package bisq.monitor.server.handlers;
 
 import bisq.common.util.Hex;
+import bisq.monitor.reporter.LastValueCache;
+import bisq.monitor.reporter.MetricName;
 import bisq.monitor.reporter.Metrics;
 import bisq.monitor.reporter.Reporter;
-import bisq.monitor.utils.Util;
-import bisq.seednode.reporting.ReportingItems;
 import lombok.extern.slf4j.Slf4j;
 
 import java.math.BigInteger;
@@ -29,35 +29,36 @@ import java.util.Set;
 
 @Slf4j
 public class NodeLoadHandler extends ReportingHandler {
-    public NodeLoadHandler(Reporter reporter) {
-        super(reporter);
+    private static final Set<String> EXCLUDED_KEYS = Set.of("address", "version", "commitHash", "jvmStartTime");
+
+    public NodeLoadHandler(Reporter reporter, LastValueCache lastValueCache) {
+        super(reporter, lastValueCache);
     }
 
     @Override
-    public void report(ReportingItems reportingItems) {
-        super.report(reportingItems, "node", Set.of("address", "version", "commitHash", "jvmStartTime"));
-        String address = Util.cleanAddress(reportingItems.getAddress());
-        String path = "seedNodes." + address + ".seedReport.node.";
-        Util.findLongValue(reportingItems, "node.jvmStartTimeInSec")
+    public void report(IndexedReportingItems reportingItems) {
+        super.report(reportingItems, "node", EXCLUDED_KEYS);
+        MetricName nodeName = reportingItems.getSeedReportName().child("node");
+        reportingItems.findLongValue("node.jvmStartTimeInSec")
                 .ifPresent(jvmStartTime -> {
                     long running = System.currentTimeMillis() / 1000 - jvmStartTime;
-                    sendReport(new Metrics(path + "jvmRunningInSec", running));
+                    sendReport(new Metrics(nodeName.child("jvmRunningInSec"), running));
                 });
 
-        Util.findStringValue(reportingItems, "node.version").ifPresent(version -> {
+        reportingItems.findStringValue("node.version").ifPresent(version -> {
             try {
                 int versionAsInt = Integer.parseInt(version.replace(".", ""));
-                sendReport(new Metrics(path + "versionAsInt", versionAsInt));
+                sendReport(new Metrics(nodeName.child("versionAsInt"), versionAsInt));
             } catch (Throwable ignore) {
             }
         });
-        Util.findStringValue(reportingItems, "node.commitHash").ifPresent(commitHash -> {
+        reportingItems.findStringValue("node.commitHash").ifPresent(commitHash -> {
             try {
                 // Use left 4 bytes
                 int commitHashAsInt = new BigInteger(Hex.decode(commitHash.substring(0, 8))).intValue();
                 // Need unsigned int for grafana
                 long unsignedLong = Integer.toUnsignedLong(commitHashAsInt);
-                sendReport(new Metrics(path + "commitHash", unsignedLong));
+                sendReport(new Metrics(nodeName.child("commitHash"), unsignedLong));
             } catch (Throwable e) {
                 log.error("Could not convert commit hash. commitHash={}; error={}", commitHash, e.toString());
             }
@@ -17,62 +17,77 @@
 
 package bisq.monitor.server.handlers;
 
+import bisq.monitor.reporter.LastValueCache;
+import bisq.monitor.reporter.MetricName;
 import bisq.monitor.reporter.Metrics;
 import bisq.monitor.reporter.Reporter;
-import bisq.monitor.utils.Util;
-import bisq.seednode.reporting.DoubleValueReportingItem;
-import bisq.seednode.reporting.LongValueReportingItem;
-import bisq.seednode.reporting.ReportingItems;
-import bisq.seednode.reporting.StringValueReportingItem;
 import lombok.extern.slf4j.Slf4j;
 
-import java.util.HashSet;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 import java.util.Set;
+import java.util.stream.Collectors;
 
 @Slf4j
 public abstract class ReportingHandler {
+    private static final MetricName SEED_NODES = MetricName.ROOT.child("seedNodes");
+
     protected final Reporter reporter;
-    private final Set<Metrics> sentReports = new HashSet<>();
+    private final LastValueCache lastValueCache;
 
-    public ReportingHandler(Reporter reporter) {
+    public ReportingHandler(Reporter reporter, LastValueCache lastValueCache) {
         this.reporter = reporter;
+        this.lastValueCache = lastValueCache;
     }
 
-    public abstract void report(ReportingItems reportingItems);
+    public abstract void report(IndexedReportingItems reportingItems);
 
-    public void report(ReportingItems reportingItems, String group) {
-        report(reportingItems, group, new HashSet<>());
+    public void report(IndexedReportingItems reportingItems, String group) {
+        report(reportingItems, group, Set.of());
     }
 
-    public void report(ReportingItems reportingItems, String group, Set<String> excludedKeys) {
-        String address = Util.cleanAddress(reportingItems.getAddress());
-        reportingItems.stream()
-                .filter(item -> item.getGroup().equals(group))
-                .filter(item -> !excludedKeys.contains(item.getKey()))
-                .map(item -> {
-                    String path = "seedNodes." + address + ".seedReport." + item.getPath();
-                    if (item instanceof LongValueReportingItem) {
-                        return new Metrics(path, ((LongValueReportingItem) item).getValue());
-                    } else if (item instanceof DoubleValueReportingItem) {
-                        return new Metrics(path, ((DoubleValueReportingItem) item).getValue());
-                    }
-                    if (item instanceof StringValueReportingItem) {
-                        return new Metrics(path, ((StringValueReportingItem) item).getValue());
-                    } else {
-                        return null;
-                    }
-                })
-                .forEach(this::sendReport);
+    public void report(IndexedReportingItems reportingItems, String group, Set<String> excludedKeys) {
+        MetricName groupName = reportingItems.getSeedReportName().child(group);
+        List<IndexedReportingItems.Item> items = reportingItems.getGroup(group);
+        List<Metrics> metrics = new ArrayList<>(items.size());
+        for (IndexedReportingItems.Item item : items) {
+            if (excludedKeys.contains(item.getKey())) {
+                continue;
+            }
+            // Like the former dot separated paths, a key may span several segments
+            MetricName name = groupName.resolve(item.getKey());
+            Object value = item.getValue();
+            if (value instanceof Long) {
+                metrics.add(new Metrics(name, (long) value));
+            } else if (value instanceof Double) {
+                metrics.add(new Metrics(name, (double) value));
+            } else if (value instanceof String) {
+                metrics.add(new Metrics(name, (String) value));
+            }
+        }
+        sendReports(metrics);
+    }
+
+    /**
+     * @return Interned name for seedNodes.[address].seedReport
+     */
+    protected static MetricName getSeedReportName(String address) {
+        return SEED_NODES.resolve(address).child("seedReport");
     }
 
     protected void sendReport(Metrics reportItem) {
-        if (notYetSent(reportItem)) {
-            sentReports.add(reportItem);
+        if (lastValueCache.putIfChanged(reportItem)) {
             reporter.report(reportItem);
         }
     }
 
-    private boolean notYetSent(Metrics reportItem) {
-        return !sentReports.contains(reportItem);
+    protected void sendReports(Collection<Metrics> reportItems) {
+        List<Metrics> changed = reportItems.stream()
+                .filter(lastValueCache::putIfChanged)
+                .collect(Collectors.toList());
+        if (!changed.isEmpty()) {
+            reporter.report(changed);
+        }
     }
 }
@@ -16,13 +16,12 @@ package bisq.monitor.utils;/*
  */
 
 import bisq.core.network.p2p.seed.DefaultSeedNodeRepository;
-import bisq.seednode.reporting.LongValueReportingItem;
-import bisq.seednode.reporting.ReportingItem;
-import bisq.seednode.reporting.StringValueReportingItem;
 
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
 import java.util.HashSet;
-import java.util.List;
-import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.SynchronousQueue;
@@ -58,23 +57,22 @@ public class Util {
         return address.replace(".onion:8000", "");
     }
 
-    public static Optional<ReportingItem> find(List<ReportingItem> reportingItems, String path) {
-        return reportingItems.stream()
-                .filter(e -> e.getPath().equals(path))
-                .findAny();
+    /**
+     * Releases the mapping right away, so the file can be deleted and its disk space is freed without waiting for
+     * the GC. The buffer must not be accessed afterwards. There is no public API for it (JDK-4724038).
+     *
+     * @return false if the JDK internal cleaner is not accessible. The mapping is then released by the GC.
+     */
+    public static boolean unmap(MappedByteBuffer buffer) {
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+            theUnsafe.setAccessible(true);
+            Method invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+            invokeCleaner.invoke(theUnsafe.get(null), buffer);
+            return true;
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return false;
+        }
     }
-
-    public static Optional<String> findStringValue(List<ReportingItem> reportingItems, String path) {
-        return find(reportingItems, path)
-                .filter(e -> e instanceof StringValueReportingItem)
-                .map(e -> (StringValueReportingItem) e)
-                .map(StringValueReportingItem::getValue);
-    }
-
-    public static Optional<Long> findLongValue(List<ReportingItem> reportingItems, String path) {
-        return find(reportingItems, path)
-                .filter(e -> e instanceof LongValueReportingItem)
-                .map(e -> (LongValueReportingItem) e)
-                .map(LongValueReportingItem::getValue);
-    }
-}
\ No newline at end of file
+}
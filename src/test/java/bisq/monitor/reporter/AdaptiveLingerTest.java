@@ -0,0 +1,108 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.monitor.reporter;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AdaptiveLingerTest {
+    private static final long MIN_LINGER_MS = 50;
+    private static final long MAX_LINGER_MS = 1000;
+    private static final int BATCH_SIZE_BYTES = 100_000;
+    private static final int MIN_ITEMS_FOR_BATCHING = 100;
+    private static final int MAX_ITEMS_FOR_BATCHING = 5000;
+
+    private long now = 1_700_000_000_000L;
+
+    @Test
+    public void testMinLingerInQuietPeriod() {
+        AdaptiveLinger linger = newLinger();
+        assertEquals(MIN_LINGER_MS, linger.getLingerMs());
+        // 0.01 metrics per ms, so only 10 expected within maxLinger
+        flush(linger, 100, 1, 100);
+        assertEquals(10, linger.getArrivalRatePerSec(), 0.5);
+        assertEquals(MIN_LINGER_MS, linger.getLingerMs());
+    }
+
+    @Test
+    public void testLingersUntilBatchIsExpectedToBeFull() {
+        AdaptiveLinger linger = newLinger();
+        // 2 metrics of 100 bytes per ms fill a batch of 1000 metrics in 500 ms
+        flush(linger, 100, 200, 100);
+        assertEquals(1000, linger.getBatchSizeItems(), 1);
+        assertEquals(500, linger.getLingerMs(), 5);
+    }
+
+    @Test
+    public void testLingerCappedByMaxLinger() {
+        AdaptiveLinger linger = newLinger();
+        // 0.5 metrics per ms would need 2 sec to fill a batch
+        flush(linger, 100, 50, 100);
+        assertEquals(MAX_LINGER_MS, linger.getLingerMs());
+    }
+
+    @Test
+    public void testMinLingerInBurst() {
+        AdaptiveLinger linger = newLinger();
+        flush(linger, 10, 5000, 100);
+        assertEquals(MIN_LINGER_MS, linger.getLingerMs());
+
+        // Back to quiet after the burst, the EWMA decays within a few flushes
+        flush(linger, 1000, 1, 100);
+        assertEquals(MIN_LINGER_MS, linger.getLingerMs());
+        assertTrue(linger.getArrivalRatePerSec() < 10, String.valueOf(linger.getArrivalRatePerSec()));
+    }
+
+    @Test
+    public void testConvertsBatchSizeBytesToItems() {
+        AdaptiveLinger linger = newLinger();
+        // Before the first flush we assume 128 bytes per metric
+        assertEquals(BATCH_SIZE_BYTES / 128, linger.getBatchSizeItems());
+
+        flush(linger, 100, 100, 250);
+        assertEquals(BATCH_SIZE_BYTES / 250, linger.getBatchSizeItems(), 1);
+
+        // Flushes without metrics do not change the average size
+        int batchSizeItems = linger.getBatchSizeItems();
+        linger.onFlush(0, 0, now += 100);
+        assertEquals(batchSizeItems, linger.getBatchSizeItems());
+
+        // Capped by maxItemsForBatching and at least 1
+        flush(linger, 100, 100, 10);
+        assertEquals(MAX_ITEMS_FOR_BATCHING, linger.getBatchSizeItems());
+        flush(linger, 100, 1, 1_000_000);
+        assertEquals(1, linger.getBatchSizeItems());
+    }
+
+    private AdaptiveLinger newLinger() {
+        AdaptiveLinger linger = new AdaptiveLinger(MIN_LINGER_MS, MAX_LINGER_MS, BATCH_SIZE_BYTES,
+                MIN_ITEMS_FOR_BATCHING, MAX_ITEMS_FOR_BATCHING);
+        // Sets the time of the last flush without changing the estimates
+        linger.onFlush(0, 0, now);
+        return linger;
+    }
+
+    // Repeats the flush often enough for the EWMAs to converge
+    private void flush(AdaptiveLinger linger, long intervalMs, int numItems, int itemSize) {
+        for (int i = 0; i < 50; i++) {
+            now += intervalMs;
+            linger.onFlush(numItems, (long) numItems * itemSize, now);
+        }
+    }
+}
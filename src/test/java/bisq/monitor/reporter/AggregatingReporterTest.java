@@ -0,0 +1,139 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.monitor.reporter;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AggregatingReporterTest {
+    private CollectingReporter delegate;
+    private AggregatingReporter reporter;
+
+    @BeforeEach
+    public void setUp() {
+        Properties properties = new Properties();
+        properties.setProperty("AggregatingReporter.paths", "test.aggregated, test.other");
+        // Windows are closed by the tests
+        properties.setProperty("AggregatingReporter.windowSec", "3600");
+        delegate = new CollectingReporter();
+        reporter = new AggregatingReporter(delegate, properties);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        reporter.shutDown();
+    }
+
+    @Test
+    public void testAggregatesWindow() {
+        reporter.report(new Metrics("test.aggregated.x", 3, 1000));
+        reporter.report(List.of(new Metrics("test.aggregated.x", 1, 1001),
+                new Metrics("test.aggregated.x", 2.5, 1002)));
+        assertTrue(delegate.getValues().isEmpty());
+
+        reporter.closeWindow();
+        Map<String, String> values = delegate.getValues();
+        String path = Metrics.ROOT + ".test.aggregated.x";
+        assertEquals(Map.of(path + ".min", "1.0", path + ".max", "3.0", path + ".sum", "6.5",
+                path + ".count", "3", path + ".last", "2.5"), values);
+
+        // The next window starts empty
+        delegate.clear();
+        reporter.report(new Metrics("test.aggregated.x", 7, 1003));
+        reporter.closeWindow();
+        assertEquals("1", delegate.getValues().get(path + ".count"));
+        assertEquals("7.0", delegate.getValues().get(path + ".min"));
+    }
+
+    @Test
+    public void testPassesThroughOtherMetrics() {
+        List<Metrics> metrics = List.of(new Metrics("test.aggregatedX.x", 1, 1000),
+                new Metrics("test.aggregated.x", "text", 1000),
+                new Metrics("test.plain", 2, 1000));
+        reporter.report(metrics);
+        assertEquals(metrics, delegate.metrics);
+        reporter.closeWindow();
+        assertEquals(metrics, delegate.metrics);
+    }
+
+    @Test
+    public void testMatchesPrefixItself() {
+        reporter.report(new Metrics("test.other", 1, 1000));
+        reporter.closeWindow();
+        assertEquals("1", delegate.getValues().get(Metrics.ROOT + ".test.other.count"));
+    }
+
+    @Test
+    public void testRemovesAggregateEmptyForWholeWindow() {
+        reporter.report(new Metrics("test.aggregated.a", 1, 1000));
+        reporter.report(new Metrics("test.aggregated.b", 1, 1000));
+        reporter.closeWindow();
+        assertEquals(2, reporter.getNumAggregates());
+
+        reporter.report(new Metrics("test.aggregated.a", 2, 1001));
+        reporter.closeWindow();
+        assertEquals(1, reporter.getNumAggregates());
+
+        // A removed path gets aggregated again
+        delegate.clear();
+        reporter.report(new Metrics("test.aggregated.b", 3, 1002));
+        reporter.closeWindow();
+        assertEquals("3.0", delegate.getValues().get(Metrics.ROOT + ".test.aggregated.b.last"));
+    }
+
+    @Test
+    public void testShutDownFlushesWindow() {
+        reporter.report(new Metrics("test.aggregated.x", 1, 1000));
+        reporter.shutDown();
+        assertEquals("1", delegate.getValues().get(Metrics.ROOT + ".test.aggregated.x.count"));
+    }
+
+    private static class CollectingReporter extends Reporter {
+        private final List<Metrics> metrics = new ArrayList<>();
+
+        @Override
+        public synchronized void report(Metrics metrics) {
+            this.metrics.add(metrics);
+        }
+
+        @Override
+        public synchronized void report(Collection<Metrics> metrics) {
+            this.metrics.addAll(metrics);
+        }
+
+        private synchronized Map<String, String> getValues() {
+            Map<String, String> values = new HashMap<>();
+            metrics.forEach(item -> values.put(item.getPath(), item.getValue()));
+            return values;
+        }
+
+        private synchronized void clear() {
+            metrics.clear();
+        }
+    }
+}
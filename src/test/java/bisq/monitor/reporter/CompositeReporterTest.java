@@ -0,0 +1,109 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.monitor.reporter;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CompositeReporterTest {
+    @Test
+    public void testStalledSinkDoesNotBlockCallerOrOtherSinks() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        Reporter stalled = new Reporter() {
+            @Override
+            public void report(Metrics metrics) {
+                awaitRelease();
+            }
+
+            @Override
+            public void report(Collection<Metrics> metrics) {
+                awaitRelease();
+            }
+
+            private void awaitRelease() {
+                try {
+                    release.await();
+                } catch (InterruptedException ignore) {
+                }
+            }
+        };
+        CountingReporter healthy = new CountingReporter();
+        Properties properties = new Properties();
+        properties.setProperty("CompositeReporter.queueCapacity", "2048");
+        CompositeReporter reporter = new CompositeReporter(List.of(stalled, healthy), properties);
+
+        long ts = System.currentTimeMillis();
+        for (int i = 0; i < 1000; i++) {
+            reporter.report(new Metrics("composite.test", (long) i, 1700000000L));
+        }
+        assertTrue(System.currentTimeMillis() - ts < 1000, "Caller got blocked");
+        for (int i = 0; i < 100 && healthy.count.get() < 1000; i++) {
+            Thread.sleep(20);
+        }
+        assertEquals(1000, healthy.count.get());
+
+        release.countDown();
+        reporter.shutDown();
+    }
+
+    @Test
+    public void testSinksOfSameClassGetDistinctNames() {
+        Reporter anonymous = new Reporter() {
+            @Override
+            public void report(Metrics metrics) {
+            }
+
+            @Override
+            public void report(Collection<Metrics> metrics) {
+            }
+        };
+        CompositeReporter reporter = new CompositeReporter(List.of(new CountingReporter(), anonymous,
+                new CountingReporter()), new Properties());
+        assertEquals(List.of("CountingReporter-0", "Sink", "CountingReporter-2"), reporter.getSinkNames());
+        reporter.shutDown();
+    }
+
+    @Test
+    public void testBlockPolicyIsRejected() {
+        Properties properties = new Properties();
+        properties.setProperty("CompositeReporter.overflowPolicy", "block");
+        assertThrows(IllegalArgumentException.class,
+                () -> new CompositeReporter(List.of(new CountingReporter()), properties));
+    }
+
+    private static class CountingReporter extends Reporter {
+        private final AtomicLong count = new AtomicLong();
+
+        @Override
+        public void report(Metrics metrics) {
+            count.incrementAndGet();
+        }
+
+        @Override
+        public void report(Collection<Metrics> metrics) {
+            count.addAndGet(metrics.size());
+        }
+    }
+}
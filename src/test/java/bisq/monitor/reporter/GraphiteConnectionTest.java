@@ -0,0 +1,66 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.monitor.reporter;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.InputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GraphiteConnectionTest {
+    @Test
+    public void testWriteReachesReceiver() throws Exception {
+        try (ServerSocket serverSocket = new ServerSocket(0)) {
+            GraphiteConnection connection = new GraphiteConnection("127.0.0.1:" + serverSocket.getLocalPort(),
+                    new ReporterStats("test"), 1000);
+            byte[] line = "a.b 1 1700000000\n".getBytes(StandardCharsets.US_ASCII);
+            assertEquals(line.length, connection.write(ByteBuffer.wrap(line)));
+            assertTrue(connection.isConnected());
+
+            try (Socket socket = serverSocket.accept()) {
+                InputStream inputStream = socket.getInputStream();
+                assertArrayEquals(line, inputStream.readNBytes(line.length));
+            }
+            connection.close();
+            assertFalse(connection.isConnected());
+        }
+    }
+
+    @Test
+    public void testWriteTimesOutIfReceiverStopsReading() throws Exception {
+        try (ServerSocket serverSocket = new ServerSocket(0)) {
+            GraphiteConnection connection = new GraphiteConnection("127.0.0.1:" + serverSocket.getLocalPort(),
+                    new ReporterStats("test"), 300);
+            // Never read on the accepted socket, so the send buffers fill up
+            ByteBuffer payload = ByteBuffer.allocate(64 * 1024 * 1024);
+            long ts = System.currentTimeMillis();
+            assertThrows(SocketTimeoutException.class, () -> connection.write(payload));
+            long durationMs = System.currentTimeMillis() - ts;
+            assertTrue(durationMs >= 300, "Returned after " + durationMs + " ms");
+            assertTrue(durationMs < 5000, "Returned after " + durationMs + " ms");
+            assertTrue(payload.position() > 0);
+            assertFalse(connection.isConnected());
+        }
+    }
+}
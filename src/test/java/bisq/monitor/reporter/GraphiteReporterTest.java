@@ -0,0 +1,37 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.monitor.reporter;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GraphiteReporterTest {
+    @Test
+    public void testRejectsReplicationFactorBelowOne() {
+        for (String replicationFactor : new String[]{"0", "-1"}) {
+            Properties properties = new Properties();
+            properties.setProperty("GraphiteReporter.plain", "127.0.0.1:2003,127.0.0.1:2013");
+            properties.setProperty("GraphiteReporter.pickle", "127.0.0.1:2004,127.0.0.1:2014");
+            properties.setProperty("GraphiteReporter.replicationFactor", replicationFactor);
+            assertThrows(IllegalArgumentException.class, () -> new GraphiteReporter(properties, null));
+        }
+    }
+}
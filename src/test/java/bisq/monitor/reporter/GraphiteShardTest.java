@@ -0,0 +1,79 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.monitor.reporter;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GraphiteShardTest {
+    private static final int SEGMENT_SIZE = 64 * 1024;
+
+    @TempDir
+    File dir;
+
+    @Test
+    public void testSpoolsFailedWritesAtShutDown() throws IOException {
+        String address = "127.0.0.1:" + unusedPort();
+        ReporterScheduler scheduler = new ReporterScheduler("GraphiteShardTest").start();
+        GraphiteShard shard = new GraphiteShard(address, address, new ReporterStats("test"), scheduler, 1000,
+                dir, SEGMENT_SIZE, 16 * SEGMENT_SIZE, SEGMENT_SIZE);
+        List<Metrics> batch = createMetrics(0, 10);
+        List<Metrics> lines = createMetrics(10, 2);
+        shard.send(batch, 5);
+        shard.send(lines, 5);
+        // Right away, so the writes are still queued or in progress
+        shard.shutDown(System.currentTimeMillis() + 10_000);
+        scheduler.shutDown(() -> {
+        }, 1000);
+
+        MetricsSpool spool = new MetricsSpool(dir, SEGMENT_SIZE, 16 * SEGMENT_SIZE);
+        StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < 12; i++) {
+            expected.append(Metrics.ROOT).append(".shard.test.m").append(i).append(' ').append(i)
+                    .append(" 1700000000\n");
+        }
+        ByteBuffer payload = spool.peek(SEGMENT_SIZE);
+        byte[] bytes = new byte[payload.remaining()];
+        payload.get(bytes);
+        assertEquals(expected.toString(), new String(bytes, StandardCharsets.US_ASCII));
+    }
+
+    private static int unusedPort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    private static List<Metrics> createMetrics(int from, int count) {
+        List<Metrics> metrics = new ArrayList<>();
+        for (int i = from; i < from + count; i++) {
+            metrics.add(new Metrics("shard.test.m" + i, i, 1700000000L));
+        }
+        return metrics;
+    }
+}
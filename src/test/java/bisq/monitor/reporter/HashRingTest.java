@@ -0,0 +1,123 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.monitor.reporter;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class HashRingTest {
+    private static final int NUM_NAMES = 20_000;
+
+    @Test
+    public void testHashIsStable() {
+        // Changing the hash function moves every series to another carbon-cache, so the values are pinned
+        assertEquals(-1166397803181037274L, HashRing.hash(new byte[0]));
+        assertEquals(2070828279298515728L,
+                HashRing.hash("bisq_v2.seedNodes.numOffers".getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    public void testSameNodesForSameKeys() {
+        List<String> keys = List.of("carbon-a:2003", "carbon-b:2003", "carbon-c:2003");
+        HashRing ring = new HashRing(keys, HashRing.DEFAULT_VIRTUAL_NODES);
+        HashRing rebuilt = new HashRing(new ArrayList<>(keys), HashRing.DEFAULT_VIRTUAL_NODES);
+        int[] target = new int[1];
+        int[] rebuiltTarget = new int[1];
+        for (MetricName name : names()) {
+            assertEquals(1, ring.getNodes(name, target));
+            rebuilt.getNodes(name, rebuiltTarget);
+            assertEquals(target[0], rebuiltTarget[0]);
+        }
+    }
+
+    @Test
+    public void testDistribution() {
+        int numNodes = 4;
+        HashRing ring = new HashRing(keys(numNodes), HashRing.DEFAULT_VIRTUAL_NODES);
+        int[] counts = new int[numNodes];
+        int[] target = new int[1];
+        for (MetricName name : names()) {
+            ring.getNodes(name, target);
+            counts[target[0]]++;
+        }
+        int expected = NUM_NAMES / numNodes;
+        for (int count : counts) {
+            assertTrue(Math.abs(count - expected) < expected * 0.2, "Uneven distribution at count " + count);
+        }
+    }
+
+    @Test
+    public void testAddingNodeOnlyMovesSeriesToNewNode() {
+        HashRing ring = new HashRing(keys(4), HashRing.DEFAULT_VIRTUAL_NODES);
+        HashRing grown = new HashRing(keys(5), HashRing.DEFAULT_VIRTUAL_NODES);
+        int[] target = new int[1];
+        int[] grownTarget = new int[1];
+        int moved = 0;
+        for (MetricName name : names()) {
+            ring.getNodes(name, target);
+            grown.getNodes(name, grownTarget);
+            if (target[0] != grownTarget[0]) {
+                assertEquals(4, grownTarget[0]);
+                moved++;
+            }
+        }
+        // Ideally 1/5 of the series move
+        assertTrue(moved > NUM_NAMES * 0.15 && moved < NUM_NAMES * 0.25, "Moved " + moved);
+    }
+
+    @Test
+    public void testReplicasAreDistinct() {
+        HashRing ring = new HashRing(keys(3), HashRing.DEFAULT_VIRTUAL_NODES);
+        int[] single = new int[1];
+        int[] target = new int[2];
+        for (MetricName name : names()) {
+            assertEquals(2, ring.getNodes(name, target));
+            assertNotEquals(target[0], target[1]);
+            // The primary node does not depend on the number of replicas
+            ring.getNodes(name, single);
+            assertEquals(single[0], target[0]);
+        }
+
+        // More replicas than nodes are capped at the number of nodes
+        int[] large = new int[5];
+        assertEquals(3, ring.getNodes(MetricName.ROOT.resolve("a.b"), large));
+        assertEquals(3, large[0] + large[1] + large[2]);
+        assertEquals(0, ring.getNodes(MetricName.ROOT.resolve("a.b"), new int[0]));
+    }
+
+    private static List<String> keys(int numNodes) {
+        List<String> keys = new ArrayList<>();
+        for (int i = 0; i < numNodes; i++) {
+            keys.add("carbon-" + i + ":2003");
+        }
+        return keys;
+    }
+
+    private static List<MetricName> names() {
+        List<MetricName> names = new ArrayList<>(NUM_NAMES);
+        for (int i = 0; i < NUM_NAMES; i++) {
+            names.add(MetricName.ROOT.resolve("node" + (i % 100) + ".data.series" + i));
+        }
+        return names;
+    }
+}
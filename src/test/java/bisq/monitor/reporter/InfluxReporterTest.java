@@ -0,0 +1,157 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.monitor.reporter;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.Test;
+
+import java.net.DatagramSocket;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class InfluxReporterTest {
+    @Test
+    public void testWritesLinesOverUdpAndSkipsNonFiniteValues() throws Exception {
+        try (DatagramChannel receiver = DatagramChannel.open()) {
+            receiver.bind(new InetSocketAddress("127.0.0.1", 0));
+            Properties properties = new Properties();
+            properties.setProperty("InfluxReporter.port", String.valueOf(receiver.socket().getLocalPort()));
+            properties.setProperty("InfluxReporter.httpFallback", "false");
+            InfluxReporter reporter = new InfluxReporter(properties);
+            reporter.report(List.of(
+                    new Metrics("influx.test.long", 42L, 1700000000L),
+                    new Metrics("influx.test.nan", Double.NaN, 1700000000L),
+                    new Metrics("influx.test.inf", Double.POSITIVE_INFINITY, 1700000000L),
+                    new Metrics("influx.test.double", 1.5, 1700000000L),
+                    new Metrics("influx.test.string", "a \"b\"", 1700000000L),
+                    new Metrics("influx.test.a,b c", 1L, 1700000000L)));
+
+            ByteBuffer datagram = ByteBuffer.allocate(2048);
+            receiver.socket().setSoTimeout(5000);
+            receiver.receive(datagram);
+            datagram.flip();
+            String lines = StandardCharsets.UTF_8.decode(datagram).toString();
+            assertEquals("bisq_v2.influx.test.long value=42i 1700000000000000000\n" +
+                    "bisq_v2.influx.test.double value=1.5 1700000000000000000\n" +
+                    "bisq_v2.influx.test.string value=\"a \\\"b\\\"\" 1700000000000000000\n" +
+                    "bisq_v2.influx.test.a\\,b\\ c value=1i 1700000000000000000\n", lines);
+            reporter.shutDown();
+        }
+    }
+
+    @Test
+    public void testFallsBackToHttpIfUdpFails() throws Exception {
+        int closedPort;
+        try (DatagramSocket socket = new DatagramSocket(0)) {
+            closedPort = socket.getLocalPort();
+        }
+        BlockingQueue<String> bodies = new LinkedBlockingQueue<>();
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/write", exchange -> {
+            bodies.add(new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8));
+            exchange.sendResponseHeaders(204, -1);
+            exchange.close();
+        });
+        server.start();
+        try {
+            Properties properties = new Properties();
+            properties.setProperty("InfluxReporter.port", String.valueOf(closedPort));
+            properties.setProperty("InfluxReporter.url",
+                    "http://127.0.0.1:" + server.getAddress().getPort() + "/write?db=test");
+            InfluxReporter reporter = new InfluxReporter(properties);
+
+            // The first datagram gets lost silently. The port unreachable error shows up at one of the next sends.
+            String body = null;
+            for (int i = 0; i < 50 && body == null; i++) {
+                reporter.report(new Metrics("influx.test.fallback", (long) i, 1700000000L));
+                body = bodies.poll(100, TimeUnit.MILLISECONDS);
+            }
+            assertNotNull(body, "Expected lines posted over HTTP");
+            assertTrue(body.startsWith("bisq_v2.influx.test.fallback value="), body);
+            reporter.shutDown();
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    @Test
+    public void testStalledHttpEndpointTimesOut() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger numRequests = new AtomicInteger();
+        BlockingQueue<String> bodies = new LinkedBlockingQueue<>();
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/write", exchange -> {
+            String body = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+            if (numRequests.getAndIncrement() == 0) {
+                // The first request never gets a response
+                try {
+                    release.await();
+                } catch (InterruptedException ignore) {
+                }
+            }
+            bodies.add(body);
+            exchange.sendResponseHeaders(204, -1);
+            exchange.close();
+        });
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.start();
+        try {
+            Properties properties = new Properties();
+            properties.setProperty("InfluxReporter.transport", "http");
+            properties.setProperty("InfluxReporter.requestTimeoutMs", "200");
+            properties.setProperty("InfluxReporter.url",
+                    "http://127.0.0.1:" + server.getAddress().getPort() + "/write?db=test");
+            InfluxReporter reporter = new InfluxReporter(properties);
+
+            reporter.report(new Metrics("influx.test.stalled", 1L, 1700000000L));
+            for (int i = 0; i < 50 && numRequests.get() == 0; i++) {
+                Thread.sleep(20);
+            }
+            reporter.report(new Metrics("influx.test.next", 2L, 1700000000L));
+            String body = bodies.poll(5, TimeUnit.SECONDS);
+            assertNotNull(body, "Sender got blocked by the stalled request");
+            assertTrue(body.startsWith("bisq_v2.influx.test.next value=2i"), body);
+            reporter.shutDown();
+        } finally {
+            release.countDown();
+            server.stop(0);
+        }
+    }
+
+    @Test
+    public void testIgnoresReportsAfterShutDown() {
+        Properties properties = new Properties();
+        properties.setProperty("InfluxReporter.httpFallback", "false");
+        InfluxReporter reporter = new InfluxReporter(properties);
+        reporter.shutDown();
+        assertDoesNotThrow(() -> reporter.report(new Metrics("influx.test.late", 1L, 1700000000L)));
+        assertDoesNotThrow(() -> reporter.report(List.of(new Metrics("influx.test.late", 1L, 1700000000L))));
+    }
+}
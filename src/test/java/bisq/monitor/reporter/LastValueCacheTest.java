@@ -0,0 +1,89 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.monitor.reporter;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LastValueCacheTest {
+    private static final MetricName NAME = MetricName.ROOT.resolve("test.lastValueCache.value");
+
+    @Test
+    public void testDetectsDuplicates() {
+        LastValueCache cache = new LastValueCache(100, 60_000);
+        assertTrue(cache.putIfChanged(new Metrics(NAME, 1L, 1000)));
+        assertFalse(cache.putIfChanged(new Metrics(NAME, 1L, 1000)));
+        // Same value with a new timestamp and a new value with the same timestamp are changes
+        assertTrue(cache.putIfChanged(new Metrics(NAME, 1L, 1001)));
+        assertTrue(cache.putIfChanged(new Metrics(NAME, 2L, 1001)));
+        assertEquals(new Metrics(NAME, 2L, 1001), cache.get(NAME).orElseThrow());
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void testExpiresAfterTtl() throws InterruptedException {
+        LastValueCache cache = new LastValueCache(100, 50);
+        assertTrue(cache.putIfChanged(new Metrics(NAME, 1L, 1000)));
+        assertTrue(cache.get(NAME).isPresent());
+        Thread.sleep(100);
+        assertTrue(cache.get(NAME).isEmpty());
+        // The expired entry does not suppress the value anymore
+        assertTrue(cache.putIfChanged(new Metrics(NAME, 1L, 1000)));
+        assertTrue(cache.get(NAME).isPresent());
+    }
+
+    @Test
+    public void testDuplicateRefreshesTtl() throws InterruptedException {
+        LastValueCache cache = new LastValueCache(100, 200);
+        cache.putIfChanged(new Metrics(NAME, 1L, 1000));
+        for (int i = 0; i < 4; i++) {
+            Thread.sleep(100);
+            assertFalse(cache.putIfChanged(new Metrics(NAME, 1L, 1000)));
+        }
+        assertTrue(cache.get(NAME).isPresent());
+    }
+
+    @Test
+    public void testEvictsLeastRecentlyUpdatedBeyondMaxSize() throws InterruptedException {
+        int maxSize = 10;
+        LastValueCache cache = new LastValueCache(maxSize, 60_000);
+        MetricName[] names = new MetricName[maxSize];
+        for (int i = 0; i < maxSize; i++) {
+            names[i] = MetricName.ROOT.resolve("test.lastValueCache.name" + i);
+            cache.putIfChanged(new Metrics(names[i], 1L, 1000));
+            // Distinct update times make the eviction order deterministic
+            Thread.sleep(2);
+        }
+        // Touching the oldest entry makes it the most recently updated one
+        assertFalse(cache.putIfChanged(new Metrics(names[0], 1L, 1000)));
+        Thread.sleep(2);
+        assertEquals(maxSize, cache.size());
+
+        MetricName overflow = MetricName.ROOT.resolve("test.lastValueCache.overflow");
+        assertTrue(cache.putIfChanged(new Metrics(overflow, 1L, 1000)));
+
+        // The excess entry plus 10% of maxSize got removed, that is the two least recently updated ones
+        assertEquals(maxSize - 1, cache.size());
+        assertTrue(cache.get(names[1]).isEmpty());
+        assertTrue(cache.get(names[2]).isEmpty());
+        assertTrue(cache.get(names[0]).isPresent());
+        assertTrue(cache.get(names[3]).isPresent());
+        assertTrue(cache.get(overflow).isPresent());
+    }
+}
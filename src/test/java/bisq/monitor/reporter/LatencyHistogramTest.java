@@ -0,0 +1,164 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.monitor.reporter;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LatencyHistogramTest {
+    @Test
+    public void testBucketsCoverValuesWithBoundedError() {
+        int previousIndex = -1;
+        for (long value = 0; value < 10_000_000; value += 1 + value / 100) {
+            int index = LatencyHistogram.bucketIndex(value);
+            assertTrue(index >= previousIndex, "Bucket index must not decrease at " + value);
+            previousIndex = index;
+            long bucketValue = LatencyHistogram.highestEquivalentValue(index);
+            assertTrue(bucketValue >= value, "Bucket value below recorded value at " + value);
+            assertTrue(bucketValue - value <= value / 16, "Bucket error too large at " + value);
+        }
+        // Small values are exact
+        for (int value = 0; value < 32; value++) {
+            assertEquals(value, LatencyHistogram.highestEquivalentValue(LatencyHistogram.bucketIndex(value)));
+        }
+    }
+
+    @Test
+    public void testPercentiles() {
+        LatencyHistogram histogram = new LatencyHistogram(60_000);
+        for (int value = 1; value <= 1000; value++) {
+            histogram.record(value);
+        }
+        LatencyHistogram.Snapshot snapshot = new LatencyHistogram.Snapshot();
+        histogram.snapshotAndReset(snapshot);
+        assertEquals(1000, snapshot.getCount());
+        assertEquals(1000, snapshot.getMax());
+        assertWithinBucketError(500, snapshot.getP50());
+        assertWithinBucketError(900, snapshot.getP90());
+        assertWithinBucketError(990, snapshot.getP99());
+    }
+
+    @Test
+    public void testPercentilesOfSkewedDistribution() {
+        LatencyHistogram histogram = new LatencyHistogram(60_000);
+        // 98 fast, 2 slow
+        for (int i = 0; i < 98; i++) {
+            histogram.record(10);
+        }
+        histogram.record(5000);
+        histogram.record(7000);
+        LatencyHistogram.Snapshot snapshot = new LatencyHistogram.Snapshot();
+        histogram.snapshotAndReset(snapshot);
+        assertEquals(10, snapshot.getP50());
+        assertEquals(10, snapshot.getP90());
+        assertWithinBucketError(5000, snapshot.getP99());
+        assertEquals(7000, snapshot.getMax());
+    }
+
+    @Test
+    public void testSingleValue() {
+        LatencyHistogram histogram = new LatencyHistogram(60_000);
+        histogram.record(1234);
+        LatencyHistogram.Snapshot snapshot = new LatencyHistogram.Snapshot();
+        histogram.snapshotAndReset(snapshot);
+        // Capped by the exact max, so not rounded up to the bucket end
+        assertEquals(1234, snapshot.getP50());
+        assertEquals(1234, snapshot.getP99());
+        assertEquals(1234, snapshot.getMax());
+    }
+
+    @Test
+    public void testResetAfterSnapshot() {
+        LatencyHistogram histogram = new LatencyHistogram(60_000);
+        histogram.record(100);
+        LatencyHistogram.Snapshot snapshot = new LatencyHistogram.Snapshot();
+        histogram.snapshotAndReset(snapshot);
+        assertEquals(1, snapshot.getCount());
+
+        histogram.snapshotAndReset(snapshot);
+        assertEquals(0, snapshot.getCount());
+        assertEquals(0, snapshot.getP50());
+        assertEquals(0, snapshot.getP99());
+        assertEquals(0, snapshot.getMax());
+
+        // Both count arrays get used alternately
+        for (int i = 0; i < 4; i++) {
+            histogram.record(200 + i);
+            histogram.snapshotAndReset(snapshot);
+            assertEquals(1, snapshot.getCount());
+            assertEquals(200 + i, snapshot.getMax());
+        }
+    }
+
+    @Test
+    public void testNegativeValuesIgnoredAndLargeValuesClamped() {
+        LatencyHistogram histogram = new LatencyHistogram(1000);
+        histogram.record(-1);
+        histogram.record(1_000_000);
+        LatencyHistogram.Snapshot snapshot = new LatencyHistogram.Snapshot();
+        histogram.snapshotAndReset(snapshot);
+        assertEquals(1, snapshot.getCount());
+        assertEquals(1000, snapshot.getMax());
+        assertEquals(1000, snapshot.getP99());
+    }
+
+    @Test
+    public void testNoRecordingLostDuringConcurrentSnapshots() throws InterruptedException {
+        LatencyHistogram histogram = new LatencyHistogram(60_000);
+        int numWriters = 4;
+        int numPerWriter = 500_000;
+        List<Thread> writers = new ArrayList<>();
+        for (int w = 0; w < numWriters; w++) {
+            Thread writer = new Thread(() -> {
+                for (int i = 0; i < numPerWriter; i++) {
+                    histogram.record(i % 5000);
+                }
+            });
+            writers.add(writer);
+        }
+        AtomicBoolean done = new AtomicBoolean();
+        long[] total = new long[1];
+        Thread reader = new Thread(() -> {
+            LatencyHistogram.Snapshot snapshot = new LatencyHistogram.Snapshot();
+            while (!done.get()) {
+                histogram.snapshotAndReset(snapshot);
+                total[0] += snapshot.getCount();
+            }
+            histogram.snapshotAndReset(snapshot);
+            total[0] += snapshot.getCount();
+        });
+        reader.start();
+        writers.forEach(Thread::start);
+        for (Thread writer : writers) {
+            writer.join();
+        }
+        done.set(true);
+        reader.join();
+        assertEquals((long) numWriters * numPerWriter, total[0]);
+    }
+
+    private static void assertWithinBucketError(long expected, long actual) {
+        assertTrue(actual >= expected && actual - expected <= expected / 16,
+                "expected about " + expected + " but was " + actual);
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.monitor.reporter;
+
+import org.junit.jupiter.api.Test;
+
+import java.lang.ref.WeakReference;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MetricNameTest {
+    @Test
+    public void testResolvesToSameInstance() {
+        MetricName name = MetricName.ROOT.resolve("seedNodes.abc.onion.data.numOffers");
+        assertSame(name, MetricName.ROOT.child("seedNodes").child("abc").child("onion").child("data").child("numOffers"));
+        assertSame(name, MetricName.of(Metrics.ROOT + ".seedNodes.abc.onion.data.numOffers"));
+        assertSame(MetricName.ROOT.resolve("seedNodes.abc.onion.data"), name.getParent());
+    }
+
+    @Test
+    public void testPathAndBytes() {
+        MetricName name = MetricName.ROOT.resolve("a.bä");
+        assertEquals(Metrics.ROOT + ".a.bä", name.getPath());
+        assertEquals(Metrics.ROOT + ".a.bä", name.toString());
+        byte[] expected = name.getPath().getBytes(StandardCharsets.UTF_8);
+        assertEquals(expected.length, name.getEncodedLength());
+        ByteBuffer buffer = ByteBuffer.allocate(expected.length);
+        name.writeTo(buffer);
+        assertArrayEquals(expected, buffer.array());
+        assertEquals(HashRing.hash(expected), name.getPathHash());
+    }
+
+    @Test
+    public void testUnreferencedNamesAreCollected() throws InterruptedException {
+        WeakReference<MetricName> reference = new WeakReference<>(createDynamicName());
+        for (int i = 0; i < 50 && reference.get() != null; i++) {
+            System.gc();
+            Thread.sleep(20);
+        }
+        assertNull(reference.get(), "The trie must not keep unreferenced names alive");
+
+        // Resolving the path again creates a new, working name
+        MetricName name = MetricName.ROOT.resolve("dynamic.collected.leaf");
+        assertEquals(Metrics.ROOT + ".dynamic.collected.leaf", name.getPath());
+        assertSame(name, MetricName.ROOT.resolve("dynamic.collected.leaf"));
+    }
+
+    @Test
+    public void testManyDynamicNamesDoNotAccumulate() throws InterruptedException {
+        WeakReference<MetricName> parent = new WeakReference<>(MetricName.ROOT.resolve("dynamic.many"));
+        for (int i = 0; i < 100_000; i++) {
+            MetricName.ROOT.resolve("dynamic.many.host" + i + ".onion");
+        }
+        for (int i = 0; i < 50 && parent.get() != null; i++) {
+            System.gc();
+            Thread.sleep(20);
+        }
+        assertNull(parent.get(), "Names below an unreferenced prefix must be collectable");
+    }
+
+    private static MetricName createDynamicName() {
+        return MetricName.ROOT.resolve("dynamic.collected.leaf");
+    }
+}
@@ -0,0 +1,137 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.monitor.reporter;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MetricsEncoderTest {
+    private final MetricsEncoder encoder = new MetricsEncoder(64);
+
+    @Test
+    public void testPutDouble() {
+        assertEquals("0", putDouble(0));
+        assertEquals("1", putDouble(1));
+        assertEquals("-1", putDouble(-1));
+        assertEquals("0.5", putDouble(0.5));
+        assertEquals("-0.5", putDouble(-0.5));
+        assertEquals("123.456", putDouble(123.456));
+        assertEquals("0.3", putDouble(0.1 + 0.2));
+        assertEquals("0.000000000001", putDouble(1e-12));
+        // Fraction digits are reduced to 15 significant digits
+        assertEquals("12345.6789012346", putDouble(12345.678901234567));
+    }
+
+    @Test
+    public void testPutDoubleRoundingCarry() {
+        assertEquals("1", putDouble(0.9999999999999));
+        assertEquals("-1", putDouble(-0.9999999999999));
+        assertEquals("2", putDouble(1.9999999999999996));
+        assertEquals("-3", putDouble(-2.9999999999999996));
+        assertEquals("10", putDouble(9.9999999999999999));
+        assertEquals("1000000000000000", putDouble(999999999999999.9));
+        assertEquals("-1000000000000000", putDouble(-999999999999999.9));
+    }
+
+    @Test
+    public void testPutDoubleNegativeRoundingToZero() {
+        // We never write "-0"
+        assertEquals("0", putDouble(-0.0));
+        assertEquals("-0.000000000002", putDouble(-1.5e-12));
+        // Too small for fixed-point with 12 fraction digits, so it keeps its value in scientific notation
+        assertEquals("-4.0E-13", putDouble(-4e-13));
+        assertEquals(-4e-13, Double.parseDouble(putDouble(-4e-13)));
+    }
+
+    @Test
+    public void testPutDoubleOutsideFixedPointRange() {
+        assertEquals("1.0E15", putDouble(1e15));
+        assertEquals("-2.5E20", putDouble(-2.5e20));
+        assertEquals("4.9E-324", putDouble(Double.MIN_VALUE));
+    }
+
+    @Test
+    public void testPutDoubleParsesBackToValue() {
+        Random random = new Random(42);
+        for (int i = 0; i < 100_000; i++) {
+            double value = (random.nextDouble() - 0.5) * Math.pow(10, random.nextInt(30) - 14);
+            String encoded = putDouble(value);
+            double parsed = Double.parseDouble(encoded);
+            // Half a unit of the last written digit, plus some slack for the binary representation
+            double tolerance = Math.max(Math.abs(value) * 1e-14, 6e-13);
+            assertEquals(value, parsed, tolerance, encoded);
+            assertFalse(encoded.startsWith("-0") && parsed == 0, encoded);
+        }
+    }
+
+    @Test
+    public void testPutLong() {
+        assertEquals("0", putLong(0));
+        assertEquals("-42", putLong(-42));
+        assertEquals(String.valueOf(Long.MAX_VALUE), putLong(Long.MAX_VALUE));
+        assertEquals(String.valueOf(Long.MIN_VALUE), putLong(Long.MIN_VALUE));
+    }
+
+    @Test
+    public void testEncodeLines() {
+        MetricName name = MetricName.ROOT.resolve("encoder.test");
+        ByteBuffer lines = encoder.encodeLines(List.of(
+                new Metrics(name, 42L, 1700000000L),
+                new Metrics(name, 1.5, 1700000001L),
+                new Metrics(name, "ok", 1700000002L)));
+        assertEquals(Metrics.ROOT + ".encoder.test 42 1700000000\n" +
+                Metrics.ROOT + ".encoder.test 1.5 1700000001\n" +
+                Metrics.ROOT + ".encoder.test ok 1700000002\n", toString(lines));
+    }
+
+    @Test
+    public void testBufferGrows() {
+        MetricName name = MetricName.ROOT.resolve("encoder.grow");
+        Metrics[] metrics = new Metrics[100];
+        for (int i = 0; i < metrics.length; i++) {
+            metrics[i] = new Metrics(name, i, 1700000000L);
+        }
+        String lines = toString(encoder.encodeLines(List.of(metrics)));
+        assertEquals(100, lines.split("\n").length);
+        assertTrue(lines.endsWith(Metrics.ROOT + ".encoder.grow 99 1700000000\n"));
+    }
+
+    private String putDouble(double value) {
+        ByteBuffer buffer = ByteBuffer.allocate(64);
+        encoder.putDouble(buffer, value);
+        return toString(buffer.flip());
+    }
+
+    private String putLong(long value) {
+        ByteBuffer buffer = ByteBuffer.allocate(64);
+        encoder.putLong(buffer, value);
+        return toString(buffer.flip());
+    }
+
+    private static String toString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
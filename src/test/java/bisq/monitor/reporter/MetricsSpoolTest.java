@@ -0,0 +1,157 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.monitor.reporter;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MetricsSpoolTest {
+    private static final int SEGMENT_SIZE = 1024;
+
+    @TempDir
+    File dir;
+
+    @Test
+    public void testReplaysOnlyCompleteLines() {
+        MetricsSpool spool = new MetricsSpool(dir, SEGMENT_SIZE, 16 * SEGMENT_SIZE);
+        assertTrue(spool.isEmpty());
+        spool.append(createMetrics(0, 3));
+        assertFalse(spool.isEmpty());
+
+        String firstLine = line(0);
+        // Too small for two lines, so we only get the first one
+        ByteBuffer payload = spool.peek(firstLine.length() + 5);
+        assertEquals(firstLine, toString(payload));
+        spool.advance(firstLine.length());
+        assertEquals(line(1) + line(2), toString(spool.peek(SEGMENT_SIZE)));
+    }
+
+    @Test
+    public void testReplaysLineLargerThanMaxBytesAlone() {
+        MetricsSpool spool = new MetricsSpool(dir, SEGMENT_SIZE, 16 * SEGMENT_SIZE);
+        spool.append(createMetrics(0, 3));
+
+        ByteBuffer payload = spool.peek(10);
+        assertEquals(line(0), toString(payload));
+        spool.advance(line(0).length());
+        assertEquals(line(1), toString(spool.peek(10)));
+    }
+
+    @Test
+    public void testRecoversReadPositionAfterRestart() {
+        MetricsSpool spool = new MetricsSpool(dir, SEGMENT_SIZE, 16 * SEGMENT_SIZE);
+        spool.append(createMetrics(0, 5));
+        int numBytes = (line(0) + line(1)).length();
+        assertEquals(line(0) + line(1), toString(spool.peek(numBytes)));
+        spool.advance(numBytes);
+        spool.shutDown();
+
+        MetricsSpool recovered = new MetricsSpool(dir, SEGMENT_SIZE, 16 * SEGMENT_SIZE);
+        assertEquals(line(2) + line(3) + line(4), toString(recovered.peek(SEGMENT_SIZE)));
+    }
+
+    @Test
+    public void testDoesNotReplayFullyReadSegmentsAfterRestart() {
+        MetricsSpool spool = new MetricsSpool(dir, SEGMENT_SIZE, 16 * SEGMENT_SIZE);
+        // About 35 bytes per line, so this spans several segments
+        int numMetrics = 100;
+        spool.append(createMetrics(0, numMetrics));
+        assertTrue(segmentFiles().length > 2);
+
+        // Replay about half of it
+        StringBuilder replayed = new StringBuilder();
+        while (replayed.length() < numMetrics * line(0).length() / 2) {
+            ByteBuffer payload = spool.peek(100);
+            replayed.append(toString(payload.duplicate()));
+            spool.advance(payload.remaining());
+        }
+        spool.shutDown();
+
+        MetricsSpool recovered = new MetricsSpool(dir, SEGMENT_SIZE, 16 * SEGMENT_SIZE);
+        while (!recovered.isEmpty()) {
+            ByteBuffer payload = recovered.peek(100);
+            replayed.append(toString(payload.duplicate()));
+            recovered.advance(payload.remaining());
+        }
+        StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < numMetrics; i++) {
+            expected.append(line(i));
+        }
+        assertEquals(expected.toString(), replayed.toString());
+    }
+
+    @Test
+    public void testRecoversAllSegmentsWithoutOffsetFile() {
+        MetricsSpool spool = new MetricsSpool(dir, SEGMENT_SIZE, 16 * SEGMENT_SIZE);
+        spool.append(createMetrics(0, 3));
+        spool.shutDown();
+
+        MetricsSpool recovered = new MetricsSpool(dir, SEGMENT_SIZE, 16 * SEGMENT_SIZE);
+        assertEquals(line(0) + line(1) + line(2), toString(recovered.peek(SEGMENT_SIZE)));
+        // New segments continue after the recovered ones
+        recovered.append(createMetrics(3, 1));
+        assertEquals(line(0) + line(1) + line(2) + line(3), toString(recovered.peek(SEGMENT_SIZE)));
+    }
+
+    @Test
+    public void testDeletesOldestSegmentWhenFull() {
+        MetricsSpool spool = new MetricsSpool(dir, SEGMENT_SIZE, 2 * SEGMENT_SIZE);
+        spool.append(createMetrics(0, 200));
+        assertEquals(2, segmentFiles().length);
+        // The oldest lines are gone, the newest one is still there
+        assertNotEquals(line(0), toString(spool.peek(line(0).length())));
+        StringBuilder replayed = new StringBuilder();
+        while (!spool.isEmpty()) {
+            ByteBuffer payload = spool.peek(SEGMENT_SIZE);
+            replayed.append(toString(payload.duplicate()));
+            spool.advance(payload.remaining());
+        }
+        assertTrue(replayed.toString().endsWith(line(199)));
+        assertEquals(1, segmentFiles().length);
+    }
+
+    private File[] segmentFiles() {
+        return dir.listFiles((d, name) -> name.endsWith(".seg"));
+    }
+
+    private static List<Metrics> createMetrics(int from, int count) {
+        List<Metrics> metrics = new ArrayList<>();
+        for (int i = from; i < from + count; i++) {
+            metrics.add(new Metrics("spool.test.m" + i, i, 1700000000L));
+        }
+        return metrics;
+    }
+
+    private static String line(int i) {
+        return Metrics.ROOT + ".spool.test.m" + i + " " + i + " 1700000000\n";
+    }
+
+    private static String toString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.US_ASCII);
+    }
+}
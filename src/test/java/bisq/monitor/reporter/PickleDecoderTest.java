@@ -0,0 +1,126 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.monitor.reporter;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PickleDecoderTest {
+    // pickle.dumps(data, protocol) with CPython 3 for
+    // data = [("bisq_v2.a.b", (1700000000, 123)), ("bisq_v2.a.c", (1700000001, 1.5)),
+    //         ("bisq_v2.a.d", (1700000002, "väl\\x")), ("bisq_v2.a.e", (1700000003, 2**40)),
+    //         ("bisq_v2.a.f", (1700000004, -7)), ("bisq_v2.a.g", (1700000005, True))]
+    private static final String PYTHON_PICKLE_PROTOCOL_0 = "" +
+            "286c70300a2856626973715f76322e612e620a70310a2849313730303030303030300a493132330a7470320a7470330a" +
+            "612856626973715f76322e612e630a70340a2849313730303030303030310a46312e350a7470350a7470360a61285662" +
+            "6973715f76322e612e640a70370a2849313730303030303030320a5676e46c5c7530303563780a70380a7470390a7470" +
+            "31300a612856626973715f76322e612e650a7031310a2849313730303030303030330a4c313039393531313632373737" +
+            "364c0a747031320a747031330a612856626973715f76322e612e660a7031340a2849313730303030303030340a492d37" +
+            "0a747031350a747031360a612856626973715f76322e612e670a7031370a2849313730303030303030350a4930310a74" +
+            "7031380a747031390a612e";
+    private static final String PYTHON_PICKLE_PROTOCOL_2 = "" +
+            "80025d710028580b000000626973715f76322e612e6271014a00f153654b7b867102867103580b000000626973715f76" +
+            "322e612e6371044a01f15365473ff8000000000000867105867106580b000000626973715f76322e612e6471074a02f1" +
+            "5365580600000076c3a46c5c78710886710986710a580b000000626973715f76322e612e65710b4a03f153658a060000" +
+            "0000000186710c86710d580b000000626973715f76322e612e66710e4a04f153654af9ffffff86710f867110580b0000" +
+            "00626973715f76322e612e6771114a05f1536588867112867113652e";
+    // Same path and datapoint objects twice, so CPython refers to them through the memo:
+    // p = "bisq_v2.a.b"; t = (1700000000, 5); pickle.dumps([(p, t), (p, t)], protocol)
+    private static final String PYTHON_MEMO_PICKLE_PROTOCOL_0 = "" +
+            "286c70300a2856626973715f76322e612e620a70310a2849313730303030303030300a49350a7470320a7470330a6128" +
+            "67310a67320a7470340a612e";
+    private static final String PYTHON_MEMO_PICKLE_PROTOCOL_2 = "" +
+            "80025d710028580b000000626973715f76322e612e6271014a00f153654b0586710286710368016802867104652e";
+    // Python 2 pickle.dumps(data) of the former pickle writer, with str paths and values
+    private static final String PYTHON_2_PICKLE = "" +
+            "(lp0\n(S'bisq_v2.a.b'\np1\n(S'1700000000'\np2\nS'123'\np3\ntp4\ntp5\na" +
+            "(S'bisq_v2.a.d'\np6\n(I1700000002\nS'v\\xc3\\xa4l\\\\x'\np7\ntp8\ntp9\na.";
+
+    @Test
+    public void testDecodesPythonProtocol0() {
+        ByteBuffer payload = ByteBuffer.wrap(decodeHex(PYTHON_PICKLE_PROTOCOL_0));
+        assertEquals(expectedMetrics(), new PickleDecoder().decode(payload));
+    }
+
+    @Test
+    public void testDecodesPythonProtocol2() {
+        ByteBuffer payload = ByteBuffer.wrap(decodeHex(PYTHON_PICKLE_PROTOCOL_2));
+        assertEquals(expectedMetrics(), new PickleDecoder().decode(payload));
+    }
+
+    @Test
+    public void testDecodesMemoReferences() {
+        MetricName name = MetricName.ROOT.resolve("a.b");
+        List<Metrics> expected = List.of(new Metrics(name, 5L, 1700000000L), new Metrics(name, 5L, 1700000000L));
+        PickleDecoder decoder = new PickleDecoder();
+        assertEquals(expected, decoder.decode(ByteBuffer.wrap(decodeHex(PYTHON_MEMO_PICKLE_PROTOCOL_0))));
+        // The memo of the previous payload must not leak into the next one
+        assertEquals(expected, decoder.decode(ByteBuffer.wrap(decodeHex(PYTHON_MEMO_PICKLE_PROTOCOL_2))));
+    }
+
+    @Test
+    public void testDecodesPython2Strings() {
+        List<Metrics> expected = List.of(new Metrics(MetricName.ROOT.resolve("a.b"), 123L, 1700000000L),
+                new Metrics(MetricName.ROOT.resolve("a.d"), "väl\\x", 1700000002L));
+        assertEquals(expected, new PickleDecoder().decode(
+                ByteBuffer.wrap(PYTHON_2_PICKLE.getBytes(StandardCharsets.US_ASCII))));
+    }
+
+    @Test
+    public void testRoundTripWithEncoder() {
+        List<Metrics> metrics = List.of(new Metrics(MetricName.ROOT.resolve("a.b"), Long.MIN_VALUE, 1700000000L),
+                new Metrics(MetricName.ROOT.resolve("a.c"), -0.25, 1700000001L),
+                new Metrics(MetricName.ROOT.resolve("a.d"), "x y", 1700000002L));
+        ByteBuffer payload = new PickleEncoder(64).encode(metrics)[1];
+        ByteBuffer heapPayload = ByteBuffer.allocate(payload.remaining()).put(payload);
+        heapPayload.flip();
+        assertEquals(metrics, new PickleDecoder().decode(heapPayload));
+        assertFalse(heapPayload.hasRemaining());
+    }
+
+    @Test
+    public void testRejectsInvalidPayloads() {
+        PickleDecoder decoder = new PickleDecoder();
+        for (String hex : new String[]{"", "80025d", "80025d652e2e", "80024b012e", "80025d284b01652e", "80025d7a2e",
+                "80025d28580b000000"}) {
+            assertThrows(IllegalArgumentException.class, () -> decoder.decode(ByteBuffer.wrap(decodeHex(hex))), hex);
+        }
+    }
+
+    private static List<Metrics> expectedMetrics() {
+        return List.of(new Metrics(MetricName.ROOT.resolve("a.b"), 123L, 1700000000L),
+                new Metrics(MetricName.ROOT.resolve("a.c"), 1.5, 1700000001L),
+                new Metrics(MetricName.ROOT.resolve("a.d"), "väl\\x", 1700000002L),
+                new Metrics(MetricName.ROOT.resolve("a.e"), 1L << 40, 1700000003L),
+                new Metrics(MetricName.ROOT.resolve("a.f"), -7L, 1700000004L),
+                new Metrics(MetricName.ROOT.resolve("a.g"), 1L, 1700000005L));
+    }
+
+    private static byte[] decodeHex(String hex) {
+        byte[] bytes = new byte[hex.length() / 2];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) Integer.parseInt(hex.substring(2 * i, 2 * i + 2), 16);
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.monitor.reporter;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PickleEncoderTest {
+    // pickletools.optimize(pickle.dumps(data, 2)) with CPython 3 for
+    // data = [("bisq_v2.a.b", (1700000000, 123456)), ("bisq_v2.a.c", (1700000001, -5)),
+    //         ("bisq_v2.a.d", (1700000002, 1.5)), ("bisq_v2.a.e", (1700000003, "väl")),
+    //         ("bisq_v2.a.f", (1700000004, 2**40)), ("bisq_v2.a.g", (1700000005, -2**63))]
+    // optimize only removes the unused memo opcodes. The values avoid 0..65535 and the list has more than one item,
+    // otherwise CPython picks the shorter BININT1/BININT2 and APPEND opcodes, which carbon reads the same way.
+    private static final String PYTHON_PICKLE = "" +
+            "80025d28580b000000626973715f76322e612e624a00f153654a40e201008686580b000000626973715f76322e612e63" +
+            "4a01f153654afbffffff8686580b000000626973715f76322e612e644a02f15365473ff80000000000008686580b0000" +
+            "00626973715f76322e612e654a03f15365580400000076c3a46c8686580b000000626973715f76322e612e664a04f153" +
+            "658a060000000000018686580b000000626973715f76322e612e674a05f153658a0800000000000000808686652e";
+
+    @Test
+    public void testMatchesPythonPickle() {
+        assertArrayEquals(withLengthPrefix(decodeHex(PYTHON_PICKLE)),
+                toBytes(new PickleEncoder(1024).encode(createMetrics())));
+    }
+
+    @Test
+    public void testMatchesPythonPickleWhenBufferGrows() {
+        assertArrayEquals(withLengthPrefix(decodeHex(PYTHON_PICKLE)),
+                toBytes(new PickleEncoder(8).encode(createMetrics())));
+    }
+
+    @Test
+    public void testReusedEncoderProducesSameBytes() {
+        PickleEncoder encoder = new PickleEncoder(1024);
+        byte[] first = toBytes(encoder.encode(createMetrics()));
+        encoder.encode(List.of(new Metrics(MetricName.ROOT.resolve("other"), 1L, 1L)));
+        assertArrayEquals(first, toBytes(encoder.encode(createMetrics())));
+    }
+
+    @Test
+    public void testEmptyBatch() {
+        // Like CPython, minus the APPENDS of an empty MARK which carbon accepts
+        assertArrayEquals(withLengthPrefix(decodeHex("80025d28652e")),
+                toBytes(new PickleEncoder(16).encode(List.of())));
+    }
+
+    @Test
+    public void testSmallAndLongValues() {
+        // BININT for everything that fits in 4 bytes, LONG1 with the minimal length otherwise. The LONG1 bytes are
+        // the same as of pickle.dumps(value, 2) in CPython.
+        MetricName name = MetricName.ROOT.resolve("a.b");
+        assertEquals("4a2a000000", encodeValueAsHex(new Metrics(name, 42L, 1700000000L)));
+        assertEquals("4affffff7f", encodeValueAsHex(new Metrics(name, (long) Integer.MAX_VALUE, 1700000000L)));
+        assertEquals("8a050000008000", encodeValueAsHex(new Metrics(name, 1L << 31, 1700000000L)));
+        assertEquals("8a05ffffff7fff", encodeValueAsHex(new Metrics(name, -(1L << 31) - 1, 1700000000L)));
+        assertEquals("8a08ffffffffffffff7f", encodeValueAsHex(new Metrics(name, Long.MAX_VALUE, 1700000000L)));
+    }
+
+    private static List<Metrics> createMetrics() {
+        List<Metrics> metrics = new ArrayList<>();
+        metrics.add(new Metrics(MetricName.ROOT.resolve("a.b"), 123456L, 1700000000L));
+        metrics.add(new Metrics(MetricName.ROOT.resolve("a.c"), -5L, 1700000001L));
+        metrics.add(new Metrics(MetricName.ROOT.resolve("a.d"), 1.5, 1700000002L));
+        metrics.add(new Metrics(MetricName.ROOT.resolve("a.e"), "väl", 1700000003L));
+        metrics.add(new Metrics(MetricName.ROOT.resolve("a.f"), 1L << 40, 1700000004L));
+        metrics.add(new Metrics(MetricName.ROOT.resolve("a.g"), Long.MIN_VALUE, 1700000005L));
+        return metrics;
+    }
+
+    // Hex of the value opcode of a single item pickle
+    private static String encodeValueAsHex(Metrics metrics) {
+        byte[] bytes = toBytes(new PickleEncoder(64).encode(List.of(metrics)));
+        // Length prefix, 4 header opcodes, path (5 + length) and timestamp (5)
+        int start = 4 + 4 + 5 + metrics.getName().getEncodedLength() + 5;
+        // Followed by TUPLE2 TUPLE2 APPENDS STOP
+        int end = bytes.length - 4;
+        StringBuilder hex = new StringBuilder();
+        for (int i = start; i < end; i++) {
+            hex.append(String.format("%02x", bytes[i]));
+        }
+        return hex.toString();
+    }
+
+    private static byte[] toBytes(ByteBuffer[] buffers) {
+        int length = 0;
+        for (ByteBuffer buffer : buffers) {
+            length += buffer.remaining();
+        }
+        ByteBuffer result = ByteBuffer.allocate(length);
+        for (ByteBuffer buffer : buffers) {
+            result.put(buffer.duplicate());
+        }
+        return result.array();
+    }
+
+    private static byte[] withLengthPrefix(byte[] payload) {
+        return ByteBuffer.allocate(4 + payload.length).putInt(payload.length).put(payload).array();
+    }
+
+    private static byte[] decodeHex(String hex) {
+        byte[] bytes = new byte[hex.length() / 2];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) Integer.parseInt(hex.substring(2 * i, 2 * i + 2), 16);
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.monitor.reporter;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.ServerSocket;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PrometheusReporterTest {
+    private PrometheusReporter reporter;
+    private int port;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        try (ServerSocket serverSocket = new ServerSocket(0)) {
+            port = serverSocket.getLocalPort();
+        }
+        Properties properties = new Properties();
+        properties.setProperty("PrometheusReporter.port", String.valueOf(port));
+        reporter = new PrometheusReporter(properties);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        reporter.shutDown();
+    }
+
+    @Test
+    public void testSamplesHaveNoTimestamp() throws IOException {
+        reporter.report(new Metrics("prometheus.test.long", 42L, 1600000000L));
+        reporter.report(new Metrics("prometheus.test.double", 1.5, 1600000000L));
+        reporter.report(new Metrics("prometheus.test.string", "7", 1600000000L));
+        reporter.report(new Metrics("prometheus.test.text", "not a number", 1600000000L));
+        List<String> lines = scrape();
+        assertTrue(lines.contains("bisq_v2_prometheus_test_long 42"), lines.toString());
+        assertTrue(lines.contains("bisq_v2_prometheus_test_double 1.5"), lines.toString());
+        assertTrue(lines.contains("bisq_v2_prometheus_test_string 7"), lines.toString());
+        assertEquals(3, lines.size(), lines.toString());
+    }
+
+    @Test
+    public void testNonFiniteValues() throws IOException {
+        reporter.report(List.of(
+                new Metrics("prometheus.test.positive", Double.POSITIVE_INFINITY, 1600000000L),
+                new Metrics("prometheus.test.negative", Double.NEGATIVE_INFINITY, 1600000000L),
+                new Metrics("prometheus.test.nan", Double.NaN, 1600000000L)));
+        List<String> lines = scrape();
+        assertTrue(lines.contains("bisq_v2_prometheus_test_positive +Inf"), lines.toString());
+        assertTrue(lines.contains("bisq_v2_prometheus_test_negative -Inf"), lines.toString());
+        assertTrue(lines.contains("bisq_v2_prometheus_test_nan NaN"), lines.toString());
+    }
+
+    @Test
+    public void testCollidingNamesAreDropped() throws IOException {
+        reporter.report(new Metrics("prometheus.test.a-b", 1L, 1600000000L));
+        reporter.report(new Metrics("prometheus.test.a_b", 2L, 1600000000L));
+        reporter.report(new Metrics("prometheus.test.a-b", 3L, 1600000000L));
+        assertEquals(List.of("bisq_v2_prometheus_test_a_b 3"), scrape());
+    }
+
+    @Test
+    public void testRendersLatestValue() throws IOException {
+        reporter.report(new Metrics("prometheus.test.value", 1L, 1600000000L));
+        assertEquals(List.of("bisq_v2_prometheus_test_value 1"), scrape());
+        reporter.report(new Metrics("prometheus.test.value", 2L, 1600000000L));
+        assertEquals(List.of("bisq_v2_prometheus_test_value 2"), scrape());
+    }
+
+    private List<String> scrape() throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL("http://127.0.0.1:" + port + "/metrics")
+                .openConnection();
+        assertEquals(200, connection.getResponseCode());
+        try (InputStream inputStream = connection.getInputStream()) {
+            String body = new String(inputStream.readAllBytes(), StandardCharsets.UTF_8);
+            return body.isEmpty() ? List.of() : Arrays.asList(body.split("\n"));
+        }
+    }
+}
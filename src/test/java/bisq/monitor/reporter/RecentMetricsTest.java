@@ -0,0 +1,149 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.monitor.reporter;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RecentMetricsTest {
+    @Test
+    public void testGlob() {
+        assertMatches("a.*.c", "a.b.c", "a.bb.c");
+        assertNotMatches("a.*.c", "a.b.d.c", "a.b.cd");
+        assertMatches("a.?.c", "a.b.c");
+        assertNotMatches("a.?.c", "a.bb.c", "a...c");
+        assertMatches("a.{b,cd}.e", "a.b.e", "a.cd.e");
+        assertNotMatches("a.{b,cd}.e", "a.c.e");
+        assertMatches("a,b", "a,b");
+    }
+
+    @Test
+    public void testCharacterClass() {
+        assertMatches("node[0-9]", "node0", "node7");
+        assertNotMatches("node[0-9]", "node", "nodea", "node10");
+        assertMatches("node[ab_-].x", "nodea.x", "node_.x", "node-.x");
+        assertNotMatches("node[ab_-].x", "nodec.x");
+        assertMatches("node[!0-9]", "nodea");
+        assertNotMatches("node[!0-9]", "node1", "node.");
+        assertMatches("node[^a]", "nodeb");
+        // Regex syntax inside a class is taken literally
+        assertMatches("a[\\]", "a\\");
+        assertMatches("a[&&b]", "a&", "ab");
+        assertNotMatches("a[&&b]", "ac");
+    }
+
+    @Test
+    public void testRejectsMalformedGlob() {
+        for (String glob : new String[]{"a.[0-9", "a.[]", "a.[!]", "a.[z-a]", "a.{b,c", "a.b}", "a.{b,{c,d}}"}) {
+            assertThrows(IllegalArgumentException.class, () -> RecentMetrics.toPattern(glob), glob);
+        }
+    }
+
+    @Test
+    public void testQueryByTimeRange() {
+        RecentMetrics recentMetrics = new RecentMetrics(3, 10);
+        MetricName a = MetricName.ROOT.resolve("test.recent.a");
+        MetricName b = MetricName.ROOT.resolve("test.recent.b");
+        for (int i = 0; i < 5; i++) {
+            recentMetrics.record(new Metrics(a, (long) i, 100 + i));
+        }
+        recentMetrics.record(new Metrics(b, 1L, 100));
+
+        Map<MetricName, List<Metrics>> result = query(recentMetrics, Metrics.ROOT + ".test.recent.*", 0, 103);
+        // Only the last 3 points are kept and b has none in range
+        assertEquals(Map.of(b, List.of(new Metrics(b, 1L, 100)),
+                a, List.of(new Metrics(a, 2L, 102), new Metrics(a, 3L, 103))), result);
+        assertEquals(Map.of(), query(recentMetrics, Metrics.ROOT + ".test.recent.c", 0, 1000));
+    }
+
+    @Test
+    public void testMaxSeriesUnderConcurrency() throws InterruptedException {
+        int maxSeries = 100;
+        RecentMetrics recentMetrics = new RecentMetrics(1, maxSeries);
+        int numThreads = 8;
+        int numPerThread = 1000;
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < numThreads; t++) {
+            int thread = t;
+            threads.add(new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < numPerThread; i++) {
+                    recentMetrics.record(new Metrics("test.maxSeries.t" + thread + ".m" + i, i, 1000));
+                }
+            }));
+        }
+        threads.forEach(Thread::start);
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(maxSeries, recentMetrics.getNumSeries());
+        assertEquals(numThreads * numPerThread - maxSeries, recentMetrics.getIgnoredCount());
+    }
+
+    @Test
+    public void testEvictsIdleSeriesWhenFull() {
+        RecentMetrics recentMetrics = new RecentMetrics(1, 2, 1000);
+        recentMetrics.record(new Metrics("test.idle.a", 1, 1000), 0);
+        recentMetrics.record(new Metrics("test.idle.b", 1, 1000), 0);
+        recentMetrics.record(new Metrics("test.idle.c", 1, 1000), 500);
+        assertEquals(1, recentMetrics.getIgnoredCount());
+
+        // a stays active, b gets idle and makes room for c
+        recentMetrics.record(new Metrics("test.idle.a", 2, 1001), 1500);
+        recentMetrics.record(new Metrics("test.idle.c", 2, 1001), 2000);
+        assertEquals(2, recentMetrics.getNumSeries());
+        assertEquals(1, recentMetrics.getIgnoredCount());
+        Map<MetricName, List<Metrics>> result = query(recentMetrics, Metrics.ROOT + ".test.idle.*", 0, 2000);
+        assertEquals(List.of(MetricName.ROOT.resolve("test.idle.a"), MetricName.ROOT.resolve("test.idle.c")),
+                List.copyOf(result.keySet()));
+    }
+
+    private static Map<MetricName, List<Metrics>> query(RecentMetrics recentMetrics, String glob, long from, long to) {
+        Map<MetricName, List<Metrics>> result = new TreeMap<>((x, y) -> x.getPath().compareTo(y.getPath()));
+        recentMetrics.query(RecentMetrics.toPattern(glob), from, to, result::put);
+        return result;
+    }
+
+    private static void assertMatches(String glob, String... paths) {
+        Pattern pattern = RecentMetrics.toPattern(glob);
+        for (String path : paths) {
+            assertTrue(pattern.matcher(path).matches(), glob + " must match " + path);
+        }
+    }
+
+    private static void assertNotMatches(String glob, String... paths) {
+        Pattern pattern = RecentMetrics.toPattern(glob);
+        for (String path : paths) {
+            assertFalse(pattern.matcher(path).matches(), glob + " must not match " + path);
+        }
+    }
+}
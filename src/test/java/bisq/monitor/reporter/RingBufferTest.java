@@ -0,0 +1,347 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.monitor.reporter;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.AbstractCollection;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RingBufferTest {
+    @Test
+    public void testCapacityIsRoundedUpToPowerOfTwo() {
+        assertEquals(2, new RingBuffer<>(2, RingBuffer.OverflowPolicy.DROP_NEWEST, 0).capacity());
+        assertEquals(4, new RingBuffer<>(3, RingBuffer.OverflowPolicy.DROP_NEWEST, 0).capacity());
+        assertEquals(4, new RingBuffer<>(4, RingBuffer.OverflowPolicy.DROP_NEWEST, 0).capacity());
+        assertEquals(1024, new RingBuffer<>(1000, RingBuffer.OverflowPolicy.DROP_NEWEST, 0).capacity());
+        assertThrows(IllegalArgumentException.class,
+                () -> new RingBuffer<>(1, RingBuffer.OverflowPolicy.DROP_NEWEST, 0));
+    }
+
+    @Test
+    public void testFifoOrderAcrossWrapAround() {
+        RingBuffer<Integer> ringBuffer = new RingBuffer<>(4, RingBuffer.OverflowPolicy.DROP_NEWEST, 0);
+        assertTrue(ringBuffer.isEmpty());
+        assertNull(ringBuffer.poll());
+        int next = 0;
+        for (int round = 0; round < 10; round++) {
+            for (int i = 0; i < 3; i++) {
+                assertTrue(ringBuffer.offer(round * 3 + i));
+            }
+            assertEquals(3, ringBuffer.size());
+            for (int i = 0; i < 3; i++) {
+                assertEquals(next++, ringBuffer.poll());
+            }
+        }
+        assertTrue(ringBuffer.isEmpty());
+        assertEquals(0, ringBuffer.getDroppedCount());
+    }
+
+    @Test
+    public void testDropOldest() {
+        RingBuffer<Integer> ringBuffer = new RingBuffer<>(4, RingBuffer.OverflowPolicy.DROP_OLDEST, 0);
+        for (int i = 0; i < 6; i++) {
+            assertTrue(ringBuffer.offer(i));
+        }
+        assertEquals(4, ringBuffer.size());
+        assertEquals(2, ringBuffer.getDroppedCount());
+        assertEquals(List.of(2, 3, 4, 5), drain(ringBuffer));
+    }
+
+    @Test
+    public void testDropNewest() {
+        RingBuffer<Integer> ringBuffer = new RingBuffer<>(4, RingBuffer.OverflowPolicy.DROP_NEWEST, 0);
+        for (int i = 0; i < 4; i++) {
+            assertTrue(ringBuffer.offer(i));
+        }
+        assertFalse(ringBuffer.offer(4));
+        assertFalse(ringBuffer.offer(5));
+        assertEquals(2, ringBuffer.getDroppedCount());
+        assertEquals(List.of(0, 1, 2, 3), drain(ringBuffer));
+    }
+
+    @Test
+    public void testBlockDropsAfterTimeout() {
+        RingBuffer<Integer> ringBuffer = new RingBuffer<>(2, RingBuffer.OverflowPolicy.BLOCK, 100);
+        assertTrue(ringBuffer.offer(0));
+        assertTrue(ringBuffer.offer(1));
+        long ts = System.currentTimeMillis();
+        assertFalse(ringBuffer.offer(2));
+        assertTrue(System.currentTimeMillis() - ts >= 100);
+        assertEquals(1, ringBuffer.getDroppedCount());
+        assertEquals(List.of(0, 1), drain(ringBuffer));
+    }
+
+    @Test
+    public void testBlockWaitsForConsumer() throws Exception {
+        RingBuffer<Integer> ringBuffer = new RingBuffer<>(2, RingBuffer.OverflowPolicy.BLOCK, 10_000);
+        assertTrue(ringBuffer.offer(0));
+        assertTrue(ringBuffer.offer(1));
+        Thread consumer = new Thread(() -> {
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException ignore) {
+            }
+            ringBuffer.poll();
+        });
+        consumer.start();
+        assertTrue(ringBuffer.offer(2));
+        consumer.join();
+        assertEquals(0, ringBuffer.getDroppedCount());
+        assertEquals(List.of(1, 2), drain(ringBuffer));
+    }
+
+    @Test
+    public void testMultipleProducersWithBlockLoseNothing() throws Exception {
+        int numProducers = 4;
+        int numPerProducer = 200_000;
+        RingBuffer<Long> ringBuffer = new RingBuffer<>(1024, RingBuffer.OverflowPolicy.BLOCK, 60_000);
+        List<Long> received = runStress(ringBuffer, numProducers, numPerProducer);
+
+        assertEquals(0, ringBuffer.getDroppedCount());
+        assertEquals(numProducers * numPerProducer, received.size());
+        // Each element exactly once and in the order of its producer
+        long[] lastSeqByProducer = new long[numProducers];
+        Arrays.fill(lastSeqByProducer, -1);
+        for (long element : received) {
+            int producer = (int) (element / numPerProducer);
+            long seq = element % numPerProducer;
+            assertEquals(lastSeqByProducer[producer] + 1, seq);
+            lastSeqByProducer[producer] = seq;
+        }
+    }
+
+    @Test
+    public void testMultipleProducersWithDropOldestAccountForEveryElement() throws Exception {
+        int numProducers = 4;
+        int numPerProducer = 200_000;
+        RingBuffer<Long> ringBuffer = new RingBuffer<>(64, RingBuffer.OverflowPolicy.DROP_OLDEST, 0);
+        List<Long> received = runStress(ringBuffer, numProducers, numPerProducer);
+
+        assertEquals(numProducers * numPerProducer, received.size() + ringBuffer.getDroppedCount());
+        long[] lastSeqByProducer = new long[numProducers];
+        Arrays.fill(lastSeqByProducer, -1);
+        for (long element : received) {
+            int producer = (int) (element / numPerProducer);
+            long seq = element % numPerProducer;
+            assertTrue(seq > lastSeqByProducer[producer], "Duplicate or reordered element " + element);
+            lastSeqByProducer[producer] = seq;
+        }
+    }
+
+    @Test
+    public void testOfferAllKeepsOrderAcrossWrapAround() {
+        RingBuffer<Integer> ringBuffer = new RingBuffer<>(8, RingBuffer.OverflowPolicy.DROP_NEWEST, 0);
+        assertEquals(0, ringBuffer.offerAll(List.of()));
+        int next = 0;
+        for (int round = 0; round < 10; round++) {
+            // 5 does not divide 8, so the batches start at every offset and wrap around the end of the array
+            assertEquals(5, ringBuffer.offerAll(List.of(round * 5, round * 5 + 1, round * 5 + 2, round * 5 + 3,
+                    round * 5 + 4)));
+            assertEquals(5, ringBuffer.size());
+            for (int i = 0; i < 5; i++) {
+                assertEquals(next++, ringBuffer.poll());
+            }
+        }
+        assertEquals(0, ringBuffer.getDroppedCount());
+    }
+
+    @Test
+    public void testOfferAllFillsToCapacity() {
+        RingBuffer<Integer> ringBuffer = new RingBuffer<>(4, RingBuffer.OverflowPolicy.DROP_NEWEST, 0);
+        assertEquals(4, ringBuffer.offerAll(List.of(0, 1, 2, 3)));
+        assertEquals(4, ringBuffer.size());
+        assertFalse(ringBuffer.offer(4));
+        assertEquals(List.of(0, 1, 2, 3), drain(ringBuffer));
+    }
+
+    @Test
+    public void testOfferAllWithShrinkingCollection() {
+        RingBuffer<Integer> ringBuffer = new RingBuffer<>(8, RingBuffer.OverflowPolicy.DROP_NEWEST, 0);
+        // Like a concurrent collection which lost elements between size() and the iteration
+        Collection<Integer> batch = new AbstractCollection<>() {
+            @Override
+            public Iterator<Integer> iterator() {
+                return List.of(0, 1).iterator();
+            }
+
+            @Override
+            public int size() {
+                return 4;
+            }
+        };
+        assertEquals(2, ringBuffer.offerAll(batch));
+        assertTrue(ringBuffer.offer(2));
+        assertEquals(List.of(0, 1, 2), drain(ringBuffer));
+        assertTrue(ringBuffer.isEmpty());
+    }
+
+    @Test
+    public void testOfferAllWithoutEnoughSpaceAppliesDropNewest() {
+        RingBuffer<Integer> ringBuffer = new RingBuffer<>(4, RingBuffer.OverflowPolicy.DROP_NEWEST, 0);
+        ringBuffer.offer(0);
+        ringBuffer.offer(1);
+        assertEquals(2, ringBuffer.offerAll(List.of(2, 3, 4)));
+        assertEquals(1, ringBuffer.getDroppedCount());
+        assertEquals(List.of(0, 1, 2, 3), drain(ringBuffer));
+
+        // Larger than the capacity never fits into a single claim
+        assertEquals(4, ringBuffer.offerAll(List.of(0, 1, 2, 3, 4, 5)));
+        assertEquals(3, ringBuffer.getDroppedCount());
+        assertEquals(List.of(0, 1, 2, 3), drain(ringBuffer));
+    }
+
+    @Test
+    public void testOfferAllWithoutEnoughSpaceAppliesDropOldest() {
+        RingBuffer<Integer> ringBuffer = new RingBuffer<>(4, RingBuffer.OverflowPolicy.DROP_OLDEST, 0);
+        ringBuffer.offer(0);
+        ringBuffer.offer(1);
+        ringBuffer.offer(2);
+        assertEquals(3, ringBuffer.offerAll(List.of(3, 4, 5)));
+        assertEquals(2, ringBuffer.getDroppedCount());
+        assertEquals(List.of(2, 3, 4, 5), drain(ringBuffer));
+
+        assertEquals(6, ringBuffer.offerAll(List.of(0, 1, 2, 3, 4, 5)));
+        assertEquals(4, ringBuffer.getDroppedCount());
+        assertEquals(List.of(2, 3, 4, 5), drain(ringBuffer));
+    }
+
+    @Test
+    public void testOfferAllFromMultipleProducersLosesNothing() throws Exception {
+        int numProducers = 4;
+        int numBatches = 20_000;
+        int batchSize = 8;
+        RingBuffer<Long> ringBuffer = new RingBuffer<>(1024, RingBuffer.OverflowPolicy.BLOCK, 60_000);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> producers = new ArrayList<>();
+        for (int p = 0; p < numProducers; p++) {
+            long base = (long) p * numBatches * batchSize;
+            Thread producer = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                List<Long> batch = new ArrayList<>(batchSize);
+                for (int b = 0; b < numBatches; b++) {
+                    batch.clear();
+                    for (int i = 0; i < batchSize; i++) {
+                        batch.add(base + (long) b * batchSize + i);
+                    }
+                    ringBuffer.offerAll(batch);
+                }
+            });
+            producer.start();
+            producers.add(producer);
+        }
+
+        List<Long> received = new ArrayList<>();
+        AtomicBoolean producersDone = new AtomicBoolean();
+        Thread consumer = new Thread(() -> {
+            while (true) {
+                boolean done = producersDone.get();
+                Long element = ringBuffer.poll();
+                if (element != null) {
+                    received.add(element);
+                } else if (done) {
+                    return;
+                } else {
+                    Thread.onSpinWait();
+                }
+            }
+        });
+        consumer.start();
+        start.countDown();
+        for (Thread producer : producers) {
+            producer.join();
+        }
+        producersDone.set(true);
+        consumer.join();
+
+        assertEquals(0, ringBuffer.getDroppedCount());
+        assertEquals(numProducers * numBatches * batchSize, received.size());
+        long[] lastByProducer = new long[numProducers];
+        Arrays.fill(lastByProducer, -1);
+        for (long element : received) {
+            int producer = (int) (element / ((long) numBatches * batchSize));
+            long seq = element % ((long) numBatches * batchSize);
+            assertEquals(lastByProducer[producer] + 1, seq);
+            lastByProducer[producer] = seq;
+        }
+    }
+
+    // Elements are encoded as producer * numPerProducer + sequence number
+    private static List<Long> runStress(RingBuffer<Long> ringBuffer, int numProducers, int numPerProducer)
+            throws InterruptedException {
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> producers = new ArrayList<>();
+        for (int p = 0; p < numProducers; p++) {
+            long base = (long) p * numPerProducer;
+            Thread producer = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < numPerProducer; i++) {
+                    ringBuffer.offer(base + i);
+                }
+            });
+            producer.start();
+            producers.add(producer);
+        }
+
+        List<Long> received = new ArrayList<>();
+        AtomicBoolean producersDone = new AtomicBoolean();
+        Thread consumer = new Thread(() -> {
+            while (true) {
+                boolean done = producersDone.get();
+                Long element = ringBuffer.poll();
+                if (element != null) {
+                    received.add(element);
+                } else if (done) {
+                    return;
+                } else {
+                    Thread.onSpinWait();
+                }
+            }
+        });
+        consumer.start();
+        start.countDown();
+        for (Thread producer : producers) {
+            producer.join();
+        }
+        producersDone.set(true);
+        consumer.join();
+        return received;
+    }
+
+    private static <E> List<E> drain(RingBuffer<E> ringBuffer) {
+        List<E> elements = new ArrayList<>();
+        ringBuffer.drainTo(elements, Integer.MAX_VALUE);
+        return elements;
+    }
+}
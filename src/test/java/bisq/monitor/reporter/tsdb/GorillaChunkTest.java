@@ -0,0 +1,132 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.monitor.reporter.tsdb;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GorillaChunkTest {
+    private static final long START = 1_700_000_000L;
+
+    @Test
+    public void testDeltaOfDeltaBucketBoundaries() {
+        long[] deltaOfDeltas = {0, 1, -1, 63, -64, 64, -65, 255, -256, 256, -257, 2047, -2048, 2048, -2049,
+                Integer.MAX_VALUE, Integer.MIN_VALUE, 0};
+        long[] timeStamps = new long[deltaOfDeltas.length + 1];
+        double[] values = new double[timeStamps.length];
+        timeStamps[0] = START;
+        long delta = 0;
+        for (int i = 0; i < deltaOfDeltas.length; i++) {
+            delta += deltaOfDeltas[i];
+            timeStamps[i + 1] = timeStamps[i] + delta;
+            values[i + 1] = i;
+        }
+        assertRoundTrip(timeStamps, values);
+    }
+
+    @Test
+    public void testRejectsDeltaOfDeltaBeyond32Bits() {
+        GorillaChunk chunk = new GorillaChunk(1024);
+        assertTrue(chunk.append(START, 1));
+        assertFalse(chunk.append(START + Integer.MAX_VALUE + 1L, 1));
+        assertEquals(1, chunk.getNumPoints());
+    }
+
+    @Test
+    public void testSpecialValues() {
+        double[] values = {0, -0.0, 1, Double.NaN, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY,
+                Double.MIN_VALUE, -Double.MAX_VALUE, Double.MAX_VALUE, 1, 1, 0.1, 0.2, Long.MAX_VALUE, 0};
+        long[] timeStamps = new long[values.length];
+        for (int i = 0; i < values.length; i++) {
+            timeStamps[i] = START + 60L * i;
+        }
+        assertRoundTrip(timeStamps, values);
+    }
+
+    @Test
+    public void testRandomPoints() {
+        Random random = new Random(42);
+        int numPoints = 1000;
+        long[] timeStamps = new long[numPoints];
+        double[] values = new double[numPoints];
+        timeStamps[0] = START;
+        for (int i = 0; i < numPoints; i++) {
+            if (i > 0) {
+                // Mostly regular intervals with jitter and some gaps
+                timeStamps[i] = timeStamps[i - 1] + (random.nextInt(10) == 0 ? random.nextInt(100_000) :
+                        60 + random.nextInt(5) - 2);
+            }
+            values[i] = random.nextBoolean() ? random.nextInt(100) : random.nextGaussian() * 1e6;
+        }
+        assertRoundTrip(timeStamps, values);
+    }
+
+    @Test
+    public void testRefusesPointWhenFull() {
+        GorillaChunk chunk = new GorillaChunk(64);
+        Random random = new Random(1);
+        int numAppended = 0;
+        while (chunk.append(START + 60L * numAppended, random.nextDouble())) {
+            numAppended++;
+        }
+        assertTrue(numAppended > 1);
+        assertTrue(chunk.getNumBytes() <= 64);
+        assertEquals(numAppended, chunk.getNumPoints());
+        List<Long> decoded = new ArrayList<>();
+        GorillaChunk.decode(encoded(chunk), chunk.getNumPoints(), (timeStamp, value) -> decoded.add(timeStamp));
+        assertEquals(chunk.getNumPoints(), decoded.size());
+        assertEquals(START + 60L * (decoded.size() - 1), decoded.get(decoded.size() - 1));
+    }
+
+    private static void assertRoundTrip(long[] timeStamps, double[] values) {
+        GorillaChunk chunk = new GorillaChunk(64 * 1024);
+        for (int i = 0; i < timeStamps.length; i++) {
+            assertTrue(chunk.append(timeStamps[i], values[i]));
+        }
+        assertEquals(timeStamps.length, chunk.getNumPoints());
+        assertEquals(timeStamps[0], chunk.getFirstTimeStamp());
+        assertEquals(timeStamps[timeStamps.length - 1], chunk.getLastTimeStamp());
+
+        List<Long> decodedTimeStamps = new ArrayList<>();
+        List<Double> decodedValues = new ArrayList<>();
+        GorillaChunk.decode(encoded(chunk), chunk.getNumPoints(), (timeStamp, value) -> {
+            decodedTimeStamps.add(timeStamp);
+            decodedValues.add(value);
+        });
+        assertEquals(timeStamps.length, decodedTimeStamps.size());
+        for (int i = 0; i < timeStamps.length; i++) {
+            assertEquals(timeStamps[i], decodedTimeStamps.get(i), "Timestamp at " + i);
+            // Compare the raw bits, so NaN and -0.0 are checked as well
+            assertEquals(Double.doubleToRawLongBits(values[i]), Double.doubleToRawLongBits(decodedValues.get(i)),
+                    "Value at " + i);
+        }
+    }
+
+    private static ByteBuffer encoded(GorillaChunk chunk) {
+        ByteBuffer buffer = ByteBuffer.allocate(chunk.getNumBytes());
+        chunk.writeTo(buffer);
+        buffer.flip();
+        return buffer;
+    }
+}
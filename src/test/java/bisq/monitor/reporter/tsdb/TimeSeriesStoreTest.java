@@ -0,0 +1,151 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.monitor.reporter.tsdb;
+
+import bisq.monitor.reporter.MetricName;
+import bisq.monitor.reporter.Metrics;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TimeSeriesStoreTest {
+    private static final long START = 1_700_000_000L;
+    private static final int SEGMENT_SIZE = 1024;
+    private static final int CHUNK_SIZE = 64;
+    private static final long HOUR = 3600;
+    private static final MetricName A = MetricName.ROOT.resolve("tsdb.test.a");
+    private static final MetricName B = MetricName.ROOT.resolve("tsdb.test.b");
+
+    @TempDir
+    File dir;
+
+    @Test
+    public void testQueriesSealedAndOpenChunks() {
+        TimeSeriesStore store = new TimeSeriesStore(dir, SEGMENT_SIZE, CHUNK_SIZE, HOUR, HOUR);
+        List<Point> a = append(store, A, 0, 300);
+        List<Point> b = append(store, B, 0, 10);
+        // Random values fill a chunk with a few points, so most are sealed into several segments
+        assertTrue(store.getNumSegments() > 1);
+
+        assertEquals(a, query(store, A, 0, Long.MAX_VALUE));
+        assertEquals(b, query(store, B, 0, Long.MAX_VALUE));
+        assertEquals(a.subList(100, 201), query(store, A, a.get(100).timeStamp, a.get(200).timeStamp));
+        assertEquals(List.of(), query(store, MetricName.ROOT.resolve("tsdb.test.c"), 0, Long.MAX_VALUE));
+
+        Map<MetricName, List<Point>> pointsByName = new HashMap<>();
+        store.query(List.of(A, B), 0, Long.MAX_VALUE, (name, timeStamp, value) ->
+                pointsByName.computeIfAbsent(name, key -> new ArrayList<>()).add(new Point(timeStamp, value)));
+        assertEquals(Map.of(A, a, B, b), pointsByName);
+    }
+
+    @Test
+    public void testRecoversAfterReopen() {
+        TimeSeriesStore store = new TimeSeriesStore(dir, SEGMENT_SIZE, CHUNK_SIZE, HOUR, HOUR);
+        List<Point> points = new ArrayList<>(append(store, A, 0, 100));
+        store.shutDown();
+
+        TimeSeriesStore reopened = new TimeSeriesStore(dir, SEGMENT_SIZE, CHUNK_SIZE, HOUR, HOUR);
+        assertEquals(points, query(reopened, A, 0, Long.MAX_VALUE));
+        // Writing continues after the records of the recovered active segment
+        points.addAll(append(reopened, A, 100, 50));
+        reopened.shutDown();
+
+        TimeSeriesStore reopenedAgain = new TimeSeriesStore(dir, SEGMENT_SIZE, CHUNK_SIZE, HOUR, HOUR);
+        assertEquals(points, query(reopenedAgain, A, 0, Long.MAX_VALUE));
+        reopenedAgain.shutDown();
+    }
+
+    @Test
+    public void testDeletesSegmentsBeyondRetention() throws InterruptedException {
+        TimeSeriesStore store = new TimeSeriesStore(dir, SEGMENT_SIZE, CHUNK_SIZE, HOUR, 1);
+        List<Point> points = append(store, A, 0, 300);
+        assertTrue(segmentFiles().length > 1);
+
+        Thread.sleep(1100);
+        store.maintain();
+        assertEquals(1, store.getNumSegments());
+        assertEquals(1, segmentFiles().length);
+        // Only the newest points are left
+        List<Point> remaining = query(store, A, 0, Long.MAX_VALUE);
+        assertFalse(remaining.isEmpty());
+        assertEquals(points.subList(points.size() - remaining.size(), points.size()), remaining);
+        store.shutDown();
+
+        TimeSeriesStore reopened = new TimeSeriesStore(dir, SEGMENT_SIZE, CHUNK_SIZE, HOUR, 1);
+        assertEquals(remaining, query(reopened, A, 0, Long.MAX_VALUE));
+        reopened.shutDown();
+    }
+
+    private File[] segmentFiles() {
+        return dir.listFiles((d, name) -> name.endsWith(".seg"));
+    }
+
+    private static List<Point> append(TimeSeriesStore store, MetricName name, int from, int count) {
+        Random random = new Random(from);
+        List<Point> points = new ArrayList<>();
+        for (int i = from; i < from + count; i++) {
+            Point point = new Point(START + 60L * i, random.nextGaussian() * 1000);
+            store.append(new Metrics(name, point.value, point.timeStamp));
+            points.add(point);
+        }
+        return points;
+    }
+
+    private static List<Point> query(TimeSeriesStore store, MetricName name, long from, long to) {
+        List<Point> points = new ArrayList<>();
+        store.query(name, from, to, (timeStamp, value) -> points.add(new Point(timeStamp, value)));
+        return points;
+    }
+
+    private static class Point {
+        private final long timeStamp;
+        private final double value;
+
+        private Point(long timeStamp, double value) {
+            this.timeStamp = timeStamp;
+            this.value = value;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Point)) {
+                return false;
+            }
+            Point point = (Point) o;
+            return timeStamp == point.timeStamp && Double.compare(value, point.value) == 0;
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(timeStamp) * 31 + Double.hashCode(value);
+        }
+
+        @Override
+        public String toString() {
+            return "[" + timeStamp + ", " + value + "]";
+        }
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.monitor.server;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BoundedInputStreamTest {
+    @Test
+    public void testReadsUpToLimit() throws IOException {
+        BoundedInputStream inputStream = new BoundedInputStream(new ByteArrayInputStream(new byte[10]), 10);
+        assertEquals(10, inputStream.readAllBytes().length);
+        assertEquals(10, inputStream.getNumBytesRead());
+        assertEquals(-1, inputStream.read());
+    }
+
+    @Test
+    public void testReadBeyondLimitFails() throws IOException {
+        BoundedInputStream inputStream = new BoundedInputStream(new ByteArrayInputStream(new byte[11]), 10);
+        assertEquals(10, inputStream.readNBytes(10).length);
+        assertThrows(BoundedInputStream.LimitExceededException.class, inputStream::read);
+    }
+
+    @Test
+    public void testReadArrayBeyondLimitFails() {
+        InputStream inputStream = new BoundedInputStream(new ByteArrayInputStream(new byte[100]), 10);
+        assertThrows(BoundedInputStream.LimitExceededException.class, () -> inputStream.read(new byte[100]));
+    }
+
+    @Test
+    public void testSkipBeyondLimitFails() throws IOException {
+        BoundedInputStream inputStream = new BoundedInputStream(new ByteArrayInputStream(new byte[100]), 10);
+        assertEquals(5, inputStream.skip(5));
+        assertEquals(5, inputStream.getNumBytesRead());
+        assertThrows(BoundedInputStream.LimitExceededException.class, () -> inputStream.skip(50));
+    }
+
+    @Test
+    public void testMarkNotSupported() {
+        assertFalse(new BoundedInputStream(new ByteArrayInputStream(new byte[1]), 10).markSupported());
+    }
+}
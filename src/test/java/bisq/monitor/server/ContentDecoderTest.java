@@ -0,0 +1,130 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.monitor.server;
+
+import org.apache.commons.compress.MemoryLimitException;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ContentDecoderTest {
+    private static final byte[] DATA = "hello xz hello xz hello xz hello xz hello xz ".getBytes(StandardCharsets.UTF_8);
+    private static final int XZ_MEMORY_LIMIT_KB = 16384;
+    // Python: lzma.compress(b"hello xz " * 10, preset=0)
+    private static final String XZ = "fd377a585a000004e6d6b446020021010c0000008f98419ce0005900105d00341949db855c63b2" +
+            "2e6bfe4da51c00000038e59a9fb241dbb400012c5a6f6609921fb6f37d010000000004595a";
+    // Same stream with the dictionary size in the block header raised to 1.5 GiB
+    private static final String XZ_LARGE_DICTIONARY = "fd377a585a000004e6d6b44602002101250000003b787b41e0005900105d" +
+            "00341949db855c63b22e6bfe4da51c00000038e59a9fb241dbb400012c5a6f6609921fb6f37d010000000004595a";
+
+    @Test
+    public void testIsSupported() {
+        assertTrue(ContentDecoder.isSupported(null));
+        assertTrue(ContentDecoder.isSupported("identity"));
+        assertTrue(ContentDecoder.isSupported("GZIP"));
+        assertTrue(ContentDecoder.isSupported("deflate, x-gzip"));
+        assertTrue(ContentDecoder.isSupported("xz"));
+        assertFalse(ContentDecoder.isSupported("br"));
+        assertFalse(ContentDecoder.isSupported("gzip, zstd"));
+    }
+
+    @Test
+    public void testDecodesIdentity() throws IOException {
+        assertArrayEquals(DATA, decode(DATA, null));
+        assertArrayEquals(DATA, decode(DATA, "identity"));
+    }
+
+    @Test
+    public void testDecodesGzip() throws IOException {
+        assertArrayEquals(DATA, decode(gzip(DATA), "gzip"));
+        assertArrayEquals(DATA, decode(gzip(DATA), "x-gzip"));
+    }
+
+    @Test
+    public void testDecodesDeflate() throws IOException {
+        assertArrayEquals(DATA, decode(deflate(DATA), "deflate"));
+    }
+
+    @Test
+    public void testDecodesMultipleEncodingsInReverseOrder() throws IOException {
+        assertArrayEquals(DATA, decode(gzip(deflate(DATA)), "deflate, gzip"));
+    }
+
+    @Test
+    public void testUnsupportedEncodingFails() {
+        assertThrows(IllegalArgumentException.class, () -> decode(DATA, "br"));
+    }
+
+    @Test
+    public void testCompressionBombFails() throws IOException {
+        byte[] bomb = gzip(new byte[1024 * 1024]);
+        InputStream inputStream = ContentDecoder.decode(new ByteArrayInputStream(bomb), "gzip", 64 * 1024,
+                XZ_MEMORY_LIMIT_KB);
+        assertThrows(BoundedInputStream.LimitExceededException.class, inputStream::readAllBytes);
+    }
+
+    @Test
+    public void testDecodesXz() throws IOException {
+        byte[] expected = "hello xz ".repeat(10).getBytes(StandardCharsets.UTF_8);
+        assertArrayEquals(expected, decode(decodeHex(XZ), "xz"));
+    }
+
+    @Test
+    public void testXzMemoryLimit() throws IOException {
+        InputStream inputStream = ContentDecoder.decode(new ByteArrayInputStream(decodeHex(XZ_LARGE_DICTIONARY)), "xz",
+                1024, XZ_MEMORY_LIMIT_KB);
+        assertThrows(MemoryLimitException.class, inputStream::readAllBytes);
+    }
+
+    private static byte[] decode(byte[] body, String contentEncoding) throws IOException {
+        return ContentDecoder.decode(new ByteArrayInputStream(body), contentEncoding, 1024, XZ_MEMORY_LIMIT_KB)
+                .readAllBytes();
+    }
+
+    private static byte[] gzip(byte[] data) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzipOutputStream = new GZIPOutputStream(outputStream)) {
+            gzipOutputStream.write(data);
+        }
+        return outputStream.toByteArray();
+    }
+
+    private static byte[] deflate(byte[] data) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        try (DeflaterOutputStream deflaterOutputStream = new DeflaterOutputStream(outputStream)) {
+            deflaterOutputStream.write(data);
+        }
+        return outputStream.toByteArray();
+    }
+
+    private static byte[] decodeHex(String hex) {
+        byte[] bytes = new byte[hex.length() / 2];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) Integer.parseInt(hex.substring(2 * i, 2 * i + 2), 16);
+        }
+        return bytes;
+    }
+}
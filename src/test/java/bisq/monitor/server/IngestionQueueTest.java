@@ -0,0 +1,135 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.monitor.server;
+
+import bisq.monitor.reporter.Metrics;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class IngestionQueueTest {
+    private static final String NAME = Metrics.ROOT + ".monitor.server.ingestion.";
+
+    @Test
+    public void testThrottlesClientWithTooManyQueuedReports() throws InterruptedException {
+        IngestionQueue ingestionQueue = new IngestionQueue(1, 10, 2);
+        CountDownLatch blocked = new CountDownLatch(1);
+        try {
+            assertEquals(IngestionQueue.Admission.ACCEPTED, ingestionQueue.submit("a", () -> await(blocked)));
+            assertEquals(IngestionQueue.Admission.ACCEPTED, ingestionQueue.submit("a", () -> {
+            }));
+            assertEquals(IngestionQueue.Admission.THROTTLED, ingestionQueue.submit("a", () -> {
+            }));
+            // Other clients are not affected
+            assertEquals(IngestionQueue.Admission.ACCEPTED, ingestionQueue.submit("b", () -> {
+            }));
+
+            Map<String, Double> stats = getStats(ingestionQueue);
+            assertEquals(3, stats.get(NAME + "accepted"));
+            assertEquals(1, stats.get(NAME + "throttled"));
+            assertEquals(0, stats.get(NAME + "rejected"));
+
+            // Once its reports are processed the client gets admitted again
+            blocked.countDown();
+            assertEquals(IngestionQueue.Admission.ACCEPTED, ingestionQueue.submit("a", () -> {
+            }, 5000));
+        } finally {
+            blocked.countDown();
+            ingestionQueue.shutDown();
+        }
+    }
+
+    @Test
+    public void testRejectsReportIfQueueIsFull() throws InterruptedException {
+        IngestionQueue ingestionQueue = new IngestionQueue(1, 1, 10);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch blocked = new CountDownLatch(1);
+        try {
+            assertEquals(IngestionQueue.Admission.ACCEPTED, ingestionQueue.submit("a", () -> {
+                started.countDown();
+                await(blocked);
+            }));
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+            assertEquals(IngestionQueue.Admission.ACCEPTED, ingestionQueue.submit("b", () -> {
+            }));
+            assertEquals(1, ingestionQueue.getQueueDepth());
+            assertEquals(IngestionQueue.Admission.REJECTED, ingestionQueue.submit("c", () -> {
+            }));
+
+            // Waiting does not help as long as the worker is blocked
+            long startTs = System.currentTimeMillis();
+            assertEquals(IngestionQueue.Admission.REJECTED, ingestionQueue.submit("c", () -> {
+            }, 100));
+            assertTrue(System.currentTimeMillis() - startTs >= 100);
+
+            Map<String, Double> stats = getStats(ingestionQueue);
+            assertEquals(2, stats.get(NAME + "accepted"));
+            assertEquals(0, stats.get(NAME + "throttled"));
+            assertEquals(2, stats.get(NAME + "rejected"));
+            assertEquals(1, stats.get(NAME + "queueDepth"));
+        } finally {
+            blocked.countDown();
+            ingestionQueue.shutDown();
+        }
+    }
+
+    @Test
+    public void testReportsHistogramsOfProcessedReports() throws InterruptedException {
+        IngestionQueue ingestionQueue = new IngestionQueue(1, 10, 10);
+        CountDownLatch done = new CountDownLatch(2);
+        try {
+            assertEquals(0, getStats(ingestionQueue).get(NAME + "processingMs.count"));
+            ingestionQueue.submit("a", done::countDown);
+            ingestionQueue.submit("a", done::countDown);
+            assertTrue(done.await(5, TimeUnit.SECONDS));
+            // The histograms are recorded after the task ran
+            Thread.sleep(100);
+
+            Map<String, Double> stats = getStats(ingestionQueue);
+            assertEquals(2, stats.get(NAME + "queueWaitMs.count"));
+            assertEquals(2, stats.get(NAME + "processingMs.count"));
+            assertTrue(stats.containsKey(NAME + "processingMs.p99"));
+            // Histograms are reset at each read
+            assertEquals(0, getStats(ingestionQueue).get(NAME + "processingMs.count"));
+            assertFalse(getStats(ingestionQueue).containsKey(NAME + "processingMs.p99"));
+        } finally {
+            ingestionQueue.shutDown();
+        }
+    }
+
+    private static Map<String, Double> getStats(IngestionQueue ingestionQueue) {
+        List<Metrics> metrics = new ArrayList<>();
+        ingestionQueue.addTo(metrics);
+        return metrics.stream().collect(Collectors.toMap(Metrics::getPath, m -> Double.parseDouble(m.getValue())));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
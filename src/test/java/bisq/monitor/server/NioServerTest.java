@@ -0,0 +1,354 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.monitor.server;
+
+import bisq.monitor.reporter.Metrics;
+import bisq.monitor.reporter.RecentMetrics;
+import bisq.monitor.reporter.Reporter;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class NioServerTest {
+    private NioServer server;
+    private int port;
+    private final List<String> receivedBodies = new CopyOnWriteArrayList<>();
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        if (server != null) {
+            server.shutDown().get();
+        }
+    }
+
+    @Test
+    public void testParsesHeaderAndBody() throws IOException {
+        start(new Properties(), null);
+        try (Socket socket = connect()) {
+            OutputStream out = socket.getOutputStream();
+            // Header and body arrive in several parts
+            String header = "POST / HTTP/1.1\r\nHost: localhost\r\nuser-agent:  seed-1 \r\n";
+            out.write(header.getBytes(StandardCharsets.US_ASCII));
+            out.flush();
+            sleep(50);
+            out.write("Content-Length: 11\r\n\r\nhello".getBytes(StandardCharsets.US_ASCII));
+            out.flush();
+            sleep(50);
+            out.write(" world".getBytes(StandardCharsets.US_ASCII));
+            out.flush();
+
+            HttpResponse response = readResponse(socket.getInputStream());
+            assertEquals(200, response.status);
+            assertTrue(response.header.contains("Connection: keep-alive"), response.header);
+            assertEquals(List.of("11|null|seed-1|hello world"), receivedBodies);
+        }
+    }
+
+    @Test
+    public void testPipelinedRequests() throws IOException {
+        start(new Properties(), null);
+        try (Socket socket = connect()) {
+            String requests = "POST / HTTP/1.1\r\nContent-Length: 3\r\n\r\none" +
+                    "POST / HTTP/1.1\r\nContent-Length: 3\r\nContent-Encoding: identity\r\n\r\ntwo" +
+                    "GET /unknown HTTP/1.1\r\n\r\n" +
+                    "POST / HTTP/1.1\r\nContent-Length: 5\r\nConnection: close\r\n\r\nthree";
+            socket.getOutputStream().write(requests.getBytes(StandardCharsets.US_ASCII));
+            socket.getOutputStream().flush();
+
+            InputStream in = socket.getInputStream();
+            assertEquals(200, readResponse(in).status);
+            assertEquals(200, readResponse(in).status);
+            assertEquals(404, readResponse(in).status);
+            HttpResponse last = readResponse(in);
+            assertEquals(200, last.status);
+            assertTrue(last.header.contains("Connection: close"), last.header);
+            assertEquals(-1, in.read());
+            // Without User-Agent the client is the remote address
+            String client = String.valueOf(socket.getLocalSocketAddress());
+            assertEquals(List.of("3|null|" + client + "|one", "3|identity|" + client + "|two",
+                    "5|null|" + client + "|three"), receivedBodies);
+        }
+    }
+
+    @Test
+    public void testRejectsTooLargeBody() throws IOException {
+        Properties properties = new Properties();
+        properties.setProperty("Server.nio.maxRequestBytes", "100");
+        start(properties, null);
+        assertEquals(413, send("POST / HTTP/1.1\r\nContent-Length: 101\r\n\r\n").status);
+        assertEquals(200, send("POST / HTTP/1.1\r\nContent-Length: 100\r\n\r\n" + "x".repeat(100)).status);
+        assertEquals(1, receivedBodies.size());
+    }
+
+    @Test
+    public void testRejectsTooLargeHeader() throws IOException {
+        Properties properties = new Properties();
+        properties.setProperty("Server.nio.maxHeaderBytes", "1024");
+        start(properties, null);
+        HttpResponse response = send("POST / HTTP/1.1\r\nX-Padding: " + "x".repeat(2000) + "\r\n\r\n");
+        assertEquals(431, response.status);
+        assertTrue(response.header.contains("Connection: close"), response.header);
+        assertTrue(receivedBodies.isEmpty());
+    }
+
+    @Test
+    public void testRejectsChunkedBody() throws IOException {
+        start(new Properties(), null);
+        assertEquals(411, send("POST / HTTP/1.1\r\nTransfer-Encoding: chunked\r\n\r\n5\r\nhello\r\n0\r\n\r\n").status);
+        assertTrue(receivedBodies.isEmpty());
+    }
+
+    @Test
+    public void testRejectsMalformedRequests() throws IOException {
+        start(new Properties(), null);
+        assertEquals(400, send("POST /\r\n\r\n").status);
+        assertEquals(400, send("POST / HTTP/1.1\r\nno-separator\r\n\r\n").status);
+        assertEquals(400, send("POST / HTTP/1.1\r\nContent-Length: -1\r\n\r\n").status);
+        assertEquals(415, send("POST / HTTP/1.1\r\nContent-Length: 1\r\nContent-Encoding: br\r\n\r\nx").status);
+        assertEquals(405, send("GET / HTTP/1.1\r\n\r\n").status);
+    }
+
+    @Test
+    public void testClosesConnectionWhichDoesNotReadItsResponse() throws Exception {
+        Properties properties = new Properties();
+        properties.setProperty("Server.nio.idleTimeoutSec", "1");
+        // About 20 MB of JSON, more than the socket buffers hold
+        RecentMetrics recentMetrics = new RecentMetrics(1000, 1000);
+        for (int i = 0; i < 1000; i++) {
+            for (int j = 0; j < 1000; j++) {
+                recentMetrics.record(new Metrics("test.nio.series" + i, j, 1_700_000_000L + j));
+            }
+        }
+        start(properties, new QueryHandler(recentMetrics, 0));
+        try (Socket socket = new Socket()) {
+            socket.setReceiveBufferSize(4096);
+            socket.connect(new InetSocketAddress("127.0.0.1", port));
+            socket.setSoTimeout(10_000);
+            socket.getOutputStream().write(("GET /query?target=test.nio.*&from=0 HTTP/1.1\r\n\r\n")
+                    .getBytes(StandardCharsets.US_ASCII));
+            socket.getOutputStream().flush();
+            // Without reading, the server cannot make progress and has to give up after the idle timeout
+            sleep(3500);
+
+            InputStream in = socket.getInputStream();
+            String header = readHeader(in);
+            long contentLength = Long.parseLong(getHeaderValue(header, "Content-Length"));
+            long numBytes = 0;
+            byte[] buffer = new byte[64 * 1024];
+            try {
+                int read;
+                while ((read = in.read(buffer)) > 0) {
+                    numBytes += read;
+                }
+            } catch (IOException ignore) {
+                // Connection reset
+            }
+            assertTrue(numBytes < contentLength, "Received " + numBytes + " of " + contentLength);
+        }
+    }
+
+    @Test
+    public void testStreamsBatch() throws IOException {
+        Properties properties = new Properties();
+        // Batches are streamed, so they are not limited by maxRequestBytes
+        properties.setProperty("Server.nio.maxRequestBytes", "10");
+        properties.setProperty("Server.ingestion.statsIntervalSec", "0");
+        start(properties, null);
+        byte[] body = toBatch(3);
+        try (Socket socket = connect()) {
+            OutputStream out = socket.getOutputStream();
+            out.write(("POST /batch HTTP/1.1\r\nContent-Length: " + body.length + "\r\n\r\n")
+                    .getBytes(StandardCharsets.US_ASCII));
+            out.write(body, 0, body.length / 2);
+            out.flush();
+            sleep(50);
+            out.write(body, body.length / 2, body.length - body.length / 2);
+            out.flush();
+
+            HttpResponse response = readResponse(socket.getInputStream());
+            assertEquals(200, response.status);
+            assertEquals("3", getHeaderValue(response.header, RequestHandler.ACCEPTED_HEADER));
+            // The body was read completely, so the connection is reused
+            out.write("GET /unknown HTTP/1.1\r\n\r\n".getBytes(StandardCharsets.US_ASCII));
+            out.flush();
+            assertEquals(404, readResponse(socket.getInputStream()).status);
+        }
+        assertTrue(receivedBodies.isEmpty());
+    }
+
+    @Test
+    public void testStopsBatchAtTruncatedReport() throws IOException {
+        Properties properties = new Properties();
+        properties.setProperty("Server.ingestion.statsIntervalSec", "0");
+        start(properties, null);
+        byte[] body = toBatch(3);
+        HttpResponse response = sendBatch(Arrays.copyOf(body, body.length - 3));
+        assertEquals(400, response.status);
+        assertEquals("2", getHeaderValue(response.header, RequestHandler.ACCEPTED_HEADER));
+    }
+
+    @Test
+    public void testStopsBatchExceedingBatchMaxBytes() throws IOException {
+        Properties properties = new Properties();
+        properties.setProperty("Server.batch.maxBytes", String.valueOf(toBatch(2).length));
+        properties.setProperty("Server.ingestion.statsIntervalSec", "0");
+        start(properties, null);
+        HttpResponse response = sendBatch(toBatch(3));
+        assertEquals(413, response.status);
+        assertEquals("2", getHeaderValue(response.header, RequestHandler.ACCEPTED_HEADER));
+    }
+
+    private void start(Properties properties, QueryHandler queryHandler) throws IOException {
+        port = unusedPort();
+        server = new NioServer(properties);
+        server.start(port, new RecordingRequestHandler(properties), queryHandler);
+    }
+
+    private Socket connect() throws IOException {
+        Socket socket = new Socket("127.0.0.1", port);
+        socket.setSoTimeout(5000);
+        return socket;
+    }
+
+    private HttpResponse send(String request) throws IOException {
+        try (Socket socket = connect()) {
+            socket.getOutputStream().write(request.getBytes(StandardCharsets.US_ASCII));
+            socket.getOutputStream().flush();
+            return readResponse(socket.getInputStream());
+        }
+    }
+
+    private HttpResponse sendBatch(byte[] body) throws IOException {
+        try (Socket socket = connect()) {
+            OutputStream out = socket.getOutputStream();
+            out.write(("POST /batch HTTP/1.1\r\nContent-Length: " + body.length + "\r\n\r\n")
+                    .getBytes(StandardCharsets.US_ASCII));
+            out.write(body);
+            out.flush();
+            return readResponse(socket.getInputStream());
+        }
+    }
+
+    // Reports of different seed nodes, written as length-delimited messages
+    static byte[] toBatch(int numReports) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        for (int i = 0; i < numReports; i++) {
+            RequestHandlerTest.writeReport(outputStream, "seed" + i + ".onion:8000", i);
+        }
+        return outputStream.toByteArray();
+    }
+
+    private static HttpResponse readResponse(InputStream in) throws IOException {
+        String header = readHeader(in);
+        int status = Integer.parseInt(header.split(" ")[1]);
+        int contentLength = Integer.parseInt(getHeaderValue(header, "Content-Length"));
+        byte[] body = in.readNBytes(contentLength);
+        assertEquals(contentLength, body.length);
+        return new HttpResponse(status, header, new String(body, StandardCharsets.UTF_8));
+    }
+
+    private static String readHeader(InputStream in) throws IOException {
+        ByteArrayOutputStream header = new ByteArrayOutputStream();
+        int b;
+        while ((b = in.read()) >= 0) {
+            header.write(b);
+            if (header.toString(StandardCharsets.US_ASCII).endsWith("\r\n\r\n")) {
+                return header.toString(StandardCharsets.US_ASCII);
+            }
+        }
+        throw new IOException("Connection closed before end of header: " + header);
+    }
+
+    private static String getHeaderValue(String header, String name) {
+        for (String line : header.split("\r\n")) {
+            if (line.startsWith(name + ": ")) {
+                return line.substring(name.length() + 2);
+            }
+        }
+        throw new AssertionError("Missing header " + name + " in " + header);
+    }
+
+    private static int unusedPort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    private static void sleep(long ms) {
+        try {
+            Thread.sleep(ms);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static class HttpResponse {
+        private final int status;
+        private final String header;
+        private final String body;
+
+        private HttpResponse(int status, String header, String body) {
+            this.status = status;
+            this.header = header;
+            this.body = body;
+        }
+    }
+
+    // Records the bodies instead of parsing them as protobuf
+    private class RecordingRequestHandler extends RequestHandler {
+        private RecordingRequestHandler(Properties properties) {
+            super(new NoOpReporter(), properties);
+        }
+
+        @Override
+        public int onReport(InputStream body, int contentLength, String contentEncoding, String client) {
+            try {
+                receivedBodies.add(contentLength + "|" + contentEncoding + "|" + client + "|" +
+                        new String(body.readAllBytes(), StandardCharsets.UTF_8));
+                return 200;
+            } catch (IOException e) {
+                return 500;
+            }
+        }
+    }
+
+    private static class NoOpReporter extends Reporter {
+        @Override
+        public void report(Metrics metrics) {
+        }
+
+        @Override
+        public void report(Collection<Metrics> metrics) {
+        }
+    }
+}
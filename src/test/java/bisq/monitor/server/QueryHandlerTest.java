@@ -0,0 +1,122 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.monitor.server;
+
+import bisq.monitor.reporter.Metrics;
+import bisq.monitor.reporter.RecentMetrics;
+import bisq.monitor.reporter.tsdb.TimeSeriesStore;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class QueryHandlerTest {
+    private static final String PATH = Metrics.ROOT + ".test.query.x";
+
+    @TempDir
+    File dir;
+
+    @Test
+    public void testWritesGraphiteJson() throws IOException {
+        RecentMetrics recentMetrics = new RecentMetrics(10, 10);
+        recentMetrics.record(new Metrics("test.query.x", 1, 1000));
+        recentMetrics.record(new Metrics("test.query.x", 2.5, 1001));
+        QueryHandler queryHandler = new QueryHandler(recentMetrics, 0);
+        assertEquals("[{\"target\":\"" + PATH + "\",\"datapoints\":[[1,1000],[2.5,1001]]}]",
+                write(queryHandler, "test.query.[wx]", "0"));
+        assertEquals("[]", write(queryHandler, "test.query.[!x]", "0"));
+    }
+
+    @Test
+    public void testReadsPointsFromStore() throws IOException {
+        // Keeps only the last point in memory
+        RecentMetrics recentMetrics = new RecentMetrics(1, 10);
+        TimeSeriesStore store = new TimeSeriesStore(dir, 1024, 64, 3600, 3600);
+        for (int i = 0; i < 3; i++) {
+            Metrics metrics = new Metrics("test.query.x", (long) i, 1000 + i);
+            recentMetrics.record(metrics);
+            store.append(metrics);
+        }
+        QueryHandler queryHandler = new QueryHandler(recentMetrics, store, 0, 1024 * 1024);
+        assertEquals("[{\"target\":\"" + PATH + "\",\"datapoints\":[[0.0,1000],[1.0,1001],[2.0,1002]]}]",
+                write(queryHandler, "test.query.*", "0"));
+        assertEquals("[]", write(queryHandler, "test.query.y", "0"));
+        store.shutDown();
+    }
+
+    @Test
+    public void testRejectsInvalidParameters() {
+        QueryHandler queryHandler = new QueryHandler(new RecentMetrics(10, 10), 0);
+        assertThrows(IllegalArgumentException.class, () -> queryHandler.parse(null, null, null));
+        assertThrows(IllegalArgumentException.class, () -> queryHandler.parse("a.[0-9", null, null));
+        assertThrows(IllegalArgumentException.class, () -> queryHandler.parse("a.{b", null, null));
+        assertThrows(IllegalArgumentException.class, () -> queryHandler.parse("a", "-6x", null));
+        assertThrows(IllegalArgumentException.class, () -> queryHandler.parse("a", "yesterday", null));
+    }
+
+    @Test
+    public void testEvictsLeastRecentlyUsedResponse() throws IOException {
+        RecentMetrics recentMetrics = new RecentMetrics(10, 10);
+        recentMetrics.record(new Metrics("test.query.x", 1, 1000));
+        String onePoint = "[{\"target\":\"" + PATH + "\",\"datapoints\":[[1,1000]]}]";
+        String twoPoints = "[{\"target\":\"" + PATH + "\",\"datapoints\":[[1,1000],[2,1001]]}]";
+        // Room for two responses with one point, the one with two points needs to evict one of them
+        QueryHandler queryHandler = new QueryHandler(recentMetrics, 60_000, onePoint.length() + twoPoints.length());
+
+        // The from parameter makes the cache keys differ
+        assertEquals(onePoint, write(queryHandler, "test.query.x", "1"));
+        assertEquals(onePoint, write(queryHandler, "test.query.x", "2"));
+        // Using the first one makes the second one the least recently used
+        assertEquals(onePoint, write(queryHandler, "test.query.x", "1"));
+        recentMetrics.record(new Metrics("test.query.x", 2, 1001));
+        assertEquals(twoPoints, write(queryHandler, "test.query.x", "3"));
+
+        assertEquals(onePoint, write(queryHandler, "test.query.x", "1"));
+        assertEquals(twoPoints, write(queryHandler, "test.query.x", "2"));
+        assertTrue(queryHandler.getCachedBytes() <= onePoint.length() + twoPoints.length());
+    }
+
+    @Test
+    public void testDropsExpiredResponses() throws IOException, InterruptedException {
+        RecentMetrics recentMetrics = new RecentMetrics(10, 10);
+        recentMetrics.record(new Metrics("test.query.x", 1, 1000));
+        QueryHandler queryHandler = new QueryHandler(recentMetrics, 50, 1024 * 1024);
+        String onePoint = write(queryHandler, "test.query.x", "1");
+        assertEquals(onePoint.length(), queryHandler.getCachedBytes());
+
+        Thread.sleep(100);
+        // The expired response of the first query is dropped when the second one gets added
+        write(queryHandler, "test.query.x", "2");
+        assertEquals(onePoint.length(), queryHandler.getCachedBytes());
+        // An expired response is not served
+        recentMetrics.record(new Metrics("test.query.x", 2, 1001));
+        Thread.sleep(100);
+        assertNotEquals(onePoint, write(queryHandler, "test.query.x", "2"));
+    }
+
+    private static String write(QueryHandler queryHandler, String target, String from) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        queryHandler.write(queryHandler.parse(target, from, null), outputStream);
+        return outputStream.toString(StandardCharsets.UTF_8);
+    }
+}
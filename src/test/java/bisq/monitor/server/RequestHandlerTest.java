@@ -0,0 +1,264 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.monitor.server;
+
+import bisq.monitor.reporter.Metrics;
+import bisq.monitor.reporter.Reporter;
+import bisq.seednode.reporting.LongValueReportingItem;
+import bisq.seednode.reporting.ReportingItems;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RequestHandlerTest {
+    private final CollectingReporter reporter = new CollectingReporter();
+    private RequestHandler requestHandler;
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        reporter.release.countDown();
+        if (requestHandler != null) {
+            requestHandler.shutDown().get();
+        }
+    }
+
+    @Test
+    public void testDispatchesEachReportOfBatch() throws Exception {
+        start(new Properties());
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        writeReport(body, "seed1.onion:8000", 1);
+        writeReport(body, "seed2.onion:8000", 2);
+        writeReport(body, "seed3.onion:8000", 3);
+
+        assertEquals(new RequestHandler.BatchResult(200, 3), onBatch(body.toByteArray(), null));
+        reporter.await(3);
+        assertEquals(List.of(getPath("seed1") + "=1", getPath("seed2") + "=2", getPath("seed3") + "=3"),
+                reporter.sorted());
+    }
+
+    @Test
+    public void testDecodesBatch() throws Exception {
+        start(new Properties());
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        try (OutputStream outputStream = new GZIPOutputStream(body)) {
+            writeReport(outputStream, "seed1.onion:8000", 1);
+            writeReport(outputStream, "seed2.onion:8000", 2);
+        }
+        assertEquals(new RequestHandler.BatchResult(200, 2), onBatch(body.toByteArray(), "gzip"));
+        assertEquals(new RequestHandler.BatchResult(415, 0), onBatch(body.toByteArray(), "br"));
+        reporter.await(2);
+    }
+
+    @Test
+    public void testRejectsEmptyBatch() {
+        start(new Properties());
+        assertEquals(new RequestHandler.BatchResult(400, 0), onBatch(new byte[0], null));
+    }
+
+    @Test
+    public void testStopsAtTruncatedReport() throws Exception {
+        start(new Properties());
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        writeReport(body, "seed1.onion:8000", 1);
+        writeReport(body, "seed2.onion:8000", 2);
+        writeReport(body, "seed3.onion:8000", 3);
+        byte[] truncated = Arrays.copyOf(body.toByteArray(), body.size() - 3);
+
+        // The reports before are processed, the client resends from the truncated one
+        assertEquals(new RequestHandler.BatchResult(400, 2), onBatch(truncated, null));
+        reporter.await(2);
+    }
+
+    @Test
+    public void testStopsAtReportExceedingBatchMaxBytes() throws Exception {
+        ByteArrayOutputStream report = new ByteArrayOutputStream();
+        writeReport(report, "seed1.onion:8000", 1);
+        Properties properties = new Properties();
+        properties.setProperty("Server.batch.maxBytes", String.valueOf(report.size() * 2));
+        start(properties);
+
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        writeReport(body, "seed1.onion:8000", 1);
+        writeReport(body, "seed2.onion:8000", 2);
+        writeReport(body, "seed3.onion:8000", 3);
+        assertEquals(new RequestHandler.BatchResult(413, 2), onBatch(body.toByteArray(), null));
+        reporter.await(2);
+    }
+
+    @Test
+    public void testStopsBatchIfReportIsNotAdmittedWithinMaxWait() throws Exception {
+        Properties properties = new Properties();
+        properties.setProperty("Server.ingestion.threads", "1");
+        properties.setProperty("Server.ingestion.maxQueuedPerClient", "1");
+        properties.setProperty("Server.batch.maxWaitMs", "200");
+        start(properties);
+        reporter.block();
+
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        writeReport(body, "seed1.onion:8000", 1);
+        writeReport(body, "seed1.onion:8000", 2);
+        writeReport(body, "seed1.onion:8000", 3);
+        long startTs = System.currentTimeMillis();
+        // The first report blocks the worker, so the client has reached its limit
+        assertEquals(new RequestHandler.BatchResult(429, 1), onBatch(body.toByteArray(), null));
+        assertTrue(System.currentTimeMillis() - startTs >= 200);
+    }
+
+    @Test
+    public void testWaitsForAdmissionOfBatchReport() throws Exception {
+        Properties properties = new Properties();
+        properties.setProperty("Server.ingestion.threads", "1");
+        properties.setProperty("Server.ingestion.maxQueuedPerClient", "1");
+        properties.setProperty("Server.batch.maxWaitMs", "5000");
+        start(properties);
+        reporter.block();
+
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        writeReport(body, "seed1.onion:8000", 1);
+        writeReport(body, "seed1.onion:8000", 2);
+        writeReport(body, "seed1.onion:8000", 3);
+        new Thread(() -> {
+            sleep(300);
+            reporter.release.countDown();
+        }).start();
+        long startTs = System.currentTimeMillis();
+        assertEquals(new RequestHandler.BatchResult(200, 3), onBatch(body.toByteArray(), null));
+        assertTrue(System.currentTimeMillis() - startTs >= 300);
+        reporter.await(3);
+        assertEquals(List.of(getPath("seed1") + "=1", getPath("seed1") + "=2", getPath("seed1") + "=3"),
+                reporter.paths);
+    }
+
+    @Test
+    public void testThrottlesAndRejectsSingleReports() throws Exception {
+        Properties properties = new Properties();
+        properties.setProperty("Server.ingestion.threads", "1");
+        properties.setProperty("Server.ingestion.queueCapacity", "1");
+        properties.setProperty("Server.ingestion.maxQueuedPerClient", "1");
+        start(properties);
+        reporter.block();
+
+        assertEquals(200, onReport("seed1.onion:8000", 1));
+        reporter.awaitBlocked();
+        assertEquals(429, onReport("seed1.onion:8000", 2));
+        assertEquals(200, onReport("seed2.onion:8000", 1));
+        // The worker is blocked and seed2 fills the queue
+        assertEquals(503, onReport("seed3.onion:8000", 1));
+        assertTrue(RequestHandler.isRetryLater(429));
+        assertTrue(RequestHandler.isRetryLater(503));
+    }
+
+    private void start(Properties properties) {
+        properties.setProperty("Server.ingestion.statsIntervalSec", "0");
+        requestHandler = new RequestHandler(reporter, properties);
+    }
+
+    private RequestHandler.BatchResult onBatch(byte[] body, String contentEncoding) {
+        return requestHandler.onBatch(new ByteArrayInputStream(body), contentEncoding, "test");
+    }
+
+    private int onReport(String address, long value) {
+        ReportingItems reportingItems = newReport(address, value);
+        byte[] body = reportingItems.toProtoMessage().toByteArray();
+        return requestHandler.onReport(new ByteArrayInputStream(body), body.length, null, "test");
+    }
+
+    // Path of the metric reported by newReport
+    static String getPath(String address) {
+        return Metrics.ROOT + ".seedNodes." + address + ".seedReport.data.OfferPayload";
+    }
+
+    /**
+     * Writes a length-delimited report as sent to the batch endpoint.
+     */
+    static void writeReport(OutputStream outputStream, String address, long value) throws IOException {
+        // The reporting items are enums, so the value has to be written before creating the next report
+        newReport(address, value).toProtoMessage().writeDelimitedTo(outputStream);
+    }
+
+    private static ReportingItems newReport(String address, long value) {
+        ReportingItems reportingItems = new ReportingItems(address);
+        reportingItems.add(LongValueReportingItem.OfferPayload.withValue(value));
+        return reportingItems;
+    }
+
+    private static void sleep(long ms) {
+        try {
+            Thread.sleep(ms);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    static class CollectingReporter extends Reporter {
+        final List<String> paths = new CopyOnWriteArrayList<>();
+        private final CountDownLatch blocked = new CountDownLatch(1);
+        private volatile CountDownLatch release = new CountDownLatch(0);
+
+        @Override
+        public void report(Metrics metrics) {
+            report(List.of(metrics));
+        }
+
+        @Override
+        public void report(Collection<Metrics> metrics) {
+            blocked.countDown();
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            metrics.forEach(m -> paths.add(m.getPath() + "=" + m.getValue()));
+        }
+
+        // Blocks the worker threads in report until release is counted down
+        void block() {
+            release = new CountDownLatch(1);
+        }
+
+        void awaitBlocked() throws InterruptedException {
+            assertTrue(blocked.await(5, TimeUnit.SECONDS));
+        }
+
+        void await(int numMetrics) throws InterruptedException {
+            long deadline = System.currentTimeMillis() + 5000;
+            while (paths.size() < numMetrics && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            assertEquals(numMetrics, paths.size(), paths.toString());
+        }
+
+        List<String> sorted() {
+            return paths.stream().sorted().collect(java.util.stream.Collectors.toList());
+        }
+    }
+}
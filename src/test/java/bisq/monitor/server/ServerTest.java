@@ -0,0 +1,96 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.monitor.server;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import spark.Spark;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.ServerSocket;
+import java.net.URL;
+import java.util.Arrays;
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Spark is a singleton, so all tests share one server
+public class ServerTest {
+    private static Server server;
+    private static RequestHandler requestHandler;
+    private static int port;
+
+    @BeforeAll
+    public static void setUp() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        Properties properties = new Properties();
+        properties.setProperty("Server.batch.maxBytes", String.valueOf(NioServerTest.toBatch(3).length));
+        properties.setProperty("Server.ingestion.statsIntervalSec", "0");
+        requestHandler = new RequestHandler(new RequestHandlerTest.CollectingReporter(), properties);
+        server = new Server();
+        server.start(port, requestHandler, null);
+        Spark.awaitInitialization();
+    }
+
+    @AfterAll
+    public static void tearDown() throws Exception {
+        server.shutDown().get();
+        requestHandler.shutDown().get();
+    }
+
+    @Test
+    public void testAcceptsBatch() throws IOException {
+        HttpURLConnection connection = postBatch(NioServerTest.toBatch(3));
+        assertEquals(200, connection.getResponseCode());
+        assertEquals("3", connection.getHeaderField(RequestHandler.ACCEPTED_HEADER));
+    }
+
+    @Test
+    public void testStopsBatchAtTruncatedReport() throws IOException {
+        byte[] body = NioServerTest.toBatch(3);
+        HttpURLConnection connection = postBatch(Arrays.copyOf(body, body.length - 3));
+        assertEquals(400, connection.getResponseCode());
+        assertEquals("2", connection.getHeaderField(RequestHandler.ACCEPTED_HEADER));
+    }
+
+    @Test
+    public void testStopsBatchExceedingBatchMaxBytes() throws IOException {
+        HttpURLConnection connection = postBatch(NioServerTest.toBatch(4));
+        assertEquals(413, connection.getResponseCode());
+        assertEquals("3", connection.getHeaderField(RequestHandler.ACCEPTED_HEADER));
+    }
+
+    private static HttpURLConnection postBatch(byte[] body) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL("http://127.0.0.1:" + port + "/batch")
+                .openConnection();
+        connection.setRequestMethod("POST");
+        connection.setDoOutput(true);
+        connection.setFixedLengthStreamingMode(body.length);
+        connection.setConnectTimeout(5000);
+        connection.setReadTimeout(5000);
+        try (OutputStream outputStream = connection.getOutputStream()) {
+            outputStream.write(body);
+        }
+        return connection;
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.monitor.server.handlers;
+
+import bisq.monitor.reporter.MetricName;
+import bisq.monitor.reporter.Metrics;
+import bisq.seednode.reporting.LongValueReportingItem;
+import bisq.seednode.reporting.ReportingItems;
+import bisq.seednode.reporting.StringValueReportingItem;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class IndexedReportingItemsTest {
+    @Test
+    public void testIndexesByGroupAndPath() {
+        ReportingItems reportingItems = new ReportingItems("seed1.onion:8000");
+        reportingItems.add(LongValueReportingItem.MailboxStoragePayload.withValue(2));
+        reportingItems.add(StringValueReportingItem.version.withValue("1.9.9"));
+        reportingItems.add(LongValueReportingItem.OfferPayload.withValue(1));
+        IndexedReportingItems indexed = new IndexedReportingItems(reportingItems);
+
+        assertEquals("seed1", indexed.getAddress());
+        assertEquals(Metrics.ROOT + ".seedNodes.seed1.seedReport", indexed.getSeedReportName().getPath());
+        assertEquals(3, indexed.getSize());
+
+        // In the reported order
+        assertEquals(List.of(new IndexedReportingItems.Item("MailboxStoragePayload", 2L),
+                new IndexedReportingItems.Item("OfferPayload", 1L)), indexed.getGroup("data"));
+        assertEquals(List.of(new IndexedReportingItems.Item("version", "1.9.9")), indexed.getGroup("node"));
+        assertEquals(List.of(), indexed.getGroup("dao"));
+        assertThrows(UnsupportedOperationException.class, () -> indexed.getGroup("data").clear());
+
+        assertEquals(Optional.of(1L), indexed.findLongValue("data.OfferPayload"));
+        assertEquals(Optional.of("1.9.9"), indexed.findStringValue("node.version"));
+        // Wrong type or unknown path
+        assertEquals(Optional.empty(), indexed.findStringValue("data.OfferPayload"));
+        assertEquals(Optional.empty(), indexed.findLongValue("node.version"));
+        assertEquals(Optional.empty(), indexed.findLongValue("data.unknown"));
+    }
+
+    @Test
+    public void testResolvesAddressWithDots() {
+        IndexedReportingItems indexed = new IndexedReportingItems(new ReportingItems("127.0.0.1:8000"));
+        assertSame(MetricName.ROOT.resolve("seedNodes.127.0.0.1:8000.seedReport"), indexed.getSeedReportName());
+    }
+
+    @Test
+    public void testKeepsValuesWhenItemsAreReused() {
+        ReportingItems first = new ReportingItems("seed1.onion:8000");
+        first.add(LongValueReportingItem.OfferPayload.withValue(1));
+        IndexedReportingItems indexed = IndexedReportingItems.fromProto(first.toProtoMessage());
+
+        // Parsing the next report sets the value of the same enum constant
+        ReportingItems second = new ReportingItems("seed2.onion:8000");
+        second.add(LongValueReportingItem.OfferPayload.withValue(2));
+        IndexedReportingItems.fromProto(second.toProtoMessage());
+
+        assertEquals(Optional.of(1L), indexed.findLongValue("data.OfferPayload"));
+        assertEquals(List.of(new IndexedReportingItems.Item("OfferPayload", 1L)), indexed.getGroup("data"));
+    }
+}